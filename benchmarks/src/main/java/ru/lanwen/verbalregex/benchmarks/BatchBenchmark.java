@@ -0,0 +1,89 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.BatchMatcher;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Validation of 1M records: {@link BatchMatcher#test(List)} on the calling thread and on the executor,
+ * against {@link VerbalExpression#test(CharSequence)} of each record in the loop.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+    private static final int RECORDS = 1000000;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+    private VerbalExpression email;
+    private BatchMatcher batch;
+    private BatchMatcher parallel;
+    private ExecutorService executor;
+    private List<String> records;
+
+    @Setup
+    public void build() {
+        email = regex().startOfLine().capture().word().oneOrMore().endCapture().then("@")
+                .capture().word().oneOrMore().then(".").word().count(2, 4).endCapture().endOfLine().build();
+        executor = Executors.newFixedThreadPool(THREADS);
+        batch = email.batch();
+        parallel = email.batch(executor, THREADS);
+
+        Random random = new Random(42);
+        records = new ArrayList<>(RECORDS);
+        for (int i = 0; i < RECORDS; i++) {
+            records.add("user" + random.nextInt(100000) + (random.nextInt(10) == 0 ? " at " : "@")
+                    + "example" + random.nextInt(100) + ".com");
+        }
+    }
+
+    @TearDown
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public BitSet loop() {
+        BitSet matched = new BitSet(RECORDS);
+        for (int i = 0; i < RECORDS; i++) {
+            if (email.test(records.get(i))) {
+                matched.set(i);
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public BitSet batch() {
+        return batch.test(records);
+    }
+
+    @Benchmark
+    public BitSet batchOnExecutor() {
+        return parallel.test(records);
+    }
+}
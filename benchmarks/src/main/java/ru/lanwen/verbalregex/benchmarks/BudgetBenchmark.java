@@ -0,0 +1,64 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.MatchBudget;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.concurrent.TimeUnit;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Cost of the {@link MatchBudget}: the search of the duration in 10KB of text without the budget,
+ * with the step limit and with the step limit and the timeout.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BudgetBenchmark {
+
+    private VerbalExpression expression;
+    private MatchBudget steps;
+    private MatchBudget timed;
+    private String text;
+
+    @Setup
+    public void build() {
+        expression = regex().then(" took ").digit().oneOrMore().then("ms").build();
+        steps = MatchBudget.steps(1000000);
+        timed = steps.withTimeout(100, TimeUnit.MILLISECONDS);
+
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 10000) {
+            builder.append("request ").append(builder.length()).append(" took ?ms\n");
+        }
+        text = builder.append("request took 15ms").toString();
+    }
+
+    @Benchmark
+    public boolean unlimited() {
+        return expression.test(text);
+    }
+
+    @Benchmark
+    public boolean steps() {
+        return expression.test(text, steps);
+    }
+
+    @Benchmark
+    public boolean timed() {
+        return expression.test(text, timed);
+    }
+}
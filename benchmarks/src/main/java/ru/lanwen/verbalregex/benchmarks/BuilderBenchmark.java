@@ -0,0 +1,71 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.concurrent.TimeUnit;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Cost of the {@link VerbalExpression.Builder} chains: the chain of literals full of special chars,
+ * that are all escaped, alone and with {@link VerbalExpression.Builder#build()}, and the url, email
+ * and log line rules of {@code RealWorldUnitTest} built from scratch.
+ * Builders allocate on each call, so it is worth to run it with the gc profiler:
+ * <pre>
+ * java -jar target/benchmarks.jar BuilderBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuilderBenchmark {
+
+    @Benchmark
+    public VerbalExpression.Builder sanitizeChain() {
+        return sanitized();
+    }
+
+    @Benchmark
+    public VerbalExpression sanitizeChainBuild() {
+        return sanitized().build();
+    }
+
+    @Benchmark
+    public VerbalExpression url() {
+        return regex().startOfLine().then("http").maybe("s").then("://").maybe("www.")
+                .anythingBut(" ").endOfLine().build();
+    }
+
+    @Benchmark
+    public VerbalExpression email() {
+        return regex().startOfLine().capture().word().maybe(".").word().endCapture()
+                .then("@").capture().word().then(".").oneOf("com", "org", "net", "ru").endCapture()
+                .endOfLine().build();
+    }
+
+    @Benchmark
+    public VerbalExpression logLine() {
+        return MatchBenchmark.logLine().build();
+    }
+
+    private static VerbalExpression.Builder sanitized() {
+        return regex().startOfLine()
+                .then("C:\\Program Files (x86)\\").maybe("app[1].exe")
+                .then(" --price=$9.99^2+(a|b)*?").anythingBut("{}")
+                .then("[^.*+?]").find("|||").maybe("\\d{1,3}")
+                .then("1 + 1 = 2?").something().then("<a href=\"/index.html#top\">")
+                .endOfLine();
+    }
+}
@@ -0,0 +1,129 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.ExpressionCache;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.concurrent.TimeUnit;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * {@link VerbalExpression.Builder#build()} of the same 64 rules, rebuilt again and again
+ * by 1 to 64 threads, with the shared {@link ExpressionCache} and without it.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheContentionBenchmark {
+
+    private static final int RULES = 64;
+
+    @State(Scope.Benchmark)
+    public static class Cached {
+        private ExpressionCache cache;
+
+        @Setup
+        public void share() {
+            cache = new ExpressionCache(1000);
+            ExpressionCache.setShared(cache);
+        }
+
+        @TearDown
+        public void stopSharing() {
+            System.out.println();
+            System.out.println(cache);
+            ExpressionCache.setShared(null);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Uncached {
+        @Setup
+        public void stopSharing() {
+            ExpressionCache.setShared(null);
+        }
+    }
+
+    /**
+     * Each thread walks through the rules from its own position
+     */
+    @State(Scope.Thread)
+    public static class Rules {
+        private int next;
+
+        @Setup
+        public void start() {
+            next = (int) (Thread.currentThread().getId() % RULES);
+        }
+
+        VerbalExpression build() {
+            int rule = next;
+            next = (next + 1) % RULES;
+            return regex().startOfLine().then("/api/v").digit().then("/service-" + rule)
+                    .maybe("/").anythingBut("?#").then("?").capture("query").anything().endCapture()
+                    .endOfLine().build();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public VerbalExpression cached1(Cached cached, Rules rules) {
+        return rules.build();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public VerbalExpression cached4(Cached cached, Rules rules) {
+        return rules.build();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public VerbalExpression cached16(Cached cached, Rules rules) {
+        return rules.build();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public VerbalExpression cached64(Cached cached, Rules rules) {
+        return rules.build();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public VerbalExpression uncached1(Uncached uncached, Rules rules) {
+        return rules.build();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public VerbalExpression uncached4(Uncached uncached, Rules rules) {
+        return rules.build();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public VerbalExpression uncached16(Uncached uncached, Rules rules) {
+        return rules.build();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public VerbalExpression uncached64(Uncached uncached, Rules rules) {
+        return rules.build();
+    }
+}
@@ -0,0 +1,83 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.concurrent.TimeUnit;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * {@link VerbalExpression.Builder#dfa()} against the backtracking of the pattern: nested repetition of words
+ * on the line of N word chars, that ends with "!" not at the end, and the usual key=value line,
+ * that backtracks a little.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DfaBenchmark {
+
+    @Param({"16", "24", "1000"})
+    private int length;
+
+    private VerbalExpression nestedPattern;
+    private VerbalExpression nestedDfa;
+    private VerbalExpression keyValuePattern;
+    private VerbalExpression keyValueDfa;
+    private String adversarial;
+    private String line;
+
+    @Setup
+    public void build() {
+        VerbalExpression.Builder nested = regex().startOfLine()
+                .capture().word().oneOrMore().endCapture().oneOrMore().then("!").endOfLine();
+        nestedPattern = nested.build();
+        nestedDfa = VerbalExpression.regex(nested).dfa().build();
+
+        VerbalExpression.Builder keyValue = regex().startOfLine().word().oneOrMore().then("=")
+                .anythingBut(";").then(";").endOfLine();
+        keyValuePattern = keyValue.build();
+        keyValueDfa = VerbalExpression.regex(keyValue).dfa().build();
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + i % 26));
+        }
+        line = "key" + length + "=" + text + ";";
+        adversarial = text.append("!?").toString();
+    }
+
+    @Benchmark
+    public boolean nestedPattern() {
+        // 2^N ways to split the line into words
+        return length <= 24 && nestedPattern.test(adversarial);
+    }
+
+    @Benchmark
+    public boolean nestedDfa() {
+        return nestedDfa.test(adversarial);
+    }
+
+    @Benchmark
+    public boolean keyValuePattern() {
+        return keyValuePattern.testExact(line);
+    }
+
+    @Benchmark
+    public boolean keyValueDfa() {
+        return keyValueDfa.testExact(line);
+    }
+}
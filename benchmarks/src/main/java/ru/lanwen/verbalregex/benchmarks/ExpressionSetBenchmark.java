@@ -0,0 +1,92 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.VerbalExpression;
+import ru.lanwen.verbalregex.VerbalExpressionSet;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Which of N rules match the event of ~200 chars: {@link VerbalExpressionSet#test(CharSequence, BitSet)}
+ * against {@link VerbalExpression#test(CharSequence)} of each rule. Every 100th rule has no literal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionSetBenchmark {
+
+    @Param({"10", "100", "1000", "3000"})
+    private int rules;
+
+    private List<VerbalExpression> list;
+    private VerbalExpressionSet set;
+    private BitSet matched;
+    private String[] events;
+    private int next;
+
+    @Setup
+    public void build() {
+        list = new ArrayList<>(rules);
+        for (int i = 0; i < rules; i++) {
+            switch (i % 3) {
+                case 0:
+                    list.add(i % 100 == 0
+                            ? regex().find("code").digit().count(3).then(":").withAnyCase().build()
+                            : regex().find("code" + i + ":").digit().oneOrMore().build());
+                    break;
+                case 1:
+                    list.add(regex().oneOf("user" + i, "account" + i).build());
+                    break;
+                default:
+                    list.add(regex().startOfLine().then("svc" + i).then(" ").word().oneOrMore().build());
+            }
+        }
+        set = VerbalExpressionSet.of(list);
+        matched = new BitSet(rules);
+
+        Random random = new Random(42);
+        events = new String[1024];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = "svc" + random.nextInt(rules) + " request from user" + random.nextInt(rules * 10)
+                    + " failed with code" + random.nextInt(rules * 2) + ":" + random.nextInt(1000)
+                    + " after retrying the upstream call several times, see the trace for the details";
+        }
+    }
+
+    @Benchmark
+    public BitSet set() {
+        set.test(events[next++ & 1023], matched);
+        return matched;
+    }
+
+    @Benchmark
+    public BitSet loop() {
+        String event = events[next++ & 1023];
+        matched.clear();
+        for (int i = 0; i < rules; i++) {
+            if (list.get(i).test(event)) {
+                matched.set(i);
+            }
+        }
+        return matched;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link VerbalExpression#getText(String, int)} and {@link VerbalExpression#getTextGroups(String, int)}
+ * of the host group of the log line rule of {@code RealWorldUnitTest}, on one line and on ~1MB of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtractBenchmark {
+
+    @Param({"1", "12000"})
+    public int lines;
+
+    private VerbalExpression logLine;
+    private String text;
+
+    @Setup
+    public void build() {
+        logLine = MatchBenchmark.logLine().build();
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            builder.append(MatchBenchmark.LOG_LINE.replace("20001", String.valueOf(20000 + i % 1000)))
+                    .append('\n');
+        }
+        text = builder.toString();
+
+        if (logLine.getTextGroups(text, 4).size() != lines) {
+            throw new IllegalStateException("Not each line is matched");
+        }
+    }
+
+    @Benchmark
+    public String getText() {
+        return logLine.getText(text, 4);
+    }
+
+    @Benchmark
+    public List<String> getTextGroups() {
+        return logLine.getTextGroups(text, 4);
+    }
+}
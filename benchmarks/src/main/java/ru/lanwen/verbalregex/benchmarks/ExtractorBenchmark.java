@@ -0,0 +1,85 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.lanwen.verbalregex.GroupExtractor;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * 8 fields of each line of 1000 log lines: one pass of {@link GroupExtractor}
+ * against {@link VerbalExpression#getText(String, String)} for each field.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtractorBenchmark {
+
+    private static final String[] FIELDS = {"date", "time", "level", "thread", "user", "method", "path", "status"};
+
+    private VerbalExpression line;
+    private GroupExtractor extractor;
+    private String log;
+
+    @Setup
+    public void build() {
+        line = regex().startOfLine()
+                .capture("date").digit().count(4).then("-").digit().count(2).then("-").digit().count(2).endCapture()
+                .then(" ").capture("time").digit().count(2).then(":").digit().count(2).endCapture()
+                .then(" ").capture("level").word().endCapture()
+                .then(" [").capture("thread").anythingBut("]").endCapture()
+                .then("] ").capture("user").word().endCapture()
+                .then(" ").capture("method").word().endCapture()
+                .then(" ").capture("path").anythingBut(" ").endCapture()
+                .then(" ").capture("status").digit().count(3).endCapture()
+                .endOfLine().build();
+        extractor = line.extractor(FIELDS);
+
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            builder.append("2024-01-0").append(1 + random.nextInt(9)).append(' ')
+                    .append(10 + random.nextInt(14)).append(':').append(10 + random.nextInt(50))
+                    .append(random.nextBoolean() ? " INFO [worker-" : " WARN [worker-").append(random.nextInt(16))
+                    .append("] user").append(random.nextInt(100)).append(random.nextBoolean() ? " GET" : " POST")
+                    .append(" /api/items/").append(random.nextInt(10000)).append(' ')
+                    .append(random.nextBoolean() ? 200 : 404).append('\n');
+        }
+        log = builder.toString();
+    }
+
+    @Benchmark
+    public void onePass(final Blackhole blackhole) {
+        extractor.extract(log, new GroupExtractor.Handler() {
+            @Override
+            public void onMatch(GroupExtractor.Groups groups) {
+                for (int i = 0; i < groups.count(); i++) {
+                    blackhole.consume(groups.get(i));
+                }
+            }
+        });
+    }
+
+    @Benchmark
+    public void passPerField(Blackhole blackhole) {
+        for (String field : FIELDS) {
+            blackhole.consume(line.getText(log, field));
+        }
+    }
+}
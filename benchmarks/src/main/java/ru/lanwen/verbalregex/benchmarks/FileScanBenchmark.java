@@ -0,0 +1,99 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.FileScanner;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.MatchResult;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Count of error lines in the 256MB log file: {@link FileScanner} against {@link BufferedReader#readLine()}
+ * and {@link VerbalExpression#test(String)} of each line. The file is in the page cache after the warmup,
+ * so it is the CPU cost of reading, that is compared.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class FileScanBenchmark {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private VerbalExpression error;
+    private FileScanner scanner;
+    private Path file;
+
+    @Setup
+    public void build() throws IOException {
+        error = regex().word().then(" failed with error ").digit().oneOrMore().build();
+        scanner = error.fileScanner();
+
+        file = Files.createTempFile("verbal-expressions", ".log");
+        Random random = new Random(42);
+        try (Writer writer = Files.newBufferedWriter(file, UTF_8)) {
+            for (long written = 0; written < 256L << 20; ) {
+                StringBuilder line = new StringBuilder("2024-01-01T00:00:00Z worker-").append(random.nextInt(64));
+                while (line.length() < 120) {
+                    line.append(' ').append((char) ('a' + random.nextInt(26))).append(random.nextInt(1000));
+                }
+                if (random.nextInt(100) == 0) {
+                    line.append(" job failed with error ").append(random.nextInt(100));
+                }
+                writer.write(line.append('\n').toString());
+                written += line.length();
+            }
+        }
+    }
+
+    @TearDown
+    public void delete() throws IOException {
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public long mapped() throws IOException {
+        final long[] lines = new long[1];
+        scanner.scan(file, new FileScanner.Handler() {
+            @Override
+            public void onMatch(MatchResult match, long charOffset, long byteOffset) {
+                lines[0]++;
+            }
+        });
+        return lines[0];
+    }
+
+    @Benchmark
+    public long readLines() throws IOException {
+        long lines = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (error.test(line)) {
+                    lines++;
+                }
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,60 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.MatchResult;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Getting the first "key=value" pair of 10MB of text: lazy {@link VerbalExpression#matches(CharSequence)}
+ * against the whole list of {@link VerbalExpression#getTextGroups(String, int)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FirstMatchBenchmark {
+
+    private VerbalExpression pair;
+    private String text;
+
+    @Setup
+    public void build() {
+        pair = regex().capture().word().endCapture().then("=").capture().digit().oneOrMore().endCapture().build();
+
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 10 << 20) {
+            builder.append("key").append(random.nextInt(100)).append('=').append(random.nextInt(100000)).append('\n');
+        }
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public String lazy() {
+        for (MatchResult match : pair.matches(text)) {
+            return match.group();
+        }
+        return null;
+    }
+
+    @Benchmark
+    public String eager() {
+        return pair.getTextGroups(text, 0).get(0);
+    }
+}
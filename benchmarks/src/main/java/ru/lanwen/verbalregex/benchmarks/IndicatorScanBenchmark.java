@@ -0,0 +1,112 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Scanning log lines for any of {@code size} indicator strings:
+ * {@link VerbalExpression#test(String)} and {@link VerbalExpression#getTextGroups(String, int)},
+ * served by Aho-Corasick automaton, against {@link Pattern} compiled from the same expression source.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndicatorScanBenchmark {
+
+    @Param({"100", "20000"})
+    public int size;
+
+    private VerbalExpression indicators;
+    private Pattern regex;
+    private String[] lines;
+
+    @Setup
+    public void build() {
+        Random random = new Random(42);
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = word(random, 8, 16) + "-" + word(random, 4, 8);
+        }
+        indicators = regex().oneOf(values).build();
+        regex = Pattern.compile(indicators.toString(), Pattern.MULTILINE);
+
+        lines = new String[100];
+        for (int i = 0; i < lines.length; i++) {
+            StringBuilder line = new StringBuilder("2024-01-01T00:00:00Z host-").append(i).append(" GET /");
+            while (line.length() < 200) {
+                line.append(word(random, 2, 9)).append(i % 10 == 0 && line.length() > 100 ? " " + values[i] : "/");
+            }
+            lines[i] = line.toString();
+        }
+
+        for (String line : lines) {
+            if (indicators.test(line) != regex.matcher(line).find()) {
+                throw new IllegalStateException("Engines disagree on " + line);
+            }
+        }
+    }
+
+    @Benchmark
+    public void literalsTest(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(indicators.test(line));
+        }
+    }
+
+    @Benchmark
+    public void regexTest(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(regex.matcher(line).find());
+        }
+    }
+
+    @Benchmark
+    public void literalsGetTextGroups(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(indicators.getTextGroups(line, 0));
+        }
+    }
+
+    @Benchmark
+    public void regexGetTextGroups(Blackhole blackhole) {
+        for (String line : lines) {
+            List<String> found = new ArrayList<>();
+            Matcher matcher = regex.matcher(line);
+            while (matcher.find()) {
+                found.add(matcher.group());
+            }
+            blackhole.consume(found);
+        }
+    }
+
+    private static String word(Random random, int minLength, int maxLength) {
+        char[] chars = new char[minLength + random.nextInt(maxLength - minLength + 1)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,53 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.concurrent.TimeUnit;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Loading of 50k rules at startup, when only every 100th of them is used, with eager and lazy compilation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LazyBuildBenchmark {
+
+    private static final int RULES = 50000;
+
+    @Benchmark
+    public void eager(Blackhole blackhole) {
+        load(blackhole, false);
+    }
+
+    @Benchmark
+    public void lazy(Blackhole blackhole) {
+        load(blackhole, true);
+    }
+
+    private static void load(Blackhole blackhole, boolean lazy) {
+        VerbalExpression[] rules = new VerbalExpression[RULES];
+        for (int i = 0; i < RULES; i++) {
+            rules[i] = regex().startOfLine().then("/api/v").digit().then("/service-" + i)
+                    .maybe("/").anythingBut("?#").then("?").capture("query").anything().endCapture()
+                    .endOfLine().lazy(lazy).build();
+        }
+        for (int i = 0; i < RULES; i += 100) {
+            blackhole.consume(rules[i].test("/api/v1/service-" + i + "/users?id=1"));
+        }
+    }
+}
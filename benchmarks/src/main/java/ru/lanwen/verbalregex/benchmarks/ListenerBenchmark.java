@@ -0,0 +1,55 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.MatchMetrics;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.concurrent.TimeUnit;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Cost of the {@link ru.lanwen.verbalregex.MatchListener}: {@link VerbalExpression#test(String)} of the short url
+ * without the listener and with {@link MatchMetrics}, that reads the clock twice and updates its counters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListenerBenchmark {
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private VerbalExpression url;
+
+    @Setup
+    public void build() {
+        url = regex().startOfLine().then("http").maybe("s").then("://").maybe("www.")
+                .anythingBut(" ").endOfLine().build();
+        VerbalExpression.setListener(metrics ? new MatchMetrics() : null);
+    }
+
+    @TearDown
+    public void removeListener() {
+        VerbalExpression.setListener(null);
+    }
+
+    @Benchmark
+    public boolean test() {
+        return url.test("https://www.google.com");
+    }
+}
@@ -0,0 +1,101 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.concurrent.TimeUnit;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * {@link VerbalExpression#test(String)} and {@link VerbalExpression#testExact(String)} of the url, email
+ * and log line rules of {@code RealWorldUnitTest} on the text, that matches, and on the near miss,
+ * that differs only in the last char, so the whole text is read before it is rejected.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchBenchmark {
+
+    static final String LOG_LINE =
+            "3\t4\t1\thttp://localhost:20001\t1\t63528800\t0\t63528800\t1000000000\t0\t63528800\tSTR1";
+    private static final String LOG_LINE_MISS = LOG_LINE.replace("STR1", "STR3");
+
+    private VerbalExpression url;
+    private VerbalExpression email;
+    private VerbalExpression logLine;
+
+    @Setup
+    public void build() {
+        url = regex().startOfLine().then("http").maybe("s").then("://").maybe("www.")
+                .anythingBut(" ").endOfLine().build();
+        email = regex().startOfLine().capture().word().maybe(".").word().endCapture()
+                .then("@").capture().word().then(".").oneOf("com", "org", "net", "ru").endCapture()
+                .endOfLine().build();
+        logLine = logLine().build();
+
+        if (!url.test("https://www.google.com") || url.test("https://www.google.com ")
+                || !email.testExact("john.smith@example.com") || email.testExact("john.smith@example.co")
+                || !logLine.testExact(LOG_LINE) || logLine.testExact(LOG_LINE_MISS)) {
+            throw new IllegalStateException("Rules match the wrong text");
+        }
+    }
+
+    static VerbalExpression.Builder logLine() {
+        return regex()
+                .capt().digit().oneOrMore().endCapture().tab()
+                .capt().digit().oneOrMore().endCapture().tab()
+                .capt().range("0", "1").count(1).endCapture().tab()
+                .capt().find("http://localhost:20").digit().count(3).endCapture().tab()
+                .capt().range("0", "1").count(1).endCapture().tab()
+                .capt().digit().oneOrMore().endCapture().tab()
+                .capt().range("0", "1").count(1).endCapture().tab()
+                .capt().digit().oneOrMore().endCapture().tab()
+                .capt().digit().oneOrMore().endCapture().tab()
+                .capt().range("0", "1").count(1).endCapture().tab()
+                .capt().digit().oneOrMore().endCapture().tab()
+                .capt().find("STR").range("0", "2").count(1).endCapture();
+    }
+
+    @Benchmark
+    public boolean urlHit() {
+        return url.test("https://www.google.com");
+    }
+
+    @Benchmark
+    public boolean urlMiss() {
+        return url.test("https://www.google.com ");
+    }
+
+    @Benchmark
+    public boolean emailHit() {
+        return email.testExact("john.smith@example.com");
+    }
+
+    @Benchmark
+    public boolean emailMiss() {
+        return email.testExact("john.smith@example.co");
+    }
+
+    @Benchmark
+    public boolean logLineHit() {
+        return logLine.testExact(LOG_LINE);
+    }
+
+    @Benchmark
+    public boolean logLineMiss() {
+        return logLine.testExact(LOG_LINE_MISS);
+    }
+}
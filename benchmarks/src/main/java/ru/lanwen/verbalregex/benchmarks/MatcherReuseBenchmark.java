@@ -0,0 +1,64 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.VerbalExpression;
+import ru.lanwen.verbalregex.VerbalMatcher;
+
+import java.util.concurrent.TimeUnit;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * {@link VerbalExpression#test(String)} allocating the matcher for each call, against reused matchers.
+ * Allocation rate is the point, so run it with the gc profiler:
+ * <pre>
+ * java -jar target/benchmarks.jar MatcherReuseBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatcherReuseBenchmark {
+
+    private static final String LINE = "2024-01-01T00:00:00Z worker-7 key=value user=alice status=200";
+
+    private VerbalExpression allocating;
+    private VerbalExpression reusing;
+    private VerbalMatcher matcher;
+
+    @Setup
+    public void build() {
+        VerbalExpression.Builder builder = regex().capture().word().endCapture().then("=")
+                .capture().digit().oneOrMore().endCapture();
+        allocating = regex(builder).build();
+        reusing = regex(builder).reuseMatchers().build();
+        matcher = allocating.matcher();
+    }
+
+    @Benchmark
+    public boolean newMatcher() {
+        return allocating.test(LINE);
+    }
+
+    @Benchmark
+    public boolean threadLocalMatcher() {
+        return reusing.test(LINE);
+    }
+
+    @Benchmark
+    public boolean handle() {
+        return matcher.test(LINE);
+    }
+}
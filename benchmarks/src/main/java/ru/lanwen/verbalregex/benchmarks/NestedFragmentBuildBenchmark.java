@@ -0,0 +1,92 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.concurrent.TimeUnit;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Cost of {@link VerbalExpression.Builder#build()} for rules composed of shared fragments
+ * (ip, timestamp, host) nested {@code depth} levels deep.
+ * <p>
+ * {@code composeAndBuild} uses {@link VerbalExpression.Builder#add(VerbalExpression.Builder)},
+ * {@code composeCompilingEachFragment} emulates the old behaviour, where every fragment
+ * was compiled to a {@link java.util.regex.Pattern} just to get its source back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NestedFragmentBuildBenchmark {
+
+    @Param({"1", "4", "8"})
+    public int depth;
+
+    @Benchmark
+    public VerbalExpression composeAndBuild() {
+        return rule(depth, false).build();
+    }
+
+    @Benchmark
+    public VerbalExpression composeCompilingEachFragment() {
+        return rule(depth, true).build();
+    }
+
+    private static VerbalExpression.Builder rule(int depth, boolean compileFragments) {
+        VerbalExpression.Builder current = regex().add(ip()).then(" - ").add(timestamp());
+        for (int level = 0; level < depth; level++) {
+            current = compose(regex().add(host()).then(" "), current, compileFragments)
+                    .then(" ")
+                    .add(ip());
+        }
+        return current;
+    }
+
+    private static VerbalExpression.Builder compose(VerbalExpression.Builder parent,
+                                                    VerbalExpression.Builder fragment,
+                                                    boolean compileFragment) {
+        if (compileFragment) {
+            return parent.group().add(fragment.build().toString()).endGr();
+        }
+        return parent.add(fragment);
+    }
+
+    private static VerbalExpression.Builder ip() {
+        VerbalExpression.Builder octet = regex().digit().count(1, 3);
+        return regex().add(octet).then(".").add(octet).then(".").add(octet).then(".").add(octet);
+    }
+
+    private static VerbalExpression.Builder timestamp() {
+        return regex().then("[")
+                .digit().count(2).then("/").word().then("/").digit().count(4)
+                .then(":").digit().count(2).then(":").digit().count(2).then(":").digit().count(2)
+                .then("]");
+    }
+
+    private static VerbalExpression.Builder host() {
+        return regex().capture().wordChar().oneOrMore().then(".").word().endCapture();
+    }
+
+    @Setup
+    public void checkRulesAreEqual() {
+        String composed = rule(depth, false).build().toString();
+        String compiled = rule(depth, true).build().toString();
+        if (!composed.equals(compiled)) {
+            throw new IllegalStateException("Composition changed the rule: " + composed + " != " + compiled);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Searching for one of {@code size} keywords (like product SKUs) in a line of text:
+ * {@link VerbalExpression.Builder#oneOf(String...)}, factored to a trie,
+ * against the same keywords compiled as a flat alternation, and the cost of building the trie itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OneOfBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    private String[] keywords;
+    private VerbalExpression trie;
+    private Pattern flat;
+    private String miss;
+    private String hit;
+
+    @Setup
+    public void build() {
+        Random random = new Random(42);
+        keywords = new String[size];
+        StringBuilder flatSource = new StringBuilder("(?:");
+        for (int i = 0; i < size; i++) {
+            keywords[i] = "sku-" + word(random, 6, 12);
+            flatSource.append(i > 0 ? "|" : "").append("(?:").append(keywords[i]).append(')');
+        }
+        trie = regex().oneOf(keywords).build();
+        flat = Pattern.compile(flatSource.append(')').toString(), Pattern.MULTILINE);
+
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 1024) {
+            text.append(word(random, 3, 10)).append(' ');
+        }
+        miss = text.toString();
+        hit = miss + keywords[size / 2];
+
+        if (trie.test(miss) || !trie.test(hit) || flat.matcher(miss).find() || !flat.matcher(hit).find()) {
+            throw new IllegalStateException("Keywords are found in the wrong text");
+        }
+    }
+
+    @Benchmark
+    public VerbalExpression trieBuild() {
+        return regex().oneOf(keywords).build();
+    }
+
+    @Benchmark
+    public boolean trieMiss() {
+        return trie.test(miss);
+    }
+
+    @Benchmark
+    public boolean flatMiss() {
+        return flat.matcher(miss).find();
+    }
+
+    @Benchmark
+    public boolean trieHit() {
+        return trie.test(hit);
+    }
+
+    @Benchmark
+    public boolean flatHit() {
+        return flat.matcher(hit).find();
+    }
+
+    private static String word(Random random, int minLength, int maxLength) {
+        char[] chars = new char[minLength + random.nextInt(maxLength - minLength + 1)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.ParallelSearch;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Ids of the rows of 128MB CSV export: {@link ParallelSearch#getTextGroups(CharSequence, int)} on the pool
+ * of 1 to 32 threads, against {@link VerbalExpression#getTextGroups(CharSequence, int)} on the calling thread.
+ * Scaling is limited by the cores of the machine, run with {@code -p threads=1,2,4} to match them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ParallelBenchmark {
+
+    private static final int SIZE = 128 << 20;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    private int threads;
+
+    private VerbalExpression id;
+    private ForkJoinPool pool;
+    private ParallelSearch search;
+    private String text;
+
+    @Setup
+    public void build() {
+        id = regex().startOfLine().capture().digit().oneOrMore().endCapture().then(",")
+                .capture().word().oneOrMore().endCapture().then(",").build();
+        pool = new ForkJoinPool(threads);
+        search = id.parallel(pool);
+
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder(SIZE);
+        for (int row = 0; builder.length() < SIZE; row++) {
+            builder.append(row).append(",user").append(random.nextInt(100000)).append(',')
+                    .append(random.nextInt(1000)).append('.').append(random.nextInt(100)).append(",\"")
+                    .append(random.nextBoolean() ? "paid" : "refunded").append("\"\n");
+        }
+        text = builder.toString();
+    }
+
+    @TearDown
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<String> parallel() {
+        return search.getTextGroups(text, 2);
+    }
+
+    @Benchmark
+    public List<String> sequential() {
+        return id.getTextGroups(text, 2);
+    }
+}
@@ -0,0 +1,80 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.concurrent.TimeUnit;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Failing inputs with and without {@link VerbalExpression.Builder#atomicGroup()} and
+ * {@link VerbalExpression.Builder#oneOrMorePossessive()}: the token of N chars before " took ?ms", that is not
+ * a duration, and N word chars before "!@", that is not an email.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PossessiveBenchmark {
+
+    @Param({"20", "1000"})
+    private int length;
+
+    private VerbalExpression token;
+    private VerbalExpression atomicToken;
+    private VerbalExpression email;
+    private VerbalExpression possessiveEmail;
+    private String duration;
+    private String address;
+
+    @Setup
+    public void build() {
+        token = regex().anythingBut(" ").then(" took ").digit().oneOrMore().then("ms").build();
+        atomicToken = regex().atomicGroup().anythingBut(" ").endAtomic()
+                .then(" took ").digit().oneOrMore().then("ms").build();
+        email = regex().startOfLine().capture().word().maybe(".").endCapture().oneOrMore().then("@").build();
+        possessiveEmail = regex().startOfLine().capture().word().maybe(".").endCapture().oneOrMorePossessive()
+                .then("@").build();
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + i % 26));
+        }
+        duration = text + " took ?ms";
+        address = text + "!@";
+    }
+
+    @Benchmark
+    public boolean token() {
+        return token.test(duration);
+    }
+
+    @Benchmark
+    public boolean atomicToken() {
+        return atomicToken.test(duration);
+    }
+
+    @Benchmark
+    public boolean email() {
+        // 2^N ways to split the name into words
+        return length <= 20 && email.test(address);
+    }
+
+    @Benchmark
+    public boolean possessiveEmail() {
+        return possessiveEmail.test(address);
+    }
+}
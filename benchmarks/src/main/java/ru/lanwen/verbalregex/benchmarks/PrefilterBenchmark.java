@@ -0,0 +1,97 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * {@link VerbalExpression#test(String)} with the required literal prefilter against plain {@link Pattern}
+ * of the same source, on log lines where only every 20th contains the url.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrefilterBenchmark {
+
+    private VerbalExpression url;
+    private Pattern urlPattern;
+    private VerbalExpression error;
+    private Pattern errorPattern;
+    private String[] lines;
+
+    @Setup
+    public void build() {
+        url = regex().find("http").maybe("s").then("://").maybe("www.").word().then(".")
+                .anythingBut(" /").build();
+        urlPattern = Pattern.compile(url.toString(), Pattern.MULTILINE);
+        error = regex().word().then(" failed with error ").digit().oneOrMore().build();
+        errorPattern = Pattern.compile(error.toString(), Pattern.MULTILINE);
+
+        Random random = new Random(42);
+        lines = new String[200];
+        for (int i = 0; i < lines.length; i++) {
+            StringBuilder line = new StringBuilder("2024-01-01T00:00:00Z worker-").append(i).append(' ');
+            while (line.length() < 160) {
+                line.append(word(random)).append(' ');
+            }
+            if (i % 20 == 0) {
+                line.append("https://www.example.com/path job failed with error 42");
+            }
+            lines[i] = line.toString();
+        }
+    }
+
+    @Benchmark
+    public void prefixPrefiltered(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(url.test(line));
+        }
+    }
+
+    @Benchmark
+    public void prefixRegex(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(urlPattern.matcher(line).find());
+        }
+    }
+
+    @Benchmark
+    public void innerLiteralPrefiltered(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(error.test(line));
+        }
+    }
+
+    @Benchmark
+    public void innerLiteralRegex(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(errorPattern.matcher(line).find());
+        }
+    }
+
+    private static String word(Random random) {
+        char[] chars = new char[2 + random.nextInt(8)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) ('a' + random.nextInt(26));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.lanwen.verbalregex.VerbalExpression;
+import ru.lanwen.verbalregex.VerbalMatcher;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Lines of the 1MB {@link StringBuilder}, matched in place with region methods,
+ * against copying each of them with {@link StringBuilder#substring(int, int)} first.
+ * Both reuse {@link VerbalMatcher}, so with {@code -prof gc} the difference in allocation is only the copies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegionBenchmark {
+
+    private VerbalMatcher error;
+    private StringBuilder buffer;
+    private int[] lineEnds;
+
+    @Setup
+    public void build() {
+        error = regex().word().then(" failed with error ").digit().oneOrMore().build().matcher();
+
+        Random random = new Random(42);
+        buffer = new StringBuilder();
+        lineEnds = new int[(1 << 20) / 100];
+        for (int i = 0; i < lineEnds.length; i++) {
+            buffer.append("2024-01-01T00:00:00Z worker-").append(i);
+            while (buffer.length() % 100 < 90) {
+                buffer.append(' ').append((char) ('a' + random.nextInt(26)));
+            }
+            if (i % 20 == 0) {
+                buffer.append(" job failed with error 42");
+            }
+            lineEnds[i] = buffer.length();
+            buffer.append('\n');
+        }
+    }
+
+    @Benchmark
+    public void region(Blackhole blackhole) {
+        int start = 0;
+        for (int end : lineEnds) {
+            blackhole.consume(error.test(buffer, start, end));
+            start = end + 1;
+        }
+    }
+
+    @Benchmark
+    public void substring(Blackhole blackhole) {
+        int start = 0;
+        for (int end : lineEnds) {
+            blackhole.consume(error.test(buffer.substring(start, end)));
+            start = end + 1;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.concurrent.TimeUnit;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Match throughput of the same rules built with and without
+ * {@link VerbalExpression.Builder#simplify()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimplifyMatchBenchmark {
+
+    private static final String[] INPUTS = {
+            "https://www.google.com/search?q=verbal",
+            "ftp://files.example.org/pub",
+            "127.0.0.1 - [10/Oct/2000:13:55:36] GET /index.html",
+            "user@example.com wrote at 10:15",
+            "no match here, just some plain text without anything interesting",
+    };
+
+    @Param({"false", "true"})
+    public boolean simplify;
+
+    private VerbalExpression url;
+    private VerbalExpression logLine;
+    private VerbalExpression alternatives;
+
+    @Setup
+    public void build() {
+        url = regex().startOfLine().then("http").maybe("s").then("://").maybe("www.")
+                .anythingBut(" ").endOfLine()
+                .simplify(simplify).build();
+        logLine = regex()
+                .digit().count(1, 3).then(".").digit().count(1, 3).then(".")
+                .digit().count(1, 3).then(".").digit().count(1, 3)
+                .then(" - [").digit().count(2).then("/").word().then("/").digit().count(4)
+                .then(":").digit().count(2).then(":").digit().count(2).then(":").digit().count(2).then("]")
+                .simplify(simplify).build();
+        alternatives = regex().then("http").or("ftp").or("mailto").or("file").then("://")
+                .simplify(simplify).build();
+    }
+
+    @Benchmark
+    public void url(Blackhole blackhole) {
+        for (String input : INPUTS) {
+            blackhole.consume(url.test(input));
+        }
+    }
+
+    @Benchmark
+    public void logLine(Blackhole blackhole) {
+        for (String input : INPUTS) {
+            blackhole.consume(logLine.test(input));
+        }
+    }
+
+    @Benchmark
+    public void alternatives(Blackhole blackhole) {
+        for (String input : INPUTS) {
+            blackhole.consume(alternatives.test(input));
+        }
+    }
+}
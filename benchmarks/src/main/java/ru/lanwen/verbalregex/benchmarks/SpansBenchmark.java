@@ -0,0 +1,63 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.MatchSpans;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Positions of every "key=value" pair in 100MB of text: {@link VerbalExpression#spans(CharSequence, MatchSpans, int...)}
+ * into the reused buffer, against substrings of {@link VerbalExpression#getTextGroups(String, int)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SpansBenchmark {
+
+    private static final int SIZE = 100 << 20;
+
+    private VerbalExpression pair;
+    private String text;
+    private MatchSpans spans;
+
+    @Setup
+    public void build() {
+        pair = regex().capture().word().endCapture().then("=").capture().digit().oneOrMore().endCapture().build();
+        spans = new MatchSpans();
+
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder(SIZE);
+        while (builder.length() < SIZE) {
+            builder.append("key").append(random.nextInt(100)).append('=').append(random.nextInt(100000))
+                    .append(random.nextInt(4) == 0 ? '\n' : ' ');
+        }
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public int spans() {
+        return pair.spans(text, spans, 1, 2);
+    }
+
+    @Benchmark
+    public List<String> textGroups() {
+        return pair.getTextGroups(text, 0);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.lanwen.verbalregex.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.lanwen.verbalregex.StreamScanner;
+import ru.lanwen.verbalregex.VerbalExpression;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.MatchResult;
+
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Count of "key=value" pairs in 64MB stream of chars: {@link StreamScanner} with the 64K window,
+ * against reading the whole stream into the string and {@link VerbalExpression#getTextGroups(String, int)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class StreamBenchmark {
+
+    private static final int SIZE = 64 << 20;
+
+    private VerbalExpression pair;
+    private StreamScanner scanner;
+    private String text;
+
+    @Setup
+    public void build() {
+        pair = regex().capture().word().endCapture().then("=").capture().digit().oneOrMore().endCapture().build();
+        scanner = pair.streamScanner();
+
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder(SIZE);
+        while (builder.length() < SIZE) {
+            builder.append("key").append(random.nextInt(100)).append('=').append(random.nextInt(100000))
+                    .append(random.nextInt(4) == 0 ? '\n' : ' ');
+        }
+        text = builder.toString();
+    }
+
+    @Benchmark
+    public long stream() throws IOException {
+        return scanner.scan(new StringReader(text), new StreamScanner.Handler() {
+            @Override
+            public void onMatch(MatchResult match, long offset) {
+            }
+        });
+    }
+
+    @Benchmark
+    public int readAll() throws IOException {
+        Reader reader = new StringReader(text);
+        StringBuilder all = new StringBuilder();
+        char[] buffer = new char[64 << 10];
+        for (int read = reader.read(buffer); read >= 0; read = reader.read(buffer)) {
+            all.append(buffer, 0, read);
+        }
+        return pair.getTextGroups(all.toString(), 0).size();
+    }
+}
@@ -0,0 +1,424 @@
+package ru.lanwen.verbalregex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import ru.lanwen.verbalregex.Node.Alternation;
+import ru.lanwen.verbalregex.Node.Group;
+import ru.lanwen.verbalregex.Node.Literal;
+import ru.lanwen.verbalregex.Node.OneOf;
+import ru.lanwen.verbalregex.Node.Quantifier;
+import ru.lanwen.verbalregex.Node.Sequence;
+
+/**
+ * Aho-Corasick automaton, used by {@link VerbalExpression} instead of {@link java.util.regex.Matcher}
+ * when the expression is only a set of literal strings: {@link VerbalExpression.Builder#oneOf(String...)}
+ * of plain values, {@link VerbalExpression.Builder#then(String)} and {@link VerbalExpression.Builder#or(String)}
+ * chains, optional parts of them. Scans the text once, no matter how many strings are there.
+ * <p>
+ * Finds the same as the regex: the leftmost match, and if there are several of them at the same position -
+ * the first one in order of alternatives. Matched string is final only when no earlier one can end further,
+ * so the automaton reads at most (longest string - 1) chars ahead and then continues right after the match.
+ *
+ * @since 1.9
+ */
+final class AhoCorasick {
+
+    private static final int MAX_KEYWORDS = 1 << 20;
+    private static final int UNSUPPORTED_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.COMMENTS;
+    private static final int ROOT = 0;
+    private static final int ASCII = 128;
+    /**
+     * States with the full table of ASCII transitions: 2MB at most
+     */
+    private static final int MAX_DENSE_STATES = 1 << 12;
+
+    /**
+     * Distinct strings in order of priority
+     */
+    private final String[] keywords;
+    private final Set<String> exact;
+    private final int maxLength;
+
+    /**
+     * Edges of the state are at [firstEdge[state], firstEdge[state + 1]) of sorted edgeChars and of edgeTargets.
+     * States are numbered breadth-first, so the most visited ones lie close to each other
+     */
+    private final int[] firstEdge;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    /**
+     * Transitions of the first (closest to root) states by ASCII chars, fail links already applied:
+     * next state is dense[state * 128 + ch]
+     */
+    private final int[] dense;
+    private final int denseStates;
+    private final int[] fail;
+    /**
+     * Index of the longest keyword, that ends in the state, or -1.
+     * Shorter ones start later, so they never win over it
+     */
+    private final int[] longest;
+    /**
+     * Index of the keyword, that is the path to the state, or -1
+     */
+    private final int[] own;
+    /**
+     * The nearest state on the fail links with its own keyword, or {@link #ROOT}.
+     * All keywords, that end at the char, are found by these links from the state
+     */
+    private final int[] output;
+
+    private AhoCorasick(final List<String> keywords) {
+        this.keywords = keywords.toArray(new String[keywords.size()]);
+        this.exact = new HashSet<>(keywords);
+
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> terminal = new ArrayList<>();
+        trie.add(new TreeMap<Character, Integer>());
+        terminal.add(-1);
+
+        int max = 0;
+        int edges = 0;
+        for (int k = 0; k < this.keywords.length; k++) {
+            String keyword = this.keywords[k];
+            max = Math.max(max, keyword.length());
+            int node = ROOT;
+            for (int i = 0; i < keyword.length(); i++) {
+                Integer next = trie.get(node).get(keyword.charAt(i));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<Character, Integer>());
+                    terminal.add(-1);
+                    trie.get(node).put(keyword.charAt(i), next);
+                    edges++;
+                }
+                node = next;
+            }
+            terminal.set(node, k);
+        }
+        this.maxLength = max;
+
+        int states = trie.size();
+        int[] order = new int[states];
+        int[] numbers = new int[states];
+        int count = 1;
+        for (int state = 0; state < count; state++) {
+            for (int child : trie.get(order[state]).values()) {
+                numbers[child] = count;
+                order[count++] = child;
+            }
+        }
+
+        this.firstEdge = new int[states + 1];
+        this.edgeChars = new char[edges];
+        this.edgeTargets = new int[edges];
+        this.longest = new int[states];
+        this.own = new int[states];
+        int edge = 0;
+        for (int state = 0; state < states; state++) {
+            firstEdge[state] = edge;
+            longest[state] = terminal.get(order[state]);
+            own[state] = longest[state];
+            for (Map.Entry<Character, Integer> out : trie.get(order[state]).entrySet()) {
+                edgeChars[edge] = out.getKey();
+                edgeTargets[edge] = numbers[out.getValue()];
+                edge++;
+            }
+        }
+        firstEdge[states] = edge;
+
+        // parents are numbered before children, shorter suffixes - before longer ones
+        this.fail = new int[states];
+        this.output = new int[states];
+        for (int state = 0; state < states; state++) {
+            for (int i = firstEdge[state]; i < firstEdge[state + 1]; i++) {
+                int target = edgeTargets[i];
+                if (state != ROOT) {
+                    int back = fail[state];
+                    while (back != ROOT && edge(back, edgeChars[i]) < 0) {
+                        back = fail[back];
+                    }
+                    int next = edge(back, edgeChars[i]);
+                    fail[target] = next < 0 ? ROOT : next;
+                }
+                if (longest[target] < 0) {
+                    longest[target] = longest[fail[target]];
+                }
+                output[target] = own[fail[target]] >= 0 ? fail[target] : output[fail[target]];
+            }
+        }
+
+        // fail link leads to the state closer to root, so its transitions are already known
+        this.denseStates = Math.min(states, MAX_DENSE_STATES);
+        this.dense = new int[denseStates * ASCII];
+        for (int state = 0; state < denseStates; state++) {
+            for (char ch = 0; ch < ASCII; ch++) {
+                int next = edge(state, ch);
+                if (next < 0) {
+                    next = state == ROOT ? ROOT : dense[fail[state] * ASCII + ch];
+                }
+                dense[state * ASCII + ch] = next;
+            }
+        }
+    }
+
+    /**
+     * @param root      - tree of the expression
+     * @param modifiers - flags the pattern is compiled with
+     * @return automaton matching the same as the tree, or null if it is not only a set of non-empty strings
+     */
+    static AhoCorasick of(final Node root, final int modifiers) {
+        if ((modifiers & UNSUPPORTED_FLAGS) != 0) {
+            return null;
+        }
+        List<String> keywords = literals(root);
+        if (keywords == null || keywords.isEmpty()) {
+            return null;
+        }
+        // empty string matches at every position, not a job for the automaton
+        if (keywords.contains("")) {
+            return null;
+        }
+        return new AhoCorasick(keywords);
+    }
+
+    /**
+     * @param keywords - distinct non-empty strings
+     * @return automaton, that finds any of them
+     */
+    static AhoCorasick of(final List<String> keywords) {
+        return new AhoCorasick(keywords);
+    }
+
+    /**
+     * @return every string matched by the node in order, the regex tries them, without duplicates,
+     * or null if node matches something else
+     */
+    private static List<String> literals(final Node node) {
+        if (node instanceof Literal) {
+            String text = ((Literal) node).text;
+            return KeywordTrie.isWellFormed(text) ? single(text) : null;
+        }
+        if (node instanceof Group) {
+            Group group = (Group) node;
+            return group.kind == Group.Kind.NON_CAPTURING ? literals(group.body) : null;
+        }
+        if (node instanceof OneOf) {
+            List<String> values = new ArrayList<>();
+            for (String value : ((OneOf) node).values) {
+                if (value == null || !KeywordTrie.isPlain(value)) {
+                    return null;
+                }
+                values.add(value);
+            }
+            return distinct(values);
+        }
+        if (node instanceof Quantifier) {
+            Quantifier quantifier = (Quantifier) node;
+            if (quantifier.possessive || quantifier.min != 0 || quantifier.max != 1) {
+                return null;
+            }
+            // greedy - with the optional part first
+            List<String> optional = literals(quantifier.child);
+            if (optional == null) {
+                return null;
+            }
+            optional = new ArrayList<>(optional);
+            optional.add("");
+            return distinct(optional);
+        }
+        if (node instanceof Alternation) {
+            List<String> all = new ArrayList<>();
+            for (Node branch : ((Alternation) node).branches) {
+                List<String> strings = literals(branch);
+                if (strings == null || all.size() + strings.size() > MAX_KEYWORDS) {
+                    return null;
+                }
+                all.addAll(strings);
+            }
+            return distinct(all);
+        }
+        if (node instanceof Sequence) {
+            // regex tries the next item for each choice of the previous one
+            List<String> product = single("");
+            for (Node item : ((Sequence) node).items) {
+                List<String> strings = literals(item);
+                if (strings == null || (long) product.size() * strings.size() > MAX_KEYWORDS) {
+                    return null;
+                }
+                List<String> next = new ArrayList<>(product.size() * strings.size());
+                for (String prefix : product) {
+                    for (String suffix : strings) {
+                        next.add(prefix + suffix);
+                    }
+                }
+                product = distinct(next);
+            }
+            return product;
+        }
+        return null;
+    }
+
+    private static List<String> single(final String value) {
+        List<String> single = new ArrayList<>(1);
+        single.add(value);
+        return single;
+    }
+
+    private static List<String> distinct(final List<String> values) {
+        return new ArrayList<>(new LinkedHashSet<>(values));
+    }
+
+    /**
+     * @return strings the automaton finds, in order of priority
+     */
+    List<String> keywords() {
+        return Arrays.asList(keywords.clone());
+    }
+
+    /**
+     * Finds every keyword, that occurs in the region, not only the leftmost ones
+     *
+     * @param found - to set indexes of the found keywords in
+     */
+    void occurring(final CharSequence text, final int start, final int end, final BitSet found) {
+        int state = ROOT;
+        for (int i = start; i < end; i++) {
+            state = step(state, text.charAt(i));
+            for (int match = own[state] >= 0 ? state : output[state]; match != ROOT; match = output[match]) {
+                found.set(own[match]);
+            }
+        }
+    }
+
+    /**
+     * @return length of the keyword, returned by {@link #next(CharSequence, int, int, int[])}
+     */
+    int length(final int keyword) {
+        return keywords[keyword].length();
+    }
+
+    /**
+     * Same as {@link java.util.regex.Matcher#find()} from the start of the region
+     *
+     * @param start - first char of the region
+     * @param end   - index after the last char of the region
+     */
+    boolean find(final CharSequence text, final int start, final int end) {
+        int state = ROOT;
+        for (int i = start; i < end; i++) {
+            state = step(state, text.charAt(i));
+            if (longest[state] >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Same as {@link java.util.regex.Matcher#matches()} of the region
+     */
+    boolean matches(final CharSequence text, final int start, final int end) {
+        // longer region can't be a keyword, so it is not copied
+        return end - start <= maxLength && exact.contains(text.subSequence(start, end).toString());
+    }
+
+    /**
+     * Same as group 0 of each {@link java.util.regex.Matcher#find()} in the region
+     */
+    List<String> findAll(final CharSequence text, final int start, final int end) {
+        List<String> found = new ArrayList<>();
+        int[] matchStart = new int[1];
+        int from = start;
+        int keyword;
+        while ((keyword = next(text, from, end, matchStart)) >= 0) {
+            found.add(keywords[keyword]);
+            from = matchStart[0] + keywords[keyword].length();
+        }
+        return found;
+    }
+
+    /**
+     * Same as {@link #findAll(CharSequence, int, int)}, but only offsets of the matches are added
+     */
+    void spans(final CharSequence text, final int start, final int end, final MatchSpans spans) {
+        int[] matchStart = new int[1];
+        int from = start;
+        int keyword;
+        while ((keyword = next(text, from, end, matchStart)) >= 0) {
+            from = matchStart[0] + keywords[keyword].length();
+            spans.add(matchStart[0], from);
+        }
+    }
+
+    /**
+     * Same as {@link java.util.regex.Matcher#find()}, continued from the end of the previous match
+     *
+     * @param start - to write start of the match to
+     * @return index of the matched keyword, or -1 if nothing found between {@code from} and {@code end}
+     */
+    int next(final CharSequence text, final int from, final int end, final int[] start) {
+        int state = ROOT;
+        int best = -1;
+        int bestStart = 0;
+        for (int i = from; i < end; i++) {
+            state = step(state, text.charAt(i));
+            int found = longest[state];
+            if (found >= 0) {
+                int foundStart = i + 1 - keywords[found].length();
+                if (best < 0 || foundStart < bestStart || foundStart == bestStart && found < best) {
+                    best = found;
+                    bestStart = foundStart;
+                }
+            }
+            if (best >= 0 && i >= bestStart + maxLength - 1) {
+                break;
+            }
+        }
+        start[0] = bestStart;
+        return best;
+    }
+
+    private int step(final int from, final char ch) {
+        int state = from;
+        while (true) {
+            if (ch < ASCII && state < denseStates) {
+                return dense[state * ASCII + ch];
+            }
+            int next = edge(state, ch);
+            if (next >= 0) {
+                return next;
+            }
+            if (state == ROOT) {
+                return ROOT;
+            }
+            state = fail[state];
+        }
+    }
+
+    private int edge(final int state, final char ch) {
+        int low = firstEdge[state];
+        int high = firstEdge[state + 1] - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            char found = edgeChars[middle];
+            if (found < ch) {
+                low = middle + 1;
+            } else if (found > ch) {
+                high = middle - 1;
+            } else {
+                return edgeTargets[middle];
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,535 @@
+package ru.lanwen.verbalregex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import ru.lanwen.verbalregex.BacktrackingWarning.Kind;
+import ru.lanwen.verbalregex.Node.Alternation;
+import ru.lanwen.verbalregex.Node.Anchor;
+import ru.lanwen.verbalregex.Node.CharClass;
+import ru.lanwen.verbalregex.Node.Group;
+import ru.lanwen.verbalregex.Node.Literal;
+import ru.lanwen.verbalregex.Node.OneOf;
+import ru.lanwen.verbalregex.Node.Quantifier;
+import ru.lanwen.verbalregex.Node.Raw;
+import ru.lanwen.verbalregex.Node.Sequence;
+
+/**
+ * Finds repetitions, that {@link Pattern} backtracks into too much, and makes some of them possessive.
+ * <p>
+ * Warnings are given for:
+ * <ul>
+ * <li>repetition of the body, that has repetitions and nothing else required, that they can't take:
+ * (?:.+)+, (?:\w+\.?)+, but not (?:\w+\s)+</li>
+ * <li>repetitions one after another, maybe with optional nodes between, that may take the same chars:
+ * .*.*, \w+\s*\d+</li>
+ * </ul>
+ * Atomic groups and possessive quantifiers are not backtracked into, so they are not reported.
+ * <p>
+ * Repetition is made possessive: a+ to a++, or put into the atomic group: (?:\w+)+ to (?&gt;(?:\w+)+),
+ * only when it provably matches the same. It must repeat a single char class, maybe through nested
+ * "*" and "+", and chars after it must be out of the class, e.g. \w+@ or \d*$. Then a match may only continue
+ * after all chars of the class in a row, so giving them back never helps.
+ * Nothing is changed in the tree with {@link Raw} nodes - they may refer to groups or repeat the node before.
+ *
+ * @see VerbalExpression.Builder#preventBacktracking(boolean)
+ * @since 1.9
+ */
+final class Backtracking {
+
+    private Backtracking() {
+    }
+
+    /**
+     * @param root      - tree of the expression
+     * @param modifiers - flags the pattern is compiled with
+     * @return repetitions, that may take too much time to fail, in order of the source
+     */
+    static List<BacktrackingWarning> warnings(final Node root, final int modifiers) {
+        List<BacktrackingWarning> warnings = new ArrayList<>();
+        collect(root, modifiers, warnings);
+        return warnings;
+    }
+
+    /**
+     * @param root      - tree of the expression
+     * @param modifiers - flags the pattern is compiled with
+     * @return tree, that matches the same, with possessive repetitions where it is safe
+     */
+    static Node preventBacktracking(final Node root, final int modifiers) {
+        return Simplifier.containsRaw(root) ? root : rewrite(root, modifiers, Chars.NONE);
+    }
+
+    /**
+     * @param follow - chars, the text may have after the node, for the whole expression to match
+     */
+    private static Node rewrite(final Node node, final int modifiers, final Chars follow) {
+        if (node instanceof Group) {
+            Group group = (Group) node;
+            return group.withBody(rewrite(group.body, nested(group, modifiers), follow));
+        }
+        if (node instanceof Quantifier) {
+            Quantifier quantifier = (Quantifier) node;
+            if (quantifier.possessive || quantifier.min == quantifier.max) {
+                return quantifier;
+            }
+            Chars repeated = repeated(quantifier, modifiers);
+            if (repeated != null && !repeated.intersects(follow)) {
+                return isSingleChar(quantifier.child) ? quantifier.possessive() : Group.atomic(quantifier);
+            }
+            Chars next = quantifier.max == 1 ? follow : first(quantifier.child, modifiers, follow).union(follow);
+            return quantifier.withChild(rewrite(quantifier.child, modifiers, next));
+        }
+        if (node instanceof Sequence) {
+            Node[] items = ((Sequence) node).items;
+            Node[] rewritten = new Node[items.length];
+            Chars after = follow;
+            for (int i = items.length - 1; i >= 0; i--) {
+                rewritten[i] = rewrite(items[i], modifiers, after);
+                after = first(items[i], modifiers, after);
+            }
+            return Sequence.of(rewritten);
+        }
+        if (node instanceof Alternation) {
+            Node[] branches = ((Alternation) node).branches;
+            Node[] rewritten = new Node[branches.length];
+            for (int i = 0; i < branches.length; i++) {
+                rewritten[i] = rewrite(branches[i], modifiers, follow);
+            }
+            return new Alternation(rewritten);
+        }
+        return node;
+    }
+
+    /**
+     * @return chars of the class, if the quantifier repeats only it, maybe through nested "*" and "+",
+     * so the longest run of them is taken first. Otherwise null
+     */
+    private static Chars repeated(final Quantifier quantifier, final int modifiers) {
+        Node child = quantifier.child;
+        int flags = modifiers;
+        boolean nested = false;
+        while (true) {
+            if (child instanceof Group) {
+                flags = nested((Group) child, flags);
+                child = ((Group) child).body;
+            } else if (child instanceof Quantifier
+                    && ((Quantifier) child).max == Quantifier.UNBOUNDED && ((Quantifier) child).min <= 1) {
+                nested = true;
+                child = ((Quantifier) child).child;
+            } else {
+                break;
+            }
+        }
+        // (?:a+){2,3} takes "aaa" and stops on "aaaa", as the first iteration took all
+        if (nested && (quantifier.max != Quantifier.UNBOUNDED || quantifier.min > 1)) {
+            return null;
+        }
+        return isSingleChar(child) ? chars(child, flags) : null;
+    }
+
+    private static boolean isSingleChar(final Node node) {
+        return node instanceof CharClass
+                || node instanceof Literal && ((Literal) node).text.length() == 1;
+    }
+
+    private static void collect(final Node node, final int modifiers, final List<BacktrackingWarning> warnings) {
+        if (node instanceof Group) {
+            Group group = (Group) node;
+            if (group.kind != Group.Kind.ATOMIC) {
+                collect(group.body, nested(group, modifiers), warnings);
+            }
+        } else if (node instanceof Quantifier) {
+            Quantifier quantifier = (Quantifier) node;
+            if (quantifier.possessive) {
+                return;
+            }
+            if ((quantifier.max == Quantifier.UNBOUNDED || quantifier.max > 1)
+                    && isAmbiguous(quantifier.child, modifiers)) {
+                warnings.add(new BacktrackingWarning(Kind.NESTED_QUANTIFIERS, quantifier.render()));
+            } else {
+                collect(quantifier.child, modifiers, warnings);
+            }
+        } else if (node instanceof Sequence) {
+            Node[] items = ((Sequence) node).items;
+            collectAdjacent(items, modifiers, warnings);
+            for (Node item : items) {
+                collect(item, modifiers, warnings);
+            }
+        } else if (node instanceof Alternation) {
+            for (Node branch : ((Alternation) node).branches) {
+                collect(branch, modifiers, warnings);
+            }
+        }
+    }
+
+    private static void collectAdjacent(final Node[] items, final int modifiers,
+                                        final List<BacktrackingWarning> warnings) {
+        for (int i = 0; i < items.length; i++) {
+            Chars repeated = repetition(items[i], modifiers);
+            for (int j = i + 1; repeated != null && j < items.length; j++) {
+                Chars next = repetition(items[j], modifiers);
+                if (next != null && repeated.intersects(next)) {
+                    StringBuilder fragment = new StringBuilder();
+                    for (int k = i; k <= j; k++) {
+                        items[k].render(fragment);
+                    }
+                    warnings.add(new BacktrackingWarning(Kind.ADJACENT_QUANTIFIERS, fragment.toString()));
+                    break;
+                }
+                if (!isNullable(items[j], modifiers)) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the text, taken by the node, may be split between repetitions inside of it in many ways
+     */
+    private static boolean isAmbiguous(final Node node, final int modifiers) {
+        if (node instanceof Group) {
+            Group group = (Group) node;
+            return group.kind != Group.Kind.ATOMIC && isAmbiguous(group.body, nested(group, modifiers));
+        }
+        if (node instanceof Quantifier) {
+            Quantifier quantifier = (Quantifier) node;
+            return !quantifier.possessive && (quantifier.min != quantifier.max && quantifier.max != 1
+                    || isAmbiguous(quantifier.child, modifiers));
+        }
+        if (node instanceof Alternation) {
+            for (Node branch : ((Alternation) node).branches) {
+                if (isAmbiguous(branch, modifiers)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (!(node instanceof Sequence)) {
+            return false;
+        }
+
+        Node[] items = ((Sequence) node).items;
+        Chars repeated = null;
+        for (Node item : items) {
+            Chars chars = repetition(item, modifiers);
+            if (chars != null) {
+                repeated = repeated == null ? chars : repeated.union(chars);
+            }
+        }
+        if (repeated == null) {
+            return false;
+        }
+        // required node, that repetitions can't take, splits the text between iterations in one way
+        for (Node item : items) {
+            if (repetition(item, modifiers) == null && !isNullable(item, modifiers)
+                    && !chars(item, modifiers).intersects(repeated)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return chars, the node takes, if it is "*", "+" or "{n,}" of something, maybe in the group. Otherwise null
+     */
+    private static Chars repetition(final Node node, final int modifiers) {
+        Node current = node;
+        int flags = modifiers;
+        while (current instanceof Group && ((Group) current).kind != Group.Kind.ATOMIC) {
+            flags = nested((Group) current, flags);
+            current = ((Group) current).body;
+        }
+        if (current instanceof Quantifier) {
+            Quantifier quantifier = (Quantifier) current;
+            if (!quantifier.possessive && quantifier.max == Quantifier.UNBOUNDED) {
+                return chars(quantifier.child, flags);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param follow - chars, that may be the first after the node
+     * @return chars, that may be the first, taken by the node, or the first after it, if the node may take nothing
+     */
+    private static Chars first(final Node node, final int modifiers, final Chars follow) {
+        if (node instanceof Literal) {
+            String text = ((Literal) node).text;
+            return text.isEmpty() ? follow : Chars.of(text.charAt(0), modifiers);
+        }
+        if (node instanceof CharClass) {
+            return Chars.of((CharClass) node, modifiers);
+        }
+        if (node instanceof Anchor) {
+            // "$" holds only before the line break, other anchors depend on the chars before
+            return node == Anchor.END_OF_LINE ? Chars.LINE_TERMINATORS : Chars.ANY;
+        }
+        if (node instanceof Group) {
+            Group group = (Group) node;
+            return first(group.body, nested(group, modifiers), follow);
+        }
+        if (node instanceof Quantifier) {
+            Quantifier quantifier = (Quantifier) node;
+            Chars chars = first(quantifier.child, modifiers, follow);
+            return quantifier.min == 0 ? chars.union(follow) : chars;
+        }
+        if (node instanceof Sequence) {
+            Node[] items = ((Sequence) node).items;
+            Chars chars = follow;
+            for (int i = items.length - 1; i >= 0; i--) {
+                chars = first(items[i], modifiers, chars);
+            }
+            return chars;
+        }
+        if (node instanceof Alternation) {
+            Chars chars = Chars.NONE;
+            for (Node branch : ((Alternation) node).branches) {
+                chars = chars.union(first(branch, modifiers, follow));
+            }
+            return chars;
+        }
+        if (node instanceof OneOf) {
+            if (!isPlain((OneOf) node, modifiers)) {
+                return Chars.ANY;
+            }
+            Chars chars = Chars.NONE;
+            for (String value : ((OneOf) node).values) {
+                chars = chars.union(value.isEmpty() ? follow : Chars.of(value.charAt(0), modifiers));
+            }
+            return chars;
+        }
+        return Chars.ANY;
+    }
+
+    /**
+     * @return all chars, the node may take
+     */
+    private static Chars chars(final Node node, final int modifiers) {
+        if (node instanceof Literal) {
+            return Chars.of(((Literal) node).text, modifiers);
+        }
+        if (node instanceof CharClass) {
+            return Chars.of((CharClass) node, modifiers);
+        }
+        if (node instanceof Anchor) {
+            return Chars.NONE;
+        }
+        if (node instanceof Group) {
+            Group group = (Group) node;
+            return chars(group.body, nested(group, modifiers));
+        }
+        if (node instanceof Quantifier) {
+            return chars(((Quantifier) node).child, modifiers);
+        }
+        if (node instanceof Sequence || node instanceof Alternation) {
+            Node[] children = node instanceof Sequence ? ((Sequence) node).items : ((Alternation) node).branches;
+            Chars chars = Chars.NONE;
+            for (Node child : children) {
+                chars = chars.union(chars(child, modifiers));
+            }
+            return chars;
+        }
+        if (node instanceof OneOf) {
+            if (!isPlain((OneOf) node, modifiers)) {
+                return Chars.ANY;
+            }
+            Chars chars = Chars.NONE;
+            for (String value : ((OneOf) node).values) {
+                chars = chars.union(Chars.of(value, modifiers));
+            }
+            return chars;
+        }
+        return Chars.ANY;
+    }
+
+    private static boolean isNullable(final Node node, final int modifiers) {
+        if (node instanceof Literal) {
+            return ((Literal) node).text.isEmpty();
+        }
+        if (node instanceof CharClass) {
+            return false;
+        }
+        if (node instanceof Group) {
+            return isNullable(((Group) node).body, nested((Group) node, modifiers));
+        }
+        if (node instanceof Quantifier) {
+            return ((Quantifier) node).min == 0 || isNullable(((Quantifier) node).child, modifiers);
+        }
+        if (node instanceof Sequence) {
+            for (Node item : ((Sequence) node).items) {
+                if (!isNullable(item, modifiers)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (node instanceof Alternation) {
+            for (Node branch : ((Alternation) node).branches) {
+                if (isNullable(branch, modifiers)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (node instanceof OneOf) {
+            if (!isPlain((OneOf) node, modifiers)) {
+                return true;
+            }
+            for (String value : ((OneOf) node).values) {
+                if (value.isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Values are not escaped, so with {@link Pattern#COMMENTS} their whitespace is ignored
+     * and "#" starts the comment, e.g. " a" takes "a"
+     *
+     * @return true if every value is matched as is
+     */
+    private static boolean isPlain(final OneOf node, final int modifiers) {
+        if ((modifiers & Pattern.COMMENTS) != 0) {
+            return false;
+        }
+        for (String value : node.values) {
+            if (value == null || !KeywordTrie.isPlain(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int nested(final Group group, final int modifiers) {
+        return (modifiers | group.flagsOn) & ~group.flagsOff;
+    }
+
+    /**
+     * ASCII chars, and whether any of others may be there. Never less than the chars matched
+     */
+    private static final class Chars {
+        private static final int ASCII = 128;
+        private static final Chars NONE = new Chars(new BitSet(), false);
+        private static final Chars ANY = new Chars(range(0, ASCII - 1), true);
+        private static final Chars LINE_TERMINATORS = new Chars(BitSet.valueOf(new long[]{1L << '\n' | 1L << '\r'}),
+                true);
+        private static final BitSet WORD = union(union(range('a', 'z'), range('A', 'Z')), union(range('0', '9'),
+                range('_', '_')));
+        private static final BitSet DIGIT = range('0', '9');
+        private static final BitSet SPACE = union(range('\t', '\r'), range(' ', ' '));
+
+        private final BitSet ascii;
+        private final boolean others;
+
+        private Chars(final BitSet ascii, final boolean others) {
+            this.ascii = ascii;
+            this.others = others;
+        }
+
+        private static Chars of(final String text, final int modifiers) {
+            Chars chars = NONE;
+            for (int i = 0; i < text.length(); i++) {
+                chars = chars.union(of(text.charAt(i), modifiers));
+            }
+            return chars;
+        }
+
+        private static Chars of(final char ch, final int modifiers) {
+            return set(String.valueOf(ch), new String[0], false, modifiers);
+        }
+
+        private static Chars of(final CharClass node, final int modifiers) {
+            boolean unicode = (modifiers & Pattern.UNICODE_CHARACTER_CLASS) != 0;
+            switch (node.predefined) {
+                case CharClass.SET:
+                    return set(node.members, node.ranges, node.negated, modifiers);
+                case 'w':
+                    return new Chars(WORD, unicode);
+                case 'd':
+                    return new Chars(DIGIT, unicode);
+                case 's':
+                    return new Chars(SPACE, unicode);
+                case 'W':
+                    return new Chars(complement(WORD), true);
+                case 'D':
+                    return new Chars(complement(DIGIT), true);
+                case 'S':
+                    return new Chars(complement(SPACE), true);
+                default:
+                    return ANY;
+            }
+        }
+
+        private static Chars set(final String members, final String[] ranges, final boolean negated,
+                                 final int modifiers) {
+            boolean anyCase = (modifiers & Pattern.CASE_INSENSITIVE) != 0;
+            // "k" also matches the Kelvin sign
+            boolean others = anyCase && (modifiers & Pattern.UNICODE_CASE) != 0;
+            BitSet ascii = new BitSet(ASCII);
+            for (int i = 0; i < members.length(); i++) {
+                others |= add(ascii, members.charAt(i), members.charAt(i));
+            }
+            for (int i = 1; i < ranges.length; i += 2) {
+                String from = ranges[i - 1];
+                String to = ranges[i];
+                if (from.length() != 1 || to.length() != 1) {
+                    return ANY;
+                }
+                others |= add(ascii, from.charAt(0), to.charAt(0));
+            }
+            if (anyCase) {
+                BitSet upper = ascii.get('a', 'z' + 1);
+                BitSet lower = ascii.get('A', 'Z' + 1);
+                for (int i = upper.nextSetBit(0); i >= 0; i = upper.nextSetBit(i + 1)) {
+                    ascii.set('A' + i);
+                }
+                for (int i = lower.nextSetBit(0); i >= 0; i = lower.nextSetBit(i + 1)) {
+                    ascii.set('a' + i);
+                }
+            }
+            return negated ? new Chars(complement(ascii), true) : new Chars(ascii, others);
+        }
+
+        /**
+         * @return true if some chars of the range are not ASCII
+         */
+        private static boolean add(final BitSet ascii, final char from, final char to) {
+            if (from < ASCII && from <= to) {
+                ascii.set(from, Math.min(to, ASCII - 1) + 1);
+            }
+            return to >= ASCII;
+        }
+
+        private static BitSet range(final int from, final int to) {
+            BitSet set = new BitSet(ASCII);
+            set.set(from, to + 1);
+            return set;
+        }
+
+        private static BitSet union(final BitSet first, final BitSet second) {
+            BitSet set = (BitSet) first.clone();
+            set.or(second);
+            return set;
+        }
+
+        private static BitSet complement(final BitSet set) {
+            BitSet result = range(0, ASCII - 1);
+            result.andNot(set);
+            return result;
+        }
+
+        private Chars union(final Chars other) {
+            return new Chars(union(ascii, other.ascii), others || other.others);
+        }
+
+        private boolean intersects(final Chars other) {
+            return ascii.intersects(other.ascii) || others && other.others;
+        }
+    }
+}
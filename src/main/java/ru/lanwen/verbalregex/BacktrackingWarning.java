@@ -0,0 +1,53 @@
+package ru.lanwen.verbalregex;
+
+/**
+ * Part of the expression, that makes {@link java.util.regex.Pattern} try too many ways to match the text,
+ * before it fails on it. Found by {@link VerbalExpression#getWarnings()}.
+ * <p>
+ * Example:
+ * <pre>
+ * regex().something().oneOrMore().then("!").build().getWarnings(); // [NESTED_QUANTIFIERS (?:.+)+]
+ * </pre>
+ *
+ * @see VerbalExpression.Builder#preventBacktracking()
+ * @since 1.9
+ */
+public final class BacktrackingWarning {
+
+    public enum Kind {
+        /**
+         * Repetition of the repetition, e.g. (?:.+)+ or (?:\w+\.?)+ - the same text is split between
+         * iterations in the number of ways, exponential to its length
+         */
+        NESTED_QUANTIFIERS,
+        /**
+         * Repetitions one after another, that may take the same chars, e.g. .*.* or \w+\d+ - the text is
+         * split between them in the number of ways, polynomial to its length
+         */
+        ADJACENT_QUANTIFIERS
+    }
+
+    private final Kind kind;
+    private final String fragment;
+
+    BacktrackingWarning(final Kind kind, final String fragment) {
+        this.kind = kind;
+        this.fragment = fragment;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return source of the part of the expression, e.g. "(?:.+)+"
+     */
+    public String getFragment() {
+        return fragment;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " " + fragment;
+    }
+}
@@ -0,0 +1,165 @@
+package ru.lanwen.verbalregex;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Tests many texts against the expression at once. Each task takes its range of texts with its own
+ * {@link VerbalMatcher}, so nothing is allocated per text, and results are written to one {@link BitSet}
+ * or array. Tasks are run on the executor, if it is given, otherwise the texts are tested on the calling thread.
+ * <p>
+ * Example:
+ * <pre>
+ * ExecutorService executor = Executors.newFixedThreadPool(8);
+ * BitSet valid = regex().startOfLine().digit().count(5).endOfLine().build()
+ *         .batch(executor, 8).test(zipCodes);
+ * </pre>
+ * Thread-safe. The texts should not be changed until the method returns.
+ *
+ * @since 1.9
+ */
+public final class BatchMatcher {
+
+    /**
+     * Texts of one word of the {@link BitSet}, tasks take whole words to not share them
+     */
+    private static final int WORD = 64;
+
+    private final VerbalExpression expression;
+    private final ExecutorService executor;
+    private final int tasks;
+
+    BatchMatcher(final VerbalExpression expression, final ExecutorService executor, final int tasks) {
+        if (tasks <= 0) {
+            throw new IllegalArgumentException("Count of tasks should be positive: " + tasks);
+        }
+        this.expression = expression;
+        this.executor = executor;
+        this.tasks = tasks;
+    }
+
+    /**
+     * Same as {@link VerbalExpression#test(CharSequence)} for each of the texts
+     *
+     * @param texts - texts to test, null elements don't match
+     * @return set with indexes of the texts, that have a match
+     */
+    public BitSet test(final List<? extends CharSequence> texts) {
+        final long[] words = new long[(texts.size() + WORD - 1) / WORD];
+        run(texts.size(), new Part() {
+            @Override
+            public int run(final VerbalMatcher matcher, final int from, final int to) {
+                int index = from;
+                for (CharSequence text : texts.subList(from, to)) {
+                    if (matcher.test(text)) {
+                        words[index / WORD] |= 1L << index;
+                    }
+                    index++;
+                }
+                return 0;
+            }
+        });
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Same as {@link VerbalExpression#test(CharSequence)} for each of the texts
+     *
+     * @param texts - texts to test, null elements don't match
+     * @return true at indexes of the texts, that have a match
+     */
+    public boolean[] test(final CharSequence[] texts) {
+        final boolean[] matched = new boolean[texts.length];
+        run(texts.length, new Part() {
+            @Override
+            public int run(final VerbalMatcher matcher, final int from, final int to) {
+                for (int i = from; i < to; i++) {
+                    matched[i] = matcher.test(texts[i]);
+                }
+                return 0;
+            }
+        });
+        return matched;
+    }
+
+    /**
+     * @param texts - texts to test, null elements don't match
+     * @return how many of the texts have a match
+     */
+    public int count(final List<? extends CharSequence> texts) {
+        return run(texts.size(), new Part() {
+            @Override
+            public int run(final VerbalMatcher matcher, final int from, final int to) {
+                int count = 0;
+                for (CharSequence text : texts.subList(from, to)) {
+                    if (matcher.test(text)) {
+                        count++;
+                    }
+                }
+                return count;
+            }
+        });
+    }
+
+    /**
+     * Range of texts, done by one task
+     */
+    private interface Part {
+
+        /**
+         * @return count of matched texts, if it is needed
+         */
+        int run(VerbalMatcher matcher, int from, int to);
+    }
+
+    /**
+     * Splits texts to ranges of whole words, one for each task, and sums up their results
+     */
+    private int run(final int size, final Part part) {
+        int words = (size + WORD - 1) / WORD;
+        int perTask = (words + tasks - 1) / tasks * WORD;
+        if (executor == null || perTask >= size) {
+            return part.run(expression.matcher(), 0, size);
+        }
+
+        List<Callable<Integer>> ranges = new ArrayList<>(tasks);
+        for (int from = 0; from < size; from += perTask) {
+            final int start = from;
+            final int end = Math.min(size, from + perTask);
+            ranges.add(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return part.run(expression.matcher(), start, end);
+                }
+            });
+        }
+        try {
+            int count = 0;
+            for (Future<Integer> result : executor.invokeAll(ranges)) {
+                count += result.get();
+            }
+            return count;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the tasks", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BatchMatcher{" + expression + (executor == null ? "" : ", tasks=" + tasks) + "}";
+    }
+}
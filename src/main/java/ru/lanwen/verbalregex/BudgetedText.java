@@ -0,0 +1,70 @@
+package ru.lanwen.verbalregex;
+
+/**
+ * Text, that counts reads of its chars by the matcher, and throws {@link MatchTimeoutException},
+ * once there are too many of them or the deadline is passed. One for each match, not thread-safe.
+ *
+ * @see MatchBudget
+ * @since 1.9
+ */
+final class BudgetedText implements CharSequence {
+
+    /**
+     * Steps between the checks of the clock, as {@link System#nanoTime()} costs more than the read itself
+     */
+    static final int CLOCK_INTERVAL = 1024;
+
+    private final CharSequence text;
+    private final long maxSteps;
+    private final long deadline;
+    private final boolean timed;
+    private long steps;
+    /**
+     * Step, the limits are checked on
+     */
+    private long nextCheck;
+
+    BudgetedText(final CharSequence text, final long maxSteps, final long deadline, final boolean timed) {
+        this.text = text;
+        this.maxSteps = maxSteps;
+        this.deadline = deadline;
+        this.timed = timed;
+        this.nextCheck = timed ? Math.min(maxSteps, CLOCK_INTERVAL) : maxSteps;
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (++steps > nextCheck) {
+            check();
+        }
+        return text.charAt(index);
+    }
+
+    private void check() {
+        if (steps > maxSteps) {
+            throw new MatchTimeoutException("Match took more than " + maxSteps + " steps", maxSteps);
+        }
+        if (timed && System.nanoTime() - deadline > 0) {
+            throw new MatchTimeoutException("Match passed the deadline after " + steps + " steps", steps);
+        }
+        nextCheck = Math.min(maxSteps, steps + CLOCK_INTERVAL);
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    /**
+     * Used to take the matched groups, so not counted
+     */
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        return text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
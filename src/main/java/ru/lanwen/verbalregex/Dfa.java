@@ -0,0 +1,699 @@
+package ru.lanwen.verbalregex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import ru.lanwen.verbalregex.Node.Alternation;
+import ru.lanwen.verbalregex.Node.Anchor;
+import ru.lanwen.verbalregex.Node.CharClass;
+import ru.lanwen.verbalregex.Node.Group;
+import ru.lanwen.verbalregex.Node.Literal;
+import ru.lanwen.verbalregex.Node.OneOf;
+import ru.lanwen.verbalregex.Node.Quantifier;
+import ru.lanwen.verbalregex.Node.Sequence;
+
+/**
+ * Automaton, that answers {@link java.util.regex.Matcher#find()} and {@link java.util.regex.Matcher#matches()}
+ * in time linear to the text, without backtracking. Used by {@link VerbalExpression.Builder#dfa(boolean)}.
+ * <p>
+ * The tree is compiled to the NFA, and states of the DFA - sets of NFA states - are built lazily,
+ * on the first step from the state by the char, and cached. When there are too many of them,
+ * the cache is dropped and built again, so each char still costs at most one pass over the NFA.
+ * Anchors are resolved by the kinds of chars around the position: the DFA state keeps the kind of the last char,
+ * and the next char is known on the step.
+ * <p>
+ * Only the answer is found, not the bounds and groups of the match. Not built for trees with
+ * {@link Node.Raw} source, regex values of {@link OneOf}, possessive quantifiers, atomic groups, "$" without
+ * {@link Pattern#MULTILINE} or Unicode flags. Texts with surrogate pairs, and with non-ASCII chars
+ * if there is "\\b", are left to the pattern: {@link #UNKNOWN} is returned for them.
+ * <p>
+ * Thread-safe: steps, that are cached already, are read without locks.
+ *
+ * @since 1.9
+ */
+final class Dfa {
+
+    static final int UNKNOWN = -1;
+    static final int NO_MATCH = 0;
+    static final int MATCH = 1;
+
+    private static final int MAX_NFA_STATES = 10000;
+    private static final int MAX_DFA_STATES = 4096;
+    /**
+     * Steps by non-ASCII chars, that are cached for each state
+     */
+    private static final int MAX_OTHER_STEPS = 256;
+    private static final int UNSUPPORTED_FLAGS = Pattern.UNICODE_CASE | Pattern.UNICODE_CHARACTER_CLASS
+            | Pattern.CANON_EQ | Pattern.LITERAL | Pattern.COMMENTS;
+
+    /**
+     * Kinds of chars around the position, as anchors see them
+     */
+    private static final int NONE = 0;
+    private static final int LF = 1;
+    private static final int CR = 2;
+    private static final int OTHER_TERMINATOR = 3;
+    private static final int WORD = 4;
+    private static final int OTHER = 5;
+
+    /**
+     * Kinds of NFA states
+     */
+    private static final int CHAR = 0;
+    private static final int SPLIT = 1;
+    private static final int ASSERT = 2;
+    private static final int ACCEPT = 3;
+
+    /**
+     * Assertions
+     */
+    private static final int BEGIN_INPUT = 0;
+    private static final int BEGIN_LINE = 1;
+    private static final int BEGIN_LINE_UNIX = 2;
+    private static final int END_LINE = 3;
+    private static final int END_LINE_UNIX = 4;
+    private static final int WORD_BOUNDARY = 5;
+
+    /**
+     * Steps, that end the search
+     */
+    private static final State FOUND = new State(new int[0], NONE, false);
+    private static final State DEAD = new State(new int[0], NONE, false);
+    private static final State BAIL = new State(new int[0], NONE, false);
+
+    private final int[] kinds;
+    private final int[] outs;
+    /**
+     * Second target of {@link #SPLIT}, or -1
+     */
+    private final int[] alternatives;
+    private final CharSet[] sets;
+    private final int[] assertions;
+    private final int start;
+    private final boolean wordBoundaries;
+
+    private final Map<State, State> states = new HashMap<>();
+    private volatile State searchStart;
+    private volatile State exactStart;
+
+    private Dfa(final Program program, final int start) {
+        int size = program.kinds.size();
+        this.kinds = toArray(program.kinds);
+        this.outs = toArray(program.outs);
+        this.alternatives = toArray(program.alternatives);
+        this.sets = program.sets.toArray(new CharSet[size]);
+        this.assertions = toArray(program.assertions);
+        this.start = start;
+        this.wordBoundaries = program.wordBoundaries;
+        reset();
+    }
+
+    /**
+     * @param root      - tree of the expression
+     * @param modifiers - flags the pattern is compiled with
+     * @return automaton of the tree, or null if the tree has something, that is not supported
+     */
+    static Dfa of(final Node root, final int modifiers) {
+        Program program = new Program();
+        int accept = program.add(ACCEPT, -1, -1, null, -1);
+        try {
+            return new Dfa(program, program.compile(root, modifiers, accept));
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Same as {@link java.util.regex.Matcher#find()} in the region
+     *
+     * @return {@link #MATCH}, {@link #NO_MATCH} or {@link #UNKNOWN}, if the text should be searched by the pattern
+     */
+    int find(final CharSequence text, final int start, final int end) {
+        if (afterCarriageReturn(text, start)) {
+            return UNKNOWN;
+        }
+        State state = searchStart;
+        for (int i = start; i < end; i++) {
+            state = step(state, text.charAt(i));
+            if (state == FOUND) {
+                return MATCH;
+            }
+            if (state == BAIL) {
+                return UNKNOWN;
+            }
+        }
+        return acceptsAtEnd(state) ? MATCH : NO_MATCH;
+    }
+
+    /**
+     * Same as {@link java.util.regex.Matcher#matches()} of the region
+     *
+     * @see #find(CharSequence, int, int)
+     */
+    int matches(final CharSequence text, final int start, final int end) {
+        if (afterCarriageReturn(text, start)) {
+            return UNKNOWN;
+        }
+        State state = exactStart;
+        for (int i = start; i < end; i++) {
+            state = step(state, text.charAt(i));
+            if (state == DEAD) {
+                return NO_MATCH;
+            }
+            if (state == BAIL) {
+                return UNKNOWN;
+            }
+        }
+        return acceptsAtEnd(state) ? MATCH : NO_MATCH;
+    }
+
+    /**
+     * "$" of the pattern looks at the char before the region, not to match between "\r" and "\n"
+     */
+    private static boolean afterCarriageReturn(final CharSequence text, final int start) {
+        return start > 0 && text.charAt(start - 1) == '\r';
+    }
+
+    private State step(final State state, final char ch) {
+        if (ch < State.ASCII) {
+            State next = state.ascii[ch];
+            return next != null ? next : build(state, ch);
+        }
+        State next = state.other(ch);
+        return next != null ? next : build(state, ch);
+    }
+
+    private boolean acceptsAtEnd(final State state) {
+        int accepts = state.acceptsAtEnd;
+        if (accepts == 0) {
+            accepts = closure(state, NONE, (char) 0, null) ? 1 : 2;
+            state.acceptsAtEnd = accepts;
+        }
+        return accepts == 1;
+    }
+
+    private synchronized State build(final State state, final char ch) {
+        State next;
+        if (Character.isSurrogate(ch) || wordBoundaries && ch >= State.ASCII) {
+            next = BAIL;
+        } else {
+            List<Integer> targets = new ArrayList<>();
+            boolean accepts = closure(state, kind(ch), ch, targets);
+            if (accepts && state.searching) {
+                next = FOUND;
+            } else if (targets.isEmpty() && !state.searching) {
+                next = DEAD;
+            } else {
+                next = intern(new State(sorted(targets), kind(ch), state.searching));
+            }
+        }
+        if (ch < State.ASCII) {
+            state.ascii[ch] = next;
+        } else {
+            state.cache(ch, next);
+        }
+        return next;
+    }
+
+    /**
+     * Follows the empty steps of the NFA from the state, where anchors hold between the last char and the next one
+     *
+     * @param next    - kind of the next char
+     * @param ch      - the next char
+     * @param targets - to add states after the char to, or null if only the answer is needed
+     * @return true if the match ends before the next char
+     */
+    private boolean closure(final State state, final int next, final char ch, final List<Integer> targets) {
+        boolean[] visited = new boolean[kinds.length];
+        int[] stack = new int[kinds.length];
+        int size = 0;
+        for (int nfa : state.nfa) {
+            if (!visited[nfa]) {
+                visited[nfa] = true;
+                stack[size++] = nfa;
+            }
+        }
+        if (state.searching && !visited[start]) {
+            visited[start] = true;
+            stack[size++] = start;
+        }
+        boolean accepts = false;
+        while (size > 0) {
+            int nfa = stack[--size];
+            int follow = -1;
+            int alternative = -1;
+            switch (kinds[nfa]) {
+                case ACCEPT:
+                    accepts = true;
+                    break;
+                case CHAR:
+                    if (targets != null && next != NONE && sets[nfa].contains(ch)) {
+                        targets.add(outs[nfa]);
+                    }
+                    break;
+                case SPLIT:
+                    follow = outs[nfa];
+                    alternative = alternatives[nfa];
+                    break;
+                default:
+                    if (holds(assertions[nfa], state.last, next)) {
+                        follow = outs[nfa];
+                    }
+            }
+            if (follow >= 0 && !visited[follow]) {
+                visited[follow] = true;
+                stack[size++] = follow;
+            }
+            if (alternative >= 0 && !visited[alternative]) {
+                visited[alternative] = true;
+                stack[size++] = alternative;
+            }
+        }
+        return accepts;
+    }
+
+    private static boolean holds(final int assertion, final int last, final int next) {
+        boolean terminatorBefore = last == LF || last == CR || last == OTHER_TERMINATOR;
+        switch (assertion) {
+            case BEGIN_INPUT:
+                return last == NONE;
+            case BEGIN_LINE:
+                // not at the end of input, and not between "\r" and "\n"
+                return next != NONE && (last == NONE || terminatorBefore && !(last == CR && next == LF));
+            case BEGIN_LINE_UNIX:
+                return next != NONE && (last == NONE || last == LF);
+            case END_LINE:
+                return next == NONE || next == CR || next == OTHER_TERMINATOR || next == LF && last != CR;
+            case END_LINE_UNIX:
+                return next == NONE || next == LF;
+            default:
+                return (last == WORD) != (next == WORD);
+        }
+    }
+
+    private static int kind(final char ch) {
+        if (ch == '\n') {
+            return LF;
+        }
+        if (ch == '\r') {
+            return CR;
+        }
+        if (ch == '\u0085' || (ch | 1) == '\u2029') {
+            return OTHER_TERMINATOR;
+        }
+        return ch < State.ASCII && CharSet.WORD.contains(ch) ? WORD : OTHER;
+    }
+
+    private State intern(final State state) {
+        State known = states.get(state);
+        if (known != null) {
+            return known;
+        }
+        if (states.size() >= MAX_DFA_STATES) {
+            // states, that are in use by the searches, stay valid, but are not reachable from the new start
+            reset();
+        }
+        states.put(state, state);
+        return state;
+    }
+
+    private synchronized void reset() {
+        states.clear();
+        searchStart = new State(new int[0], NONE, true);
+        exactStart = new State(new int[]{start}, NONE, false);
+        states.put(searchStart, searchStart);
+        states.put(exactStart, exactStart);
+    }
+
+    /**
+     * @return distinct values in ascending order, as several states of the NFA may step to the same one,
+     * and equal states of the DFA should have equal arrays
+     */
+    private static int[] sorted(final List<Integer> values) {
+        int[] array = toArray(values);
+        Arrays.sort(array);
+        int size = 0;
+        for (int i = 0; i < array.length; i++) {
+            if (i == 0 || array[i] != array[i - 1]) {
+                array[size++] = array[i];
+            }
+        }
+        return size == array.length ? array : Arrays.copyOf(array, size);
+    }
+
+    private static int[] toArray(final List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Set of NFA states after the char of the kind. Steps by chars are filled in lazily,
+     * other fields are final, so the state is safely read by other threads without locks
+     */
+    private static final class State {
+        private static final int ASCII = 128;
+
+        private final int[] nfa;
+        private final int last;
+        /**
+         * The match may start at any char, so the start of the NFA is in each state
+         */
+        private final boolean searching;
+        private final State[] ascii = new State[ASCII];
+        private volatile Steps others = Steps.EMPTY;
+        /**
+         * 0 if unknown, 1 if the match ends at the end of input, 2 if not
+         */
+        private volatile int acceptsAtEnd;
+
+        private State(final int[] nfa, final int last, final boolean searching) {
+            this.nfa = nfa;
+            this.last = last;
+            this.searching = searching;
+        }
+
+        private State other(final char ch) {
+            return others.get(ch);
+        }
+
+        /**
+         * Called under the lock of the automaton
+         */
+        private void cache(final char ch, final State next) {
+            if (others.chars.length < MAX_OTHER_STEPS) {
+                others = others.with(ch, next);
+            }
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof State)) {
+                return false;
+            }
+            State other = (State) o;
+            return last == other.last && searching == other.searching && Arrays.equals(nfa, other.nfa);
+        }
+
+        @Override
+        public int hashCode() {
+            return (Arrays.hashCode(nfa) * 31 + last) * 2 + (searching ? 1 : 0);
+        }
+    }
+
+    /**
+     * Immutable sorted steps by non-ASCII chars, replaced as a whole on each new one
+     */
+    private static final class Steps {
+        private static final Steps EMPTY = new Steps(new char[0], new State[0]);
+
+        private final char[] chars;
+        private final State[] states;
+
+        private Steps(final char[] chars, final State[] states) {
+            this.chars = chars;
+            this.states = states;
+        }
+
+        private State get(final char ch) {
+            int index = Arrays.binarySearch(chars, ch);
+            return index >= 0 ? states[index] : null;
+        }
+
+        private Steps with(final char ch, final State next) {
+            int index = -Arrays.binarySearch(chars, ch) - 1;
+            char[] newChars = new char[chars.length + 1];
+            State[] newStates = new State[chars.length + 1];
+            System.arraycopy(chars, 0, newChars, 0, index);
+            System.arraycopy(states, 0, newStates, 0, index);
+            newChars[index] = ch;
+            newStates[index] = next;
+            System.arraycopy(chars, index, newChars, index + 1, chars.length - index);
+            System.arraycopy(states, index, newStates, index + 1, chars.length - index);
+            return new Steps(newChars, newStates);
+        }
+    }
+
+    /**
+     * NFA under construction. Nodes are compiled from the end, each of them gets the state to continue with
+     */
+    private static final class Program {
+        private final List<Integer> kinds = new ArrayList<>();
+        private final List<Integer> outs = new ArrayList<>();
+        private final List<Integer> alternatives = new ArrayList<>();
+        private final List<CharSet> sets = new ArrayList<>();
+        private final List<Integer> assertions = new ArrayList<>();
+        private boolean wordBoundaries;
+
+        private int add(final int kind, final int out, final int alternative, final CharSet set,
+                        final int assertion) {
+            if (kinds.size() >= MAX_NFA_STATES) {
+                throw new UnsupportedOperationException("Too many states");
+            }
+            kinds.add(kind);
+            outs.add(out);
+            alternatives.add(alternative);
+            sets.add(set);
+            assertions.add(assertion);
+            return kinds.size() - 1;
+        }
+
+        /**
+         * @param next - state after the node
+         * @return first state of the node
+         * @throws UnsupportedOperationException if the node can't be compiled
+         */
+        private int compile(final Node node, final int modifiers, final int next) {
+            if ((modifiers & UNSUPPORTED_FLAGS) != 0) {
+                throw new UnsupportedOperationException("Flags " + modifiers);
+            }
+            if (node instanceof Literal) {
+                return literal(((Literal) node).text, modifiers, next);
+            }
+            if (node instanceof CharClass) {
+                return add(CHAR, next, -1, CharSet.of((CharClass) node, modifiers), -1);
+            }
+            if (node instanceof Anchor) {
+                return add(ASSERT, next, -1, null, anchor((Anchor) node, modifiers));
+            }
+            if (node instanceof Group) {
+                Group group = (Group) node;
+                if (group.kind == Group.Kind.ATOMIC) {
+                    throw new UnsupportedOperationException("Atomic group");
+                }
+                return compile(group.body, (modifiers | group.flagsOn) & ~group.flagsOff, next);
+            }
+            if (node instanceof Quantifier) {
+                return repeat((Quantifier) node, modifiers, next);
+            }
+            if (node instanceof OneOf) {
+                String[] values = ((OneOf) node).values;
+                Node[] branches = new Node[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] == null || !KeywordTrie.isPlain(values[i])) {
+                        throw new UnsupportedOperationException("Regex value " + values[i]);
+                    }
+                    branches[i] = new Literal(values[i]);
+                }
+                return alternatives(branches, modifiers, next);
+            }
+            if (node instanceof Alternation) {
+                return alternatives(((Alternation) node).branches, modifiers, next);
+            }
+            if (node instanceof Sequence) {
+                Node[] items = ((Sequence) node).items;
+                int first = next;
+                for (int i = items.length - 1; i >= 0; i--) {
+                    first = compile(items[i], modifiers, first);
+                }
+                return first;
+            }
+            throw new UnsupportedOperationException("Node " + node.getClass().getSimpleName());
+        }
+
+        private int literal(final String text, final int modifiers, final int next) {
+            int first = next;
+            for (int i = text.length() - 1; i >= 0; i--) {
+                first = add(CHAR, first, -1, CharSet.of(text.charAt(i), modifiers), -1);
+            }
+            return first;
+        }
+
+        private int alternatives(final Node[] branches, final int modifiers, final int next) {
+            if (branches.length == 0) {
+                return next;
+            }
+            int first = compile(branches[branches.length - 1], modifiers, next);
+            for (int i = branches.length - 2; i >= 0; i--) {
+                first = add(SPLIT, compile(branches[i], modifiers, next), first, null, -1);
+            }
+            return first;
+        }
+
+        private int repeat(final Quantifier quantifier, final int modifiers, final int next) {
+            if (quantifier.possessive) {
+                throw new UnsupportedOperationException("Possessive quantifier");
+            }
+            if (Simplifier.containsRaw(quantifier.child)) {
+                // checked before the count, as the child of {0} is never compiled, and the quantifier after raw
+                // source, like abc{0}, repeats only its last char
+                throw new UnsupportedOperationException("Raw source in " + quantifier.render());
+            }
+            int first = next;
+            if (quantifier.max == Quantifier.UNBOUNDED) {
+                int loop = add(SPLIT, -1, next, null, -1);
+                outs.set(loop, compile(quantifier.child, modifiers, loop));
+                first = loop;
+            } else {
+                for (int i = quantifier.min; i < quantifier.max; i++) {
+                    first = add(SPLIT, compile(quantifier.child, modifiers, first), next, null, -1);
+                }
+            }
+            for (int i = 0; i < quantifier.min; i++) {
+                first = compile(quantifier.child, modifiers, first);
+            }
+            return first;
+        }
+
+        private int anchor(final Anchor anchor, final int modifiers) {
+            boolean multiline = (modifiers & Pattern.MULTILINE) != 0;
+            boolean unix = (modifiers & Pattern.UNIX_LINES) != 0;
+            if (anchor == Anchor.START_OF_LINE) {
+                return !multiline ? BEGIN_INPUT : unix ? BEGIN_LINE_UNIX : BEGIN_LINE;
+            }
+            if (anchor == Anchor.END_OF_LINE && multiline) {
+                return unix ? END_LINE_UNIX : END_LINE;
+            }
+            if (anchor == Anchor.WORD_BOUNDARY) {
+                wordBoundaries = true;
+                return WORD_BOUNDARY;
+            }
+            // "$" at the end of input looks at two chars: it also matches before the final line break
+            throw new UnsupportedOperationException("Anchor " + anchor.render());
+        }
+    }
+
+    /**
+     * Chars, that one state of the NFA accepts, the same as {@link Pattern} does
+     */
+    private abstract static class CharSet {
+        private static final CharSet WORD = new Predefined('w', 0);
+
+        abstract boolean contains(char ch);
+
+        private static CharSet of(final char ch, final int modifiers) {
+            if (Character.isSurrogate(ch)) {
+                throw new UnsupportedOperationException("Surrogate " + (int) ch);
+            }
+            return new Members(String.valueOf(ch), new String[0], false, modifiers);
+        }
+
+        private static CharSet of(final CharClass node, final int modifiers) {
+            if (node.predefined != CharClass.SET) {
+                return new Predefined(node.predefined, modifiers);
+            }
+            for (int i = 0; i < node.members.length(); i++) {
+                if (Character.isSurrogate(node.members.charAt(i))) {
+                    throw new UnsupportedOperationException("Surrogate in " + node.render());
+                }
+            }
+            for (String bound : node.ranges) {
+                if (bound.length() != 1 || Character.isSurrogate(bound.charAt(0))) {
+                    throw new UnsupportedOperationException("Range " + node.render());
+                }
+            }
+            return new Members(node.members, node.ranges, node.negated, modifiers);
+        }
+    }
+
+    private static final class Predefined extends CharSet {
+        private final char symbol;
+        private final boolean dotAll;
+        private final boolean unix;
+
+        private Predefined(final char symbol, final int modifiers) {
+            this.symbol = symbol;
+            this.dotAll = (modifiers & Pattern.DOTALL) != 0;
+            this.unix = (modifiers & Pattern.UNIX_LINES) != 0;
+        }
+
+        @Override
+        boolean contains(final char ch) {
+            switch (symbol) {
+                case '.':
+                    int kind = kind(ch);
+                    return dotAll || (unix ? kind != LF : kind != LF && kind != CR && kind != OTHER_TERMINATOR);
+                case 'w':
+                    return isWord(ch);
+                case 'W':
+                    return !isWord(ch);
+                case 'd':
+                    return ch >= '0' && ch <= '9';
+                case 'D':
+                    return ch < '0' || ch > '9';
+                case 's':
+                    return isSpace(ch);
+                case 'S':
+                    return !isSpace(ch);
+                default:
+                    throw new UnsupportedOperationException("Class \\" + symbol);
+            }
+        }
+
+        private static boolean isWord(final char ch) {
+            return ch >= 'a' && ch <= 'z' || ch >= 'A' && ch <= 'Z' || ch >= '0' && ch <= '9' || ch == '_';
+        }
+
+        private static boolean isSpace(final char ch) {
+            return ch == ' ' || ch >= '\t' && ch <= '\r';
+        }
+    }
+
+    private static final class Members extends CharSet {
+        private final String members;
+        private final String[] ranges;
+        private final boolean negated;
+        /**
+         * ASCII letters of the other case are accepted too
+         */
+        private final boolean anyCase;
+
+        private Members(final String members, final String[] ranges, final boolean negated, final int modifiers) {
+            this.members = members;
+            this.ranges = ranges;
+            this.negated = negated;
+            this.anyCase = (modifiers & Pattern.CASE_INSENSITIVE) != 0;
+        }
+
+        @Override
+        boolean contains(final char ch) {
+            boolean found = has(ch);
+            if (!found && anyCase) {
+                if (ch >= 'a' && ch <= 'z') {
+                    found = has((char) (ch - 'a' + 'A'));
+                } else if (ch >= 'A' && ch <= 'Z') {
+                    found = has((char) (ch - 'A' + 'a'));
+                }
+            }
+            return found != negated;
+        }
+
+        private boolean has(final char ch) {
+            if (members.indexOf(ch) >= 0) {
+                return true;
+            }
+            for (int i = 1; i < ranges.length; i += 2) {
+                if (ch >= ranges[i - 1].charAt(0) && ch <= ranges[i].charAt(0)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package ru.lanwen.verbalregex;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded cache of built expressions, keyed by rendered source, modifiers and the options of the builder,
+ * that change the way of matching ({@code dfa()}, {@code reuseMatchers()}).
+ * Equal builders produce the same immutable {@link VerbalExpression} instance,
+ * so the pattern is compiled only once for all of them.
+ * <p>
+ * Not used until shared:
+ * <pre>
+ * ExpressionCache.setShared(new ExpressionCache(1000));
+ * regex().find("http").maybe("s").build(); // compiled
+ * regex().find("http").maybe("s").build(); // same instance from the cache
+ * </pre>
+ * Entries are split between segments by the hash of the key, each of them has its own lock
+ * and evicts its least recently used entry when full. Concurrent builds of the same missing expression
+ * may compile it more than once, but all of them get the one, that was put first.
+ *
+ * @since 1.9
+ */
+public final class ExpressionCache {
+
+    /**
+     * Options of the key, set by {@link VerbalExpression.Builder#dfa()}
+     * and {@link VerbalExpression.Builder#reuseMatchers()}
+     */
+    static final int DFA = 1;
+    static final int REUSE_MATCHERS = 2;
+
+    private static final int DEFAULT_CONCURRENCY = 16;
+
+    private static volatile ExpressionCache shared;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    /**
+     * @param maximumSize - how many expressions to keep at most
+     */
+    public ExpressionCache(final int maximumSize) {
+        this(maximumSize, DEFAULT_CONCURRENCY);
+    }
+
+    /**
+     * @param maximumSize      - how many expressions to keep at most
+     * @param concurrencyLevel - estimated count of threads building expressions at the same time
+     */
+    public ExpressionCache(final int maximumSize, final int concurrencyLevel) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum size should be positive: " + maximumSize);
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("Concurrency level should be positive: " + concurrencyLevel);
+        }
+
+        // power of 2, not greater than the maximum size, so each segment holds at least one expression
+        int count = 1;
+        while (count < concurrencyLevel && count << 1 <= maximumSize) {
+            count <<= 1;
+        }
+        this.segments = new Segment[count];
+        this.segmentMask = count - 1;
+        for (int i = 0; i < count; i++) {
+            // first segments take the remainder, so the total is exactly the maximum size
+            segments[i] = new Segment(maximumSize / count + (i < maximumSize % count ? 1 : 0));
+        }
+    }
+
+    /**
+     * @return cache, used by {@link VerbalExpression.Builder#build()}, or null if there is no one
+     */
+    public static ExpressionCache getShared() {
+        return shared;
+    }
+
+    /**
+     * @param cache - cache to be used by every {@link VerbalExpression.Builder#build()}, or null to stop caching
+     */
+    public static void setShared(final ExpressionCache cache) {
+        shared = cache;
+    }
+
+    /**
+     * @return cached expression, or null
+     */
+    VerbalExpression get(final String source, final int modifiers, final int options) {
+        Key key = new Key(source, modifiers, options);
+        return segmentFor(key).get(key);
+    }
+
+    /**
+     * @return expression already cached by another thread, or the passed one
+     */
+    VerbalExpression putIfAbsent(final String source, final int modifiers, final int options,
+                                 final VerbalExpression expression) {
+        Key key = new Key(source, modifiers, options);
+        return segmentFor(key).putIfAbsent(key, expression);
+    }
+
+    /**
+     * @return how many times the expression was found in the cache
+     */
+    public long hitCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                count += segment.hits;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return how many times the expression was not found in the cache
+     */
+    public long missCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                count += segment.misses;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return how many expressions were removed to keep the cache size
+     */
+    public long evictionCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                count += segment.evictions;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return how many expressions are cached now
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.entries.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes all expressions, counters stay as is
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.entries.clear();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ExpressionCache{size=" + size() + ", hits=" + hitCount() + ", misses=" + missCount()
+                + ", evictions=" + evictionCount() + "}";
+    }
+
+    private Segment segmentFor(final Key key) {
+        int hash = key.hash;
+        hash ^= hash >>> 16;
+        return segments[hash & segmentMask];
+    }
+
+    private static final class Key {
+        private final String source;
+        private final int modifiers;
+        private final int options;
+        private final int hash;
+
+        private Key(final String source, final int modifiers, final int options) {
+            this.source = source;
+            this.modifiers = modifiers;
+            this.options = options;
+            this.hash = 31 * (31 * source.hashCode() + modifiers) + options;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return modifiers == key.modifiers && options == key.options && source.equals(key.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Part of the cache with its own lock. Counters are changed and read only under it
+     */
+    private static final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<Key, VerbalExpression> entries;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        private Segment(final int capacity) {
+            this.entries = new LinkedHashMap<Key, VerbalExpression>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<Key, VerbalExpression> eldest) {
+                    if (size() > capacity) {
+                        evictions++;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        private VerbalExpression get(final Key key) {
+            lock.lock();
+            try {
+                VerbalExpression expression = entries.get(key);
+                if (expression == null) {
+                    misses++;
+                } else {
+                    hits++;
+                }
+                return expression;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private VerbalExpression putIfAbsent(final Key key, final VerbalExpression expression) {
+            lock.lock();
+            try {
+                VerbalExpression existing = entries.get(key);
+                if (existing != null) {
+                    return existing;
+                }
+                entries.put(key, expression);
+                return expression;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
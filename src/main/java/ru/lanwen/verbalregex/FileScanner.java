@@ -0,0 +1,264 @@
+package ru.lanwen.verbalregex;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.regex.MatchResult;
+
+/**
+ * Scans files with the expression without reading them line by line into strings.
+ * The file is memory-mapped chunk by chunk, each chunk is decoded into the reused {@link CharBuffer}
+ * and searched as a whole. Chunks end right after line breaks, so every match, that doesn't cross lines,
+ * is found once, with offsets from the start of the file.
+ * <p>
+ * If matches can't contain line breaks and have a required literal, e.g. " failed with error " in
+ * {@code word().then(" failed with error ").digit()}, the matcher runs only on lines with the literal.
+ * <p>
+ * Example:
+ * <pre>
+ * long errors = regex().find("ERROR").build().fileScanner()
+ *         .scan(Paths.get("app.log"), new FileScanner.Handler() {
+ *             &#64;Override
+ *             public void onMatch(MatchResult match, long charOffset, long byteOffset) {
+ *                 System.out.println(byteOffset + ": " + match.group());
+ *             }
+ *         });
+ * </pre>
+ * Only charsets, where the line break is the single byte '\n' and it is never a part of other chars,
+ * are supported: UTF-8, US-ASCII, ISO-8859-*, windows-125*. Malformed input is replaced, as by readers,
+ * byte offsets are exact for well-formed input.
+ * <p>
+ * Not thread-safe: buffers are reused by each scan.
+ *
+ * @since 1.9
+ */
+public final class FileScanner {
+
+    /**
+     * Bytes of the file, mapped and decoded at once
+     */
+    private static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+    private static final byte LINE_BREAK = '\n';
+
+    private final VerbalExpression expression;
+    private Charset charset = Charset.forName("UTF-8");
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    /**
+     * Copy of the mapped chunk: decoders run much faster on arrays, than on direct buffers
+     */
+    private ByteBuffer bytes;
+    private CharBuffer chars;
+
+    FileScanner(final VerbalExpression expression) {
+        this.expression = expression;
+    }
+
+    /**
+     * Called for each match in the file
+     */
+    public interface Handler {
+
+        /**
+         * @param match      - the match, its offsets are of the current chunk and valid only until the method returns
+         * @param charOffset - index of the first char of the match from the start of the file
+         * @param byteOffset - index of the first byte of the match from the start of the file
+         */
+        void onMatch(MatchResult match, long charOffset, long byteOffset);
+    }
+
+    /**
+     * @param pCharset - charset of files, UTF-8 by default
+     * @return this scanner
+     * @throws IllegalArgumentException if line breaks of the charset are not the single '\n' byte
+     */
+    public FileScanner charset(final Charset pCharset) {
+        if (!Arrays.equals("\n".getBytes(pCharset), new byte[]{LINE_BREAK})
+                || !Arrays.equals("a".getBytes(pCharset), new byte[]{'a'})) {
+            throw new IllegalArgumentException("Charset is not ASCII-compatible: " + pCharset);
+        }
+        this.charset = pCharset;
+        return this;
+    }
+
+    /**
+     * @param pChunkSize - bytes to be searched at once, 8MB by default. Chunk grows for longer lines
+     * @return this scanner
+     */
+    public FileScanner chunkSize(final int pChunkSize) {
+        if (pChunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size should be positive: " + pChunkSize);
+        }
+        this.chunkSize = pChunkSize;
+        return this;
+    }
+
+    /**
+     * Finds all matches in the file
+     *
+     * @param file    - file to scan
+     * @param handler - to be called for each match
+     * @return count of the matches
+     * @throws IOException if the file can't be read
+     */
+    public long scan(final Path file, final Handler handler) throws IOException {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        boolean utf8 = "UTF-8".equals(charset.name());
+        boolean singleByte = charset.newEncoder().maxBytesPerChar() == 1;
+        VerbalMatcher matcher = expression.matcher();
+
+        long count = 0;
+        long chunkBytes = 0;
+        long chunkChars = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += chunkBytes) {
+                MappedByteBuffer bytes = map(channel, position, size);
+                chunkBytes = bytes.remaining();
+                CharBuffer decoded = decode(decoder, bytes);
+
+                int length = decoded.length();
+                boolean lines = matcher.skipsLines();
+                // offsets of the last match, to count bytes only of the chars between matches
+                int lastChar = 0;
+                long lastByte = position;
+                for (int from = 0; from <= length; ) {
+                    int lineStart = 0;
+                    int lineEnd = length;
+                    if (lines) {
+                        int required = matcher.indexOfRequired(decoded, from, length);
+                        if (required < 0) {
+                            break;
+                        }
+                        lineStart = lastIndexOf(decoded, from, required) + 1;
+                        lineEnd = indexOf(decoded, required, length);
+                    }
+                    Iterator<MatchResult> matches = matcher.iterator(decoded, lineStart, lineEnd);
+                    while (matches.hasNext()) {
+                        MatchResult match = matches.next();
+                        int start = match.start();
+                        lastByte += singleByte ? start - lastChar
+                                : utf8 ? utf8Length(decoded, lastChar, start)
+                                : charset.encode(CharBuffer.wrap(decoded, lastChar, start)).remaining();
+                        lastChar = start;
+                        handler.onMatch(match, chunkChars + start, lastByte);
+                        count++;
+                    }
+                    from = lineEnd + 1;
+                }
+                chunkChars += decoded.length();
+            }
+        } finally {
+            matcher.forget();
+        }
+        return count;
+    }
+
+    /**
+     * @return bytes from the position up to the last line break, that fits into the chunk.
+     * The whole line, if it is longer than the chunk
+     */
+    private MappedByteBuffer map(final FileChannel channel, final long position, final long size)
+            throws IOException {
+        long length = Math.min(chunkSize, size - position);
+        while (true) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            if (position + length == size) {
+                return bytes;
+            }
+            for (int i = (int) length - 1; i >= 0; i--) {
+                if (bytes.get(i) == LINE_BREAK) {
+                    bytes.limit(i + 1);
+                    return bytes;
+                }
+            }
+            if (length >= Integer.MAX_VALUE) {
+                throw new IOException("Line at " + position + " is longer than " + Integer.MAX_VALUE + " bytes");
+            }
+            length = Math.min(Math.min(2 * length, Integer.MAX_VALUE), size - position);
+        }
+    }
+
+    private CharBuffer decode(final CharsetDecoder decoder, final ByteBuffer mapped) {
+        if (bytes == null || bytes.capacity() < mapped.remaining()) {
+            bytes = ByteBuffer.allocate(mapped.remaining());
+        }
+        bytes.clear();
+        bytes.put(mapped);
+        bytes.flip();
+        int capacity = (int) Math.min(Integer.MAX_VALUE, (long) (bytes.remaining() * (double) decoder.maxCharsPerByte()));
+        if (chars == null || chars.capacity() < capacity) {
+            chars = CharBuffer.allocate(capacity);
+        }
+        chars.clear();
+        decoder.reset();
+        CoderResult result = decoder.decode(bytes, chars, true);
+        if (!result.isUnderflow()) {
+            throw new IllegalStateException("Can't decode the chunk: " + result);
+        }
+        decoder.flush(chars);
+        chars.flip();
+        return chars;
+    }
+
+    /**
+     * @return index of the first line break in the range, or its end
+     */
+    private static int indexOf(final CharBuffer text, final int from, final int end) {
+        for (int i = from; i < end; i++) {
+            if (text.get(i) == LINE_BREAK) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * @return index of the last line break before the end, or the one before the start
+     */
+    private static int lastIndexOf(final CharBuffer text, final int start, final int end) {
+        for (int i = end - 1; i >= start; i--) {
+            if (text.get(i) == LINE_BREAK) {
+                return i;
+            }
+        }
+        return start - 1;
+    }
+
+    /**
+     * @return count of bytes of the chars in UTF-8
+     */
+    private static long utf8Length(final CharSequence text, final int start, final int end) {
+        long length = 0;
+        for (int i = start; i < end; i++) {
+            char ch = text.charAt(i);
+            if (ch < 0x80) {
+                length++;
+            } else if (ch < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(ch) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return "FileScanner{" + expression + ", " + charset + ", chunk=" + chunkSize + "}";
+    }
+}
@@ -0,0 +1,216 @@
+package ru.lanwen.verbalregex;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts several named groups of each match in one pass over the text,
+ * instead of calling {@link VerbalExpression#getText(String, String)} for each group.
+ * Names are resolved to group numbers once, when the extractor is created.
+ * <p>
+ * Example:
+ * <pre>
+ * GroupExtractor extractor = regex()
+ *         .capture("level").word().endCapture().then(": ")
+ *         .capture("message").anything().endCapture()
+ *         .build().extractor("level", "message");
+ * extractor.extract(log, new GroupExtractor.Handler() {
+ *     &#64;Override
+ *     public void onMatch(GroupExtractor.Groups groups) {
+ *         store(groups.get(0), groups.get(1));
+ *     }
+ * });
+ * </pre>
+ * Thread-safe, if the handler is.
+ *
+ * @since 1.9
+ */
+public final class GroupExtractor {
+
+    private final VerbalExpression expression;
+    private final String[] names;
+    private final int[] groups;
+
+    /**
+     * @throws IllegalArgumentException if there is no group with one of the names
+     */
+    GroupExtractor(final VerbalExpression expression, final String source, final int modifiers,
+                   final String... names) {
+        Map<String, Integer> named = namedGroups(source, modifiers);
+        this.expression = expression;
+        this.names = names.clone();
+        this.groups = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Integer group = named.get(names[i]);
+            if (group == null) {
+                throw new IllegalArgumentException("No group with name <" + names[i] + "> in " + source);
+            }
+            groups[i] = group;
+        }
+    }
+
+    /**
+     * Called for each match with its groups
+     */
+    public interface Handler {
+
+        /**
+         * @param groups - requested groups of the match, valid only until the method returns
+         */
+        void onMatch(Groups groups);
+    }
+
+    /**
+     * Requested groups of the current match, in order of names given to {@link VerbalExpression#extractor(String...)}.
+     * The same instance is passed for each match, so nothing is allocated until the values are taken
+     */
+    public static final class Groups {
+        private final String[] names;
+        private final int[] groups;
+        private Matcher matcher;
+
+        Groups(final String[] names, final int[] groups) {
+            this.names = names;
+            this.groups = groups;
+        }
+
+        void match(final Matcher current) {
+            this.matcher = current;
+        }
+
+        /**
+         * @return how many groups are requested
+         */
+        public int count() {
+            return groups.length;
+        }
+
+        /**
+         * @param index - index of the group in the requested ones
+         * @return name of the group
+         */
+        public String name(final int index) {
+            return names[index];
+        }
+
+        /**
+         * @param index - index of the group in the requested ones
+         * @return value of the group, or null if it didn't take part in the match
+         */
+        public String get(final int index) {
+            return matcher.group(groups[index]);
+        }
+
+        /**
+         * @param index - index of the group in the requested ones
+         * @return start of the group in the text, or -1
+         */
+        public int start(final int index) {
+            return matcher.start(groups[index]);
+        }
+
+        /**
+         * @param index - index of the group in the requested ones
+         * @return index after the end of the group in the text, or -1
+         */
+        public int end(final int index) {
+            return matcher.end(groups[index]);
+        }
+
+        /**
+         * @return value of the whole match
+         */
+        public String match() {
+            return matcher.group();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder out = new StringBuilder("Groups{");
+            for (int i = 0; i < groups.length; i++) {
+                out.append(i == 0 ? "" : ", ").append(names[i]).append('=').append(get(i));
+            }
+            return out.append('}').toString();
+        }
+    }
+
+    /**
+     * Finds all matches in one pass and calls the handler for each of them
+     *
+     * @param text    - sequence to search in
+     * @param handler - to be called for each match
+     * @return count of the matches
+     */
+    public int extract(final CharSequence text, final Handler handler) {
+        return extract(text, 0, text.length(), handler);
+    }
+
+    /**
+     * Same as {@link #extract(CharSequence, Handler)} in the region of sequence, as if it was the whole text
+     *
+     * @param text    - sequence to search in
+     * @param start   - first char of the region
+     * @param end     - index after the last char of the region
+     * @param handler - to be called for each match
+     * @return count of the matches
+     * @throws IndexOutOfBoundsException if the region is not inside of the sequence
+     */
+    public int extract(final CharSequence text, final int start, final int end, final Handler handler) {
+        return expression.extract(text, start, end, new Groups(names, groups), handler);
+    }
+
+    /**
+     * @return names of the groups in order of the values
+     */
+    public String[] names() {
+        return names.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "GroupExtractor{" + expression + ", " + Arrays.toString(names) + "}";
+    }
+
+    /**
+     * Numbers capturing groups of the source the same way as {@link Pattern} does: by their opening braces
+     *
+     * @return numbers of named groups
+     */
+    static Map<String, Integer> namedGroups(final String source, final int modifiers) {
+        Map<String, Integer> named = new HashMap<>();
+        boolean comments = (modifiers & Pattern.COMMENTS) != 0;
+        int group = 0;
+        int classDepth = 0;
+        for (int i = 0; i < source.length(); i++) {
+            char ch = source.charAt(i);
+            if (ch == '\\') {
+                if (source.startsWith("\\Q", i)) {
+                    int quoteEnd = source.indexOf("\\E", i + 2);
+                    i = quoteEnd < 0 ? source.length() : quoteEnd + 1;
+                } else {
+                    i++;
+                }
+            } else if (ch == '[') {
+                classDepth++;
+            } else if (ch == ']' && classDepth > 0) {
+                classDepth--;
+            } else if (classDepth > 0) {
+                continue;
+            } else if (ch == '#' && comments) {
+                int lineEnd = source.indexOf('\n', i);
+                i = lineEnd < 0 ? source.length() : lineEnd;
+            } else if (ch == '(' && !source.startsWith("(?", i)) {
+                group++;
+            } else if (ch == '(' && source.startsWith("(?<", i) && i + 3 < source.length()
+                    && Character.isLetter(source.charAt(i + 3))) {
+                int nameEnd = source.indexOf('>', i + 3);
+                named.put(source.substring(i + 3, nameEnd), ++group);
+                i = nameEnd;
+            }
+        }
+        return named;
+    }
+}
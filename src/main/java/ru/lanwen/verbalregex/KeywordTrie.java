@@ -0,0 +1,258 @@
+package ru.lanwen.verbalregex;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import ru.lanwen.verbalregex.Node.Alternation;
+import ru.lanwen.verbalregex.Node.Group;
+import ru.lanwen.verbalregex.Node.Literal;
+import ru.lanwen.verbalregex.Node.OneOf;
+import ru.lanwen.verbalregex.Node.Quantifier;
+import ru.lanwen.verbalregex.Node.Raw;
+import ru.lanwen.verbalregex.Node.Sequence;
+
+/**
+ * Factors plain string values of {@link OneOf} by common prefixes: foo, foobar, fob to fo(?:o(?:|bar)|b).
+ * <p>
+ * The matcher tries values of a flat alternation one by one at every position.
+ * With the trie it checks each char once and goes only to the branch, that starts with it.
+ * <p>
+ * Order of values matters for the regex: the first matched one wins, others are tried on backtracking.
+ * Values, matched at the same position, are prefixes of each other, so they lie on one path of the trie.
+ * Where one of them ends, the empty alternative is placed between longer values by their order,
+ * so they are tried in exactly the same order as in the flat alternation.
+ * Duplicates are removed - they can never be matched.
+ * <p>
+ * Different branches of the trie start with different chars, so it is correct only without
+ * {@link Pattern#CASE_INSENSITIVE} (chars of branches may match the same input)
+ * and without {@link Pattern#COMMENTS} (whitespace of values is ignored).
+ *
+ * @since 1.9
+ */
+final class KeywordTrie {
+
+    /**
+     * Less values are left as is, unless simplification is requested
+     */
+    static final int MIN_VALUES = 16;
+
+    private static final String SPECIAL_CHARS = "\\^$.|?*+()[]{}";
+    private static final int UNSAFE_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.COMMENTS;
+
+    private KeywordTrie() {
+    }
+
+    /**
+     * Replaces every suitable {@link OneOf} in the tree with the trie
+     *
+     * @param root      - root of the tree
+     * @param modifiers - flags the pattern will be compiled with
+     * @param always    - factor even small sets of values
+     * @return tree with the same matches
+     */
+    static Node factorAll(final Node root, final int modifiers, final boolean always) {
+        if (containsInlineFlags(root)) {
+            return root;
+        }
+        return factorAll(root, modifiers, always ? 2 : MIN_VALUES);
+    }
+
+    private static Node factorAll(final Node node, final int flags, final int minValues) {
+        if (node instanceof OneOf) {
+            List<int[]> keywords = keywords(((OneOf) node).values);
+            if ((flags & UNSAFE_FLAGS) != 0 || keywords == null || keywords.size() < minValues) {
+                return node;
+            }
+            Node trie = trie(keywords, 0);
+            return trie instanceof Group ? trie : Group.nonCapturing(trie);
+        }
+        if (node instanceof Group) {
+            Group group = (Group) node;
+            int nested = group.kind == Group.Kind.FLAGS ? (flags | group.flagsOn) & ~group.flagsOff : flags;
+            return group.withBody(factorAll(group.body, nested, minValues));
+        }
+        if (node instanceof Quantifier) {
+            Quantifier quantifier = (Quantifier) node;
+            return quantifier.withChild(factorAll(quantifier.child, flags, minValues));
+        }
+        if (node instanceof Sequence) {
+            List<Node> items = new ArrayList<>();
+            for (Node item : ((Sequence) node).items) {
+                items.add(factorAll(item, flags, minValues));
+            }
+            return Sequence.of(items);
+        }
+        if (node instanceof Alternation) {
+            List<Node> branches = new ArrayList<>();
+            for (Node branch : ((Alternation) node).branches) {
+                branches.add(factorAll(branch, flags, minValues));
+            }
+            return new Alternation(branches);
+        }
+        return node;
+    }
+
+    /**
+     * Raw source like (?i) changes flags for everything after it, so they are unknown
+     */
+    private static boolean containsInlineFlags(final Node node) {
+        if (node instanceof Raw) {
+            return ((Raw) node).source != null && ((Raw) node).source.contains("(?");
+        }
+        if (node instanceof Group) {
+            return containsInlineFlags(((Group) node).body);
+        }
+        if (node instanceof Quantifier) {
+            return containsInlineFlags(((Quantifier) node).child);
+        }
+        Node[] children = node instanceof Sequence ? ((Sequence) node).items
+                : node instanceof Alternation ? ((Alternation) node).branches
+                : new Node[0];
+        for (Node child : children) {
+            if (containsInlineFlags(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return distinct values as code points in the given order, or null if any of them is not a plain string
+     */
+    private static List<int[]> keywords(final String[] values) {
+        Set<String> seen = new HashSet<>();
+        List<int[]> keywords = new ArrayList<>(values.length);
+        for (String value : values) {
+            if (value == null || !isPlain(value)) {
+                return null;
+            }
+            if (seen.add(value)) {
+                keywords.add(codePoints(value));
+            }
+        }
+        return keywords;
+    }
+
+    private static int[] codePoints(final String value) {
+        int[] codePoints = new int[value.codePointCount(0, value.length())];
+        for (int i = 0, offset = 0; offset < value.length(); i++) {
+            codePoints[i] = value.codePointAt(offset);
+            offset += Character.charCount(codePoints[i]);
+        }
+        return codePoints;
+    }
+
+    /**
+     * @return true if value is matched by the regex as is: without special chars and unpaired surrogates
+     */
+    static boolean isPlain(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (SPECIAL_CHARS.indexOf(value.charAt(i)) >= 0) {
+                return false;
+            }
+        }
+        return isWellFormed(value);
+    }
+
+    /**
+     * Regex reads code points, so the unpaired surrogate never matches a half of the pair in the text
+     *
+     * @return true if value has no unpaired surrogates
+     */
+    static boolean isWellFormed(final String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isSurrogate(value.charAt(i)) && !isPairAt(value, i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPairAt(final String value, final int i) {
+        return Character.isHighSurrogate(value.charAt(i))
+                ? i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))
+                : i > 0 && Character.isHighSurrogate(value.charAt(i - 1));
+    }
+
+    /**
+     * @param keywords - in order of priority, all of them share first {@code depth} code points
+     * @return node to match the rest of them, safe to be appended to the shared prefix
+     */
+    private static Node trie(final List<int[]> keywords, final int depth) {
+        int ended = -1;
+        for (int i = 0; i < keywords.size(); i++) {
+            if (keywords.get(i).length == depth) {
+                ended = i;
+                break;
+            }
+        }
+        if (ended < 0) {
+            return braced(branches(keywords, depth));
+        }
+
+        List<int[]> before = keywords.subList(0, ended);
+        List<int[]> after = keywords.subList(ended + 1, keywords.size());
+        if (before.isEmpty() && after.isEmpty()) {
+            return Sequence.EMPTY;
+        }
+        if (after.isEmpty()) {
+            return new Quantifier(Group.nonCapturing(branches(before, depth)), 0, 1, Quantifier.Form.OPTIONAL);
+        }
+
+        List<Node> alternatives = new ArrayList<>(3);
+        if (!before.isEmpty()) {
+            alternatives.add(branches(before, depth));
+        }
+        alternatives.add(Sequence.EMPTY);
+        alternatives.add(branches(after, depth));
+        return Group.nonCapturing(new Alternation(alternatives));
+    }
+
+    /**
+     * @param keywords - none of them ends at {@code depth}
+     * @return alternation by next code point, each branch is the longest common prefix and the rest
+     */
+    private static Node branches(final List<int[]> keywords, final int depth) {
+        Map<Integer, List<int[]>> byNext = new LinkedHashMap<>();
+        for (int[] keyword : keywords) {
+            List<int[]> same = byNext.get(keyword[depth]);
+            if (same == null) {
+                same = new ArrayList<>();
+                byNext.put(keyword[depth], same);
+            }
+            same.add(keyword);
+        }
+
+        List<Node> branches = new ArrayList<>(byNext.size());
+        for (List<int[]> same : byNext.values()) {
+            int shared = commonLength(same, depth);
+            Literal prefix = new Literal(new String(same.get(0), depth, shared - depth));
+            Node rest = trie(same, shared);
+            branches.add(rest == Sequence.EMPTY ? prefix : Sequence.of(prefix, rest));
+        }
+        return branches.size() == 1 ? branches.get(0) : new Alternation(branches);
+    }
+
+    private static int commonLength(final List<int[]> keywords, final int depth) {
+        int[] first = keywords.get(0);
+        int length = depth + 1;
+        while (length < first.length) {
+            for (int[] keyword : keywords) {
+                if (keyword.length <= length || keyword[length] != first[length]) {
+                    return length;
+                }
+            }
+            length++;
+        }
+        return length;
+    }
+
+    private static Node braced(final Node node) {
+        return node instanceof Alternation ? Group.nonCapturing(node) : node;
+    }
+}
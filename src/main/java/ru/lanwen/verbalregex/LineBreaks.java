@@ -0,0 +1,116 @@
+package ru.lanwen.verbalregex;
+
+import java.util.regex.Pattern;
+
+import ru.lanwen.verbalregex.Node.Alternation;
+import ru.lanwen.verbalregex.Node.Anchor;
+import ru.lanwen.verbalregex.Node.CharClass;
+import ru.lanwen.verbalregex.Node.Group;
+import ru.lanwen.verbalregex.Node.Literal;
+import ru.lanwen.verbalregex.Node.OneOf;
+import ru.lanwen.verbalregex.Node.Quantifier;
+import ru.lanwen.verbalregex.Node.Sequence;
+
+/**
+ * Finds out from the tree, if matches of the expression may contain '\n' or '\r'.
+ * If they can't, every match lies inside of one line, and lines may be searched apart from each other,
+ * e.g. {@code lineBreak()}, {@code anythingBut("x")} or {@code anything()} with {@link Pattern#DOTALL} may contain them.
+ * <p>
+ * Conservative: true for {@link Node.Raw} source and regex values of {@link OneOf}.
+ *
+ * @since 1.9
+ */
+final class LineBreaks {
+
+    private LineBreaks() {
+    }
+
+    /**
+     * @param root      - tree of the expression
+     * @param modifiers - flags the pattern is compiled with
+     * @return true if each line may be searched as the whole text, and together they find the same as the text
+     */
+    static boolean searchableByLines(final Node root, final int modifiers) {
+        // "^" and "$" match at the bounds of the line only in the multiline mode
+        return !mayMatch(root, modifiers)
+                && ((modifiers & Pattern.MULTILINE) != 0 || !RequiredLiteral.hasAnchor(root));
+    }
+
+    /**
+     * @param node      - tree of the expression
+     * @param modifiers - flags the pattern is compiled with
+     * @return true if some match may contain a line break
+     */
+    static boolean mayMatch(final Node node, final int modifiers) {
+        if (node instanceof Literal) {
+            return hasLineBreak(((Literal) node).text);
+        }
+        if (node instanceof Anchor) {
+            return false;
+        }
+        if (node instanceof CharClass) {
+            return mayMatch((CharClass) node, modifiers);
+        }
+        if (node instanceof Group) {
+            Group group = (Group) node;
+            return mayMatch(group.body, (modifiers | group.flagsOn) & ~group.flagsOff);
+        }
+        if (node instanceof Quantifier) {
+            return mayMatch(((Quantifier) node).child, modifiers);
+        }
+        if (node instanceof OneOf) {
+            for (String value : ((OneOf) node).values) {
+                if (value == null || !KeywordTrie.isPlain(value) || hasLineBreak(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        Node[] children = node instanceof Sequence ? ((Sequence) node).items
+                : node instanceof Alternation ? ((Alternation) node).branches
+                : null;
+        if (children == null) {
+            return true;
+        }
+        for (Node child : children) {
+            if (mayMatch(child, modifiers)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean mayMatch(final CharClass node, final int modifiers) {
+        switch (node.predefined) {
+            case '.':
+                // without DOTALL it doesn't match '\n', and '\r' is skipped only without UNIX_LINES
+                return (modifiers & (Pattern.DOTALL | Pattern.UNIX_LINES)) != 0;
+            case 'w':
+            case 'd':
+            case 'S':
+                return false;
+            case CharClass.SET:
+                break;
+            default:
+                return true;
+        }
+        if (node.negated) {
+            return node.members.indexOf('\n') < 0 || node.members.indexOf('\r') < 0;
+        }
+        if (hasLineBreak(node.members)) {
+            return true;
+        }
+        for (int i = 1; i < node.ranges.length; i += 2) {
+            String from = node.ranges[i - 1];
+            String to = node.ranges[i];
+            if (from.length() != 1 || to.length() != 1 || from.charAt(0) <= '\r' && to.charAt(0) >= '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasLineBreak(final String text) {
+        return text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+    }
+}
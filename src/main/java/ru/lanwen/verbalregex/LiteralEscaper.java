@@ -0,0 +1,52 @@
+package ru.lanwen.verbalregex;
+
+/**
+ * Escapes literal values for {@link VerbalExpression.Builder}.
+ * Produces the same result as {@code value.replaceAll("[\\W]", "\\\\$0")}, but in a single scan,
+ * without compiling a regex and without intermediate strings:
+ * every code point except [a-zA-Z_0-9] gets a leading backslash.
+ * A surrogate pair is one code point, so it gets only one backslash.
+ *
+ * @since 1.9
+ */
+final class LiteralEscaper {
+
+    private LiteralEscaper() {
+    }
+
+    /**
+     * Appends escaped value to the buffer
+     *
+     * @param value - the string for char escaping
+     * @param out   - buffer to write to
+     * @return same buffer
+     */
+    static StringBuilder escape(final CharSequence value, final StringBuilder out) {
+        final int length = value.length();
+        int plainFrom = 0;
+        int i = 0;
+        while (i < length) {
+            char ch = value.charAt(i);
+            if (isWordChar(ch)) {
+                i++;
+                continue;
+            }
+
+            out.append(value, plainFrom, i).append('\\').append(ch);
+            i++;
+            if (Character.isHighSurrogate(ch) && i < length && Character.isLowSurrogate(value.charAt(i))) {
+                out.append(value.charAt(i));
+                i++;
+            }
+            plainFrom = i;
+        }
+        return out.append(value, plainFrom, length);
+    }
+
+    /**
+     * Same as [a-zA-Z_0-9]
+     */
+    static boolean isWordChar(final char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch == '_';
+    }
+}
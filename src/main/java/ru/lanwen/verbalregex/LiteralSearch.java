@@ -0,0 +1,122 @@
+package ru.lanwen.verbalregex;
+
+import java.util.Arrays;
+
+/**
+ * Search of the one literal in any {@link CharSequence}, used by {@link RequiredLiteral}.
+ * {@link String#indexOf(String, int)} is used for the whole string,
+ * Boyer-Moore-Horspool for the other sequences and for regions, so nothing is copied.
+ * <p>
+ * Shifts are taken by the last two chars of the window instead of one: text of words and spaces
+ * has most of its chars in the literal, but rarely the same pairs of them.
+ *
+ * @since 1.9
+ */
+final class LiteralSearch {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    /**
+     * Pairs of chars share the shift by 5 low bits of each char, the smallest shift of them is kept
+     */
+    private static final int TABLE_SIZE = 1 << (2 * BITS);
+    private static final int MAX_SHIFT = 255;
+
+    private final String literal;
+    /**
+     * Unsigned shifts, built on the first search in not a whole string
+     */
+    private volatile byte[] shifts;
+
+    LiteralSearch(final String literal) {
+        this.literal = literal;
+    }
+
+    /**
+     * @param text - text to search in
+     * @param from - index to start from
+     * @param to   - index after the last char to search in
+     * @return index of the first occurrence, that ends before {@code to}, or -1
+     */
+    int indexOf(final CharSequence text, final int from, final int to) {
+        if (text instanceof String && to == text.length()) {
+            return ((String) text).indexOf(literal, from);
+        }
+        int length = literal.length();
+        if (length < 2) {
+            return scan(text, from, to);
+        }
+        byte[] table = shifts();
+        int last = length - 1;
+        for (int end = from + last; end < to; ) {
+            int shift = table[pair(text.charAt(end - 1), text.charAt(end))] & 0xFF;
+            if (shift == 0) {
+                // chars of the pair are compared too, as the table tells them only by their low bits
+                if (matchesAt(text, end - last, length)) {
+                    return end - last;
+                }
+                shift = 1;
+            }
+            end += shift;
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if the text has the literal at the index
+     */
+    boolean startsAt(final CharSequence text, final int index) {
+        return index + literal.length() <= text.length() && matchesAt(text, index, literal.length());
+    }
+
+    /**
+     * Search of the empty or one char literal
+     */
+    private int scan(final CharSequence text, final int from, final int to) {
+        if (literal.isEmpty()) {
+            return from <= to ? from : -1;
+        }
+        char ch = literal.charAt(0);
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == ch) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private byte[] shifts() {
+        byte[] table = shifts;
+        if (table == null) {
+            int last = literal.length() - 1;
+            // the literal can't end before the pair, that is not in it, but may start at its last char
+            table = new byte[TABLE_SIZE];
+            Arrays.fill(table, (byte) Math.min(last, MAX_SHIFT));
+            for (int i = 1; i <= last; i++) {
+                int pair = pair(literal.charAt(i - 1), literal.charAt(i));
+                int shift = Math.min(last - i, MAX_SHIFT);
+                if (shift < (table[pair] & 0xFF)) {
+                    table[pair] = (byte) shift;
+                }
+            }
+            shifts = table;
+        }
+        return table;
+    }
+
+    private static int pair(final char first, final char second) {
+        return (first & MASK) << BITS | second & MASK;
+    }
+
+    /**
+     * @param count - how many first chars of the literal to compare
+     */
+    private boolean matchesAt(final CharSequence text, final int index, final int count) {
+        for (int i = 0; i < count; i++) {
+            if (text.charAt(index + i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
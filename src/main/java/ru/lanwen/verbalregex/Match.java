@@ -0,0 +1,71 @@
+package ru.lanwen.verbalregex;
+
+import java.util.regex.MatchResult;
+
+/**
+ * Offsets of one match, given by {@link Matches}. Unlike {@link java.util.regex.Matcher#toMatchResult()},
+ * the text is not copied: groups are cut from it only when asked
+ *
+ * @since 1.9
+ */
+final class Match implements MatchResult {
+
+    private final CharSequence text;
+    /**
+     * Start and end of each group, group 0 first. -1 for groups, that didn't take part in the match
+     */
+    private final int[] offsets;
+
+    Match(final CharSequence text, final int[] offsets) {
+        this.text = text;
+        this.offsets = offsets;
+    }
+
+    @Override
+    public int start() {
+        return start(0);
+    }
+
+    @Override
+    public int start(final int group) {
+        return offsets[index(group)];
+    }
+
+    @Override
+    public int end() {
+        return end(0);
+    }
+
+    @Override
+    public int end(final int group) {
+        return offsets[index(group) + 1];
+    }
+
+    @Override
+    public String group() {
+        return group(0);
+    }
+
+    @Override
+    public String group(final int group) {
+        int start = start(group);
+        return start < 0 ? null : text.subSequence(start, end(group)).toString();
+    }
+
+    @Override
+    public int groupCount() {
+        return offsets.length / 2 - 1;
+    }
+
+    private int index(final int group) {
+        if (group < 0 || group > groupCount()) {
+            throw new IndexOutOfBoundsException("No group " + group);
+        }
+        return 2 * group;
+    }
+
+    @Override
+    public String toString() {
+        return "Match{[" + start() + ", " + end() + "): " + group() + "}";
+    }
+}
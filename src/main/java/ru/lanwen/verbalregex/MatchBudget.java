@@ -0,0 +1,96 @@
+package ru.lanwen.verbalregex;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limit of work for one match of the untrusted text: count of chars, the matcher may read, and time it may take.
+ * Budgeted methods, e.g. {@link VerbalExpression#test(CharSequence, MatchBudget)}, throw
+ * {@link MatchTimeoutException}, once it is exceeded, so the expression with catastrophic backtracking
+ * can't hang the thread.
+ * <p>
+ * Example:
+ * <pre>
+ * MatchBudget budget = MatchBudget.steps(1000000).withTimeout(50, TimeUnit.MILLISECONDS);
+ * try {
+ *     if (userExpression.test(request.body(), budget)) {
+ *         ...
+ *     }
+ * } catch (MatchTimeoutException e) {
+ *     reject(request);
+ * }
+ * </pre>
+ * Steps are reads of chars by the matcher: each backtrack reads them again, so they grow with the work done,
+ * not with the length of the text. The clock is checked once in 1024 steps.
+ * <p>
+ * Immutable: the same budget is given to each match, and the time is counted from its start.
+ *
+ * @since 1.9
+ */
+public final class MatchBudget {
+
+    private static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final long maxSteps;
+    private final long timeoutNanos;
+
+    private MatchBudget(final long maxSteps, final long timeoutNanos) {
+        this.maxSteps = maxSteps;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    /**
+     * @param maxSteps - chars, the matcher may read
+     * @return budget without the time limit
+     * @throws IllegalArgumentException if steps are not positive
+     */
+    public static MatchBudget steps(final long maxSteps) {
+        return new MatchBudget(UNLIMITED, UNLIMITED).withSteps(maxSteps);
+    }
+
+    /**
+     * @param timeout - time, the match may take
+     * @param unit    - unit of the timeout
+     * @return budget without the step limit
+     * @throws IllegalArgumentException if timeout is not positive
+     */
+    public static MatchBudget timeout(final long timeout, final TimeUnit unit) {
+        return new MatchBudget(UNLIMITED, UNLIMITED).withTimeout(timeout, unit);
+    }
+
+    /**
+     * @param maxSteps - chars, the matcher may read
+     * @return same budget with the other step limit
+     */
+    public MatchBudget withSteps(final long maxSteps) {
+        if (maxSteps <= 0) {
+            throw new IllegalArgumentException("Steps should be positive: " + maxSteps);
+        }
+        return new MatchBudget(maxSteps, timeoutNanos);
+    }
+
+    /**
+     * @param timeout - time, the match may take
+     * @param unit    - unit of the timeout
+     * @return same budget with the other time limit
+     */
+    public MatchBudget withTimeout(final long timeout, final TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("Timeout should be positive: " + timeout);
+        }
+        return new MatchBudget(maxSteps, unit.toNanos(timeout));
+    }
+
+    /**
+     * @return the text, that counts reads of its chars against this budget from now
+     */
+    CharSequence wrap(final CharSequence text) {
+        return new BudgetedText(text, maxSteps, timeoutNanos == UNLIMITED ? 0 : System.nanoTime() + timeoutNanos,
+                timeoutNanos != UNLIMITED);
+    }
+
+    @Override
+    public String toString() {
+        return "MatchBudget{steps=" + (maxSteps == UNLIMITED ? "unlimited" : maxSteps)
+                + ", timeout=" + (timeoutNanos == UNLIMITED ? "unlimited" : timeoutNanos + "ns") + "}";
+    }
+}
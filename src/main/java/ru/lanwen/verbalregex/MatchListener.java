@@ -0,0 +1,38 @@
+package ru.lanwen.verbalregex;
+
+/**
+ * Listener of each match of every {@link VerbalExpression}, to find out which of them take the time.
+ * Called by {@code test}, {@code testExact}, {@code getText} and {@code getTextGroups} of the expression
+ * after the match, on the thread that matched, so it should be fast and thread-safe.
+ * Matches, that threw an exception, are not reported.
+ * <p>
+ * Not called until set:
+ * <pre>
+ * MatchMetrics metrics = new MatchMetrics();
+ * VerbalExpression.setListener(metrics);
+ * ...
+ * metrics.getStats(expression).percentile(0.99); // nanos
+ * </pre>
+ * Without the listener the cost of the match is the same, as before, except the check for null.
+ *
+ * @see MatchMetrics
+ * @since 1.9
+ */
+public interface MatchListener {
+
+    enum Operation {
+        TEST,
+        TEST_EXACT,
+        GET_TEXT,
+        GET_TEXT_GROUPS
+    }
+
+    /**
+     * @param expression - expression, that matched, {@link VerbalExpression#toString()} is its source
+     * @param operation  - method, that was called
+     * @param length     - chars in the text, or in its region
+     * @param matched    - result of the test, or whether anything was extracted
+     * @param nanos      - time of the match
+     */
+    void onMatch(VerbalExpression expression, Operation operation, int length, boolean matched, long nanos);
+}
@@ -0,0 +1,220 @@
+package ru.lanwen.verbalregex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link MatchListener}, that keeps count of calls, count of matches and the histogram of time of matches
+ * for each expression. Recording is lock-free: counters are atomic, so threads never wait for each other,
+ * except the first call of the expression, that adds it to the map.
+ * <p>
+ * Example:
+ * <pre>
+ * MatchMetrics metrics = new MatchMetrics();
+ * VerbalExpression.setListener(metrics);
+ * ...
+ * for (MatchMetrics.Stats stats : metrics.top(10)) {
+ *     log.info(stats.toString()); // \d+ calls=1000 matched=0.75 total=1520000ns p50=1400ns p99=2100ns max=9000ns
+ * }
+ * </pre>
+ * Histogram buckets are exact up to 32ns, and no wider than 1/16 of their value above it, like in HdrHistogram.
+ * Expressions are kept, until {@link #clear()}, so it is for the fixed set of rules, not for the ones built
+ * for each request.
+ *
+ * @since 1.9
+ */
+public final class MatchMetrics implements MatchListener {
+
+    private final ConcurrentMap<VerbalExpression, Stats> stats = new ConcurrentHashMap<>();
+
+    @Override
+    public void onMatch(final VerbalExpression expression, final Operation operation, final int length,
+                        final boolean matched, final long nanos) {
+        Stats current = stats.get(expression);
+        if (current == null) {
+            Stats created = new Stats(expression.toString());
+            current = stats.putIfAbsent(expression, created);
+            if (current == null) {
+                current = created;
+            }
+        }
+        current.record(matched, nanos);
+    }
+
+    /**
+     * @param expression - expression to get metrics of
+     * @return metrics of the expression, or null if it was not matched yet
+     */
+    public Stats getStats(final VerbalExpression expression) {
+        return stats.get(expression);
+    }
+
+    /**
+     * @return live view of metrics of every matched expression
+     */
+    public Map<VerbalExpression, Stats> getAll() {
+        return Collections.unmodifiableMap(stats);
+    }
+
+    /**
+     * @param count - how many expressions to return at most
+     * @return metrics of the expressions, that took the most time in total, from the slowest one
+     */
+    public List<Stats> top(final int count) {
+        List<Stats> sorted = new ArrayList<>(stats.values());
+        Collections.sort(sorted, new Comparator<Stats>() {
+            @Override
+            public int compare(final Stats left, final Stats right) {
+                return Long.compare(right.getTotalNanos(), left.getTotalNanos());
+            }
+        });
+        return sorted.subList(0, Math.min(count, sorted.size()));
+    }
+
+    /**
+     * Forgets all expressions and their metrics
+     */
+    public void clear() {
+        stats.clear();
+    }
+
+    /**
+     * Metrics of one expression. Values are read one by one, while other threads record, so they may
+     * differ by the calls in progress
+     */
+    public static final class Stats {
+
+        /**
+         * Each power of 2 is split to 2^SUB_BITS buckets
+         */
+        private static final int SUB_BITS = 4;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        /**
+         * Matches longer than 2^40ns (~18 minutes) are counted in the last bucket
+         */
+        private static final int MAX_BITS = 40;
+        private static final int BUCKETS = (MAX_BITS - SUB_BITS + 1) << SUB_BITS;
+
+        private final String source;
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong matches = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        Stats(final String source) {
+            this.source = source;
+        }
+
+        void record(final boolean matched, final long nanos) {
+            long value = Math.max(nanos, 0);
+            calls.incrementAndGet();
+            if (matched) {
+                matches.incrementAndGet();
+            }
+            totalNanos.addAndGet(value);
+            buckets.incrementAndGet(bucket(value));
+            long max = maxNanos.get();
+            while (value > max && !maxNanos.compareAndSet(max, value)) {
+                max = maxNanos.get();
+            }
+        }
+
+        /**
+         * @return source of the expression
+         */
+        public String getSource() {
+            return source;
+        }
+
+        public long getCalls() {
+            return calls.get();
+        }
+
+        public long getMatches() {
+            return matches.get();
+        }
+
+        /**
+         * @return share of calls, that matched, from 0 to 1
+         */
+        public double getMatchRate() {
+            long count = calls.get();
+            return count == 0 ? 0 : (double) matches.get() / count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.get();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * @param quantile - from 0 to 1, e.g. 0.99
+         * @return time, that this share of matches took at most, rounded up to the bucket, 0 if none
+         * @throws IllegalArgumentException if quantile is not from 0 to 1
+         */
+        public long percentile(final double quantile) {
+            if (!(quantile >= 0 && quantile <= 1)) {
+                throw new IllegalArgumentException("Quantile should be from 0 to 1: " + quantile);
+            }
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highest(i), maxNanos.get());
+                }
+            }
+            return 0;
+        }
+
+        static int bucket(final long value) {
+            if (value < SUB_COUNT) {
+                return (int) value;
+            }
+            if (value >= 1L << MAX_BITS) {
+                return BUCKETS - 1;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            return (exponent - SUB_BITS + 1) << SUB_BITS
+                    | (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        }
+
+        /**
+         * @return greatest value of the bucket
+         */
+        static long highest(final int bucket) {
+            int power = bucket >>> SUB_BITS;
+            if (power == 0) {
+                return bucket;
+            }
+            long width = 1L << (power - 1);
+            return (SUB_COUNT + (bucket & (SUB_COUNT - 1))) * width + width - 1;
+        }
+
+        @Override
+        public String toString() {
+            return source + " calls=" + getCalls()
+                    + " matched=" + String.format(Locale.ROOT, "%.2f", getMatchRate())
+                    + " total=" + getTotalNanos() + "ns p50=" + percentile(0.5) + "ns p99=" + percentile(0.99)
+                    + "ns max=" + getMaxNanos() + "ns";
+        }
+    }
+}
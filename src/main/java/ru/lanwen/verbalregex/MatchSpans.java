@@ -0,0 +1,132 @@
+package ru.lanwen.verbalregex;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffer of match offsets, filled by {@link VerbalExpression#spans(CharSequence, MatchSpans, int...)}.
+ * Keeps start and end of each requested group for each match in one growable int array,
+ * so no strings and no objects are created per match.
+ * <p>
+ * Example:
+ * <pre>
+ * MatchSpans spans = new MatchSpans();
+ * regex().capture().word().endCapture().then("=").digit().oneOrMore().build()
+ *         .spans("a=1 bb=22", spans, 0, 1);
+ * spans.count();       // 2
+ * spans.start(1, 0);   // 4 - start of the second match
+ * spans.end(1, 1);     // 6 - end of its group 1
+ * </pre>
+ * Group, that didn't take part in the match, has -1 as both start and end.
+ * Not thread-safe, is overwritten by each search.
+ *
+ * @since 1.9
+ */
+public final class MatchSpans {
+
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private int[] offsets;
+    /**
+     * Used ints of the offsets
+     */
+    private int size;
+    /**
+     * Requested groups of each match
+     */
+    private int groups = 1;
+
+    public MatchSpans() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity - how many offsets to keep without growing
+     */
+    public MatchSpans(final int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity should not be negative: " + initialCapacity);
+        }
+        this.offsets = new int[initialCapacity];
+    }
+
+    /**
+     * @return how many matches are found
+     */
+    public int count() {
+        return size / (2 * groups);
+    }
+
+    /**
+     * @return how many groups are kept for each match
+     */
+    public int groups() {
+        return groups;
+    }
+
+    /**
+     * @param match - index of the match
+     * @param group - index of the group in the requested ones, not the group number
+     * @return start of the group in the text, or -1
+     */
+    public int start(final int match, final int group) {
+        return offsets[index(match, group)];
+    }
+
+    /**
+     * @param match - index of the match
+     * @param group - index of the group in the requested ones, not the group number
+     * @return index after the end of the group in the text, or -1
+     */
+    public int end(final int match, final int group) {
+        return offsets[index(match, group) + 1];
+    }
+
+    /**
+     * Backing array, to read without bounds checks of each offset: start and end of every requested group,
+     * match by match. Only first {@code count() * groups() * 2} ints are valid,
+     * the array is replaced when the buffer grows
+     *
+     * @return offsets
+     */
+    public int[] offsets() {
+        return offsets;
+    }
+
+    /**
+     * Forgets found matches, the array is kept
+     *
+     * @param groupsPerMatch - how many groups will be added for each match
+     */
+    void reset(final int groupsPerMatch) {
+        this.groups = groupsPerMatch;
+        this.size = 0;
+    }
+
+    void add(final int start, final int end) {
+        if (size + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, Math.max(2 * offsets.length, size + 2));
+        }
+        offsets[size++] = start;
+        offsets[size++] = end;
+    }
+
+    private int index(final int match, final int group) {
+        if (match < 0 || match >= count() || group < 0 || group >= groups) {
+            throw new IndexOutOfBoundsException("No group " + group + " of match " + match + ", found "
+                    + count() + " matches of " + groups + " groups");
+        }
+        return 2 * (match * groups + group);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder("MatchSpans{");
+        for (int i = 0; i < size; i += 2) {
+            if (i > 0) {
+                out.append(i % (2 * groups) == 0 ? "; " : ", ");
+            }
+            out.append('[').append(offsets[i]).append(", ").append(offsets[i + 1]).append(')');
+        }
+        return out.append('}').toString();
+    }
+}
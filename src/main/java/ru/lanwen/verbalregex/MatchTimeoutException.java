@@ -0,0 +1,26 @@
+package ru.lanwen.verbalregex;
+
+/**
+ * Thrown by budgeted methods of {@link VerbalExpression}, when the match exceeds its {@link MatchBudget}.
+ * The text is neither matched nor rejected: the expression backtracks too much on it.
+ *
+ * @since 1.9
+ */
+public class MatchTimeoutException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long steps;
+
+    public MatchTimeoutException(final String message, final long steps) {
+        super(message);
+        this.steps = steps;
+    }
+
+    /**
+     * @return chars, the matcher read before it was stopped
+     */
+    public long getSteps() {
+        return steps;
+    }
+}
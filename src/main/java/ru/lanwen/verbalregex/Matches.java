@@ -0,0 +1,103 @@
+package ru.lanwen.verbalregex;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.MatchResult;
+
+/**
+ * Matches of the expression in the text, found lazily one by one while iterating.
+ * Nothing is searched before the first {@link Iterator#hasNext()}, and the search stops with the iteration:
+ * <pre>
+ * for (MatchResult match : regex.matches(text)) {
+ *     if (match.group().startsWith("stop")) {
+ *         break; // the rest of the text is not scanned
+ *     }
+ * }
+ * </pre>
+ * Each iterator has its own matcher, so they may be used from different threads.
+ * Matches keep the reference to the text, it should not be changed while they are used.
+ * <p>
+ * Large text can be {@link #split(int) split} by lines to search the parts in parallel.
+ *
+ * @since 1.9
+ */
+public final class Matches implements Iterable<MatchResult> {
+
+    private final VerbalExpression expression;
+    private final CharSequence text;
+    private final int start;
+    private final int end;
+
+    Matches(final VerbalExpression expression, final CharSequence text, final int start, final int end) {
+        if (start < 0 || start > end || end > text.length()) {
+            throw new IndexOutOfBoundsException("Region " + start + ".." + end + " of " + text.length() + " chars");
+        }
+        this.expression = expression;
+        this.text = text;
+        this.start = start;
+        this.end = end;
+    }
+
+    @Override
+    public Iterator<MatchResult> iterator() {
+        return expression.matcher().iterator(text, start, end);
+    }
+
+    /**
+     * Splits the region to about equal parts, that end right after line breaks.
+     * Each part is searched as if it was the whole text, so together they find the same as the whole region,
+     * if no match of the expression crosses a line break and "^" matches at the start of each line
+     * (that is the default, unless {@link VerbalExpression.Builder#searchOneLine(boolean)} is turned ON)
+     *
+     * @param parts - how many parts to get at most
+     * @return parts in order of the text, fewer of them if the text has not enough lines
+     */
+    public List<Matches> split(final int parts) {
+        if (parts <= 0) {
+            throw new IllegalArgumentException("Count of parts should be positive: " + parts);
+        }
+        List<Matches> split = new ArrayList<>(parts);
+        int partStart = start;
+        for (int part = 1; part < parts && partStart < end; part++) {
+            int partEnd = lineEnd(start + (int) ((long) (end - start) * part / parts));
+            if (partEnd > partStart && partEnd < end) {
+                split.add(new Matches(expression, text, partStart, partEnd));
+                partStart = partEnd;
+            }
+        }
+        split.add(new Matches(expression, text, partStart, end));
+        return split;
+    }
+
+    /**
+     * @return first char of the region
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * @return index after the last char of the region
+     */
+    public int end() {
+        return end;
+    }
+
+    /**
+     * @return index after the first line break at or after the index, or the end of the region
+     */
+    private int lineEnd(final int from) {
+        for (int i = Math.max(from, start + 1); i < end; i++) {
+            if (text.charAt(i - 1) == '\n') {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    @Override
+    public String toString() {
+        return "Matches{" + expression + " in [" + start + ", " + end + ")}";
+    }
+}
@@ -0,0 +1,451 @@
+package ru.lanwen.verbalregex;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable node of the expression tree, recorded by {@link VerbalExpression.Builder}
+ * and rendered to pattern source only by {@link VerbalExpression.Builder#build()}.
+ * <p>
+ * Nodes never change after creation, so builders can share them freely
+ * (e.g. when cloned with {@link VerbalExpression#regex(VerbalExpression.Builder)}
+ * or added to another builder with {@link VerbalExpression.Builder#add(VerbalExpression.Builder)}).
+ * Content of {@link Raw} nodes is not parsed and should be treated as opaque by any pass over the tree.
+ *
+ * @since 1.9
+ */
+abstract class Node {
+
+    /**
+     * Appends pattern source of this node
+     *
+     * @param out - buffer to write to
+     */
+    abstract void render(StringBuilder out);
+
+    /**
+     * @return pattern source of this node
+     */
+    final String render() {
+        StringBuilder out = new StringBuilder();
+        render(out);
+        return out.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + render() + "]";
+    }
+
+    /**
+     * String to be matched literally, e.g. {@link VerbalExpression.Builder#then(String)}
+     */
+    static final class Literal extends Node {
+        final String text;
+        private final String source;
+
+        /**
+         * @param text - the string to be matched, rendered escaped by {@link LiteralEscaper}
+         */
+        Literal(final String text) {
+            this(text, null);
+        }
+
+        /**
+         * @param text   - the string to be matched
+         * @param source - how to render it, e.g. "\\t" for a tab
+         */
+        Literal(final String text, final String source) {
+            this.text = Objects.requireNonNull(text, "text");
+            this.source = source;
+        }
+
+        @Override
+        void render(final StringBuilder out) {
+            if (source == null) {
+                LiteralEscaper.escape(text, out);
+            } else {
+                out.append(source);
+            }
+        }
+    }
+
+    /**
+     * Source added with {@link VerbalExpression.Builder#add(String)}, appended as is
+     */
+    static final class Raw extends Node {
+        final String source;
+
+        Raw(final String source) {
+            this.source = source;
+        }
+
+        @Override
+        void render(final StringBuilder out) {
+            out.append(source);
+        }
+    }
+
+    /**
+     * Alternatives added with {@link VerbalExpression.Builder#oneOf(String...)}, each of them is a regex itself.
+     * Rendered in braces: (?:(?:a)|(?:b)), until replaced with a trie by {@link KeywordTrie}
+     */
+    static final class OneOf extends Node {
+        final String[] values;
+
+        OneOf(final String... values) {
+            this.values = values.clone();
+        }
+
+        @Override
+        void render(final StringBuilder out) {
+            out.append("(?:");
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.append('|');
+                }
+                out.append("(?:").append(values[i]).append(')');
+            }
+            out.append(')');
+        }
+    }
+
+    /**
+     * Single character from predefined class: ".", "\\w", "\\d", ...
+     * or from the set: "[abc]", "[^abc]", "[a-zA-Z]"
+     */
+    static final class CharClass extends Node {
+        static final char SET = 0;
+
+        /**
+         * One of '.', 'w', 'W', 'd', 'D', 's', 'S' or {@link #SET}
+         */
+        final char predefined;
+        final boolean negated;
+        /**
+         * Every char of it is a member of the set, not escaped
+         */
+        final String members;
+        /**
+         * Pairs of from, to bounds of the set, not escaped
+         */
+        final String[] ranges;
+
+        private CharClass(final char predefined, final boolean negated, final String members, final String[] ranges) {
+            this.predefined = predefined;
+            this.negated = negated;
+            this.members = members;
+            this.ranges = ranges;
+        }
+
+        static CharClass predefined(final char symbol) {
+            return new CharClass(symbol, false, "", new String[0]);
+        }
+
+        static CharClass of(final String members, final boolean negated) {
+            return new CharClass(SET, negated, Objects.requireNonNull(members, "members"), new String[0]);
+        }
+
+        static CharClass ranges(final String... ranges) {
+            for (int i = 1; i < ranges.length; i += 2) {
+                Objects.requireNonNull(ranges[i - 1], "from");
+                Objects.requireNonNull(ranges[i], "to");
+            }
+            return new CharClass(SET, false, "", ranges);
+        }
+
+        @Override
+        void render(final StringBuilder out) {
+            if (predefined == '.') {
+                out.append('.');
+                return;
+            }
+            if (predefined != SET) {
+                out.append('\\').append(predefined);
+                return;
+            }
+
+            out.append(negated ? "[^" : "[");
+            LiteralEscaper.escape(members, out);
+            for (int i = 1; i < ranges.length; i += 2) {
+                LiteralEscaper.escape(ranges[i - 1], out).append('-');
+                LiteralEscaper.escape(ranges[i], out);
+            }
+            out.append(']');
+        }
+    }
+
+    /**
+     * Zero-width assertion: "^", "$" or "\\b"
+     */
+    static final class Anchor extends Node {
+        static final Anchor START_OF_LINE = new Anchor("^");
+        static final Anchor END_OF_LINE = new Anchor("$");
+        static final Anchor WORD_BOUNDARY = new Anchor("\\b");
+
+        private final String source;
+
+        private Anchor(final String source) {
+            this.source = source;
+        }
+
+        @Override
+        void render(final StringBuilder out) {
+            out.append(source);
+        }
+    }
+
+    /**
+     * Any kind of braces around the body: (?: ... ), ( ... ), (?&lt;name&gt; ... ), (?i-m: ... ) or (?&gt; ... )
+     */
+    static final class Group extends Node {
+
+        enum Kind {
+            NON_CAPTURING,
+            CAPTURING,
+            NAMED,
+            /**
+             * Non capturing group with inline modifiers
+             */
+            FLAGS,
+            /**
+             * Non capturing group, that is not backtracked into, once matched
+             */
+            ATOMIC
+        }
+
+        /**
+         * Inline flag symbols in the order they are rendered with {@link Kind#FLAGS}
+         */
+        private static final String FLAG_SYMBOLS = "dixmsuU";
+        private static final int[] FLAG_VALUES = {
+                Pattern.UNIX_LINES, Pattern.CASE_INSENSITIVE, Pattern.COMMENTS, Pattern.MULTILINE,
+                Pattern.DOTALL, Pattern.UNICODE_CASE, Pattern.UNICODE_CHARACTER_CLASS,
+        };
+
+        final Kind kind;
+        final String name;
+        final int flagsOn;
+        final int flagsOff;
+        final Node body;
+
+        private Group(final Kind kind, final String name, final int flagsOn, final int flagsOff, final Node body) {
+            this.kind = kind;
+            this.name = name;
+            this.flagsOn = flagsOn;
+            this.flagsOff = flagsOff;
+            this.body = body;
+        }
+
+        static Group nonCapturing(final Node body) {
+            return new Group(Kind.NON_CAPTURING, null, 0, 0, body);
+        }
+
+        /**
+         * @param name - name of the group, or null for numbered capture
+         */
+        static Group capturing(final String name, final Node body) {
+            if (name == null) {
+                return new Group(Kind.CAPTURING, null, 0, 0, body);
+            }
+            return new Group(Kind.NAMED, name, 0, 0, body);
+        }
+
+        static Group flags(final int flagsOn, final int flagsOff, final Node body) {
+            return new Group(Kind.FLAGS, null, flagsOn, flagsOff, body);
+        }
+
+        static Group atomic(final Node body) {
+            return new Group(Kind.ATOMIC, null, 0, 0, body);
+        }
+
+        /**
+         * @return same kind of group with the other body
+         */
+        Group withBody(final Node other) {
+            return new Group(kind, name, flagsOn, flagsOff, other);
+        }
+
+        boolean isCapturing() {
+            return kind == Kind.CAPTURING || kind == Kind.NAMED;
+        }
+
+        @Override
+        void render(final StringBuilder out) {
+            switch (kind) {
+                case CAPTURING:
+                    out.append('(');
+                    break;
+                case NAMED:
+                    out.append("(?<").append(name).append('>');
+                    break;
+                case FLAGS:
+                    out.append("(?");
+                    appendFlags(out, flagsOn);
+                    if (flagsOff != 0) {
+                        out.append('-');
+                        appendFlags(out, flagsOff);
+                    }
+                    out.append(':');
+                    break;
+                case ATOMIC:
+                    out.append("(?>");
+                    break;
+                default:
+                    out.append("(?:");
+            }
+            body.render(out);
+            out.append(')');
+        }
+
+        private static void appendFlags(final StringBuilder out, final int flags) {
+            for (int i = 0; i < FLAG_VALUES.length; i++) {
+                if ((flags & FLAG_VALUES[i]) != 0) {
+                    out.append(FLAG_SYMBOLS.charAt(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Repetition of the previous node: "?", "*", "+", "{n}", "{n,m}" or "{n,}"
+     */
+    static final class Quantifier extends Node {
+        static final int UNBOUNDED = -1;
+
+        /**
+         * How it was written - {1,} and + are same for the matcher, but not for {@link #toString()}
+         */
+        enum Form {
+            OPTIONAL,
+            STAR,
+            PLUS,
+            EXACT,
+            RANGE,
+            AT_LEAST
+        }
+
+        final Node child;
+        final int min;
+        final int max;
+        final Form form;
+        final boolean possessive;
+
+        Quantifier(final Node child, final int min, final int max, final Form form, final boolean possessive) {
+            this.child = child;
+            this.min = min;
+            this.max = max;
+            this.form = form;
+            this.possessive = possessive;
+        }
+
+        Quantifier(final Node child, final int min, final int max, final Form form) {
+            this(child, min, max, form, false);
+        }
+
+        Quantifier withChild(final Node other) {
+            return new Quantifier(other, min, max, form, possessive);
+        }
+
+        Quantifier possessive() {
+            return new Quantifier(child, min, max, form, true);
+        }
+
+        @Override
+        void render(final StringBuilder out) {
+            child.render(out);
+            renderSuffix(out);
+        }
+
+        /**
+         * Appends only the quantifier itself, without the repeated node
+         */
+        void renderSuffix(final StringBuilder out) {
+            switch (form) {
+                case OPTIONAL:
+                    out.append('?');
+                    break;
+                case STAR:
+                    out.append('*');
+                    break;
+                case PLUS:
+                    out.append('+');
+                    break;
+                case EXACT:
+                    out.append('{').append(min).append('}');
+                    break;
+                case RANGE:
+                    out.append('{').append(min).append(',').append(max).append('}');
+                    break;
+                default:
+                    out.append('{').append(min).append(",}");
+            }
+            if (possessive) {
+                out.append('+');
+            }
+        }
+    }
+
+    /**
+     * Nodes one after another
+     */
+    static final class Sequence extends Node {
+        static final Sequence EMPTY = new Sequence(new Node[0]);
+
+        final Node[] items;
+
+        private Sequence(final Node[] items) {
+            this.items = items;
+        }
+
+        /**
+         * @return the only item itself, or sequence of copied items
+         */
+        static Node of(final List<Node> items) {
+            if (items.size() == 1) {
+                return items.get(0);
+            }
+            return items.isEmpty() ? EMPTY : new Sequence(items.toArray(new Node[items.size()]));
+        }
+
+        static Node of(final Node... items) {
+            if (items.length == 1) {
+                return items[0];
+            }
+            return items.length == 0 ? EMPTY : new Sequence(items.clone());
+        }
+
+        @Override
+        void render(final StringBuilder out) {
+            for (Node item : items) {
+                item.render(out);
+            }
+        }
+    }
+
+    /**
+     * Alternatives separated with "|", without braces around
+     */
+    static final class Alternation extends Node {
+        final Node[] branches;
+
+        Alternation(final Node... branches) {
+            this.branches = branches.clone();
+        }
+
+        Alternation(final List<Node> branches) {
+            this.branches = branches.toArray(new Node[branches.size()]);
+        }
+
+        @Override
+        void render(final StringBuilder out) {
+            for (int i = 0; i < branches.length; i++) {
+                if (i > 0) {
+                    out.append('|');
+                }
+                branches[i].render(out);
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package ru.lanwen.verbalregex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Searches one large text on all threads of the {@link ForkJoinPool}. The text is {@link Matches#split(int) split}
+ * right after line breaks to more parts, than there are threads, to keep all of them busy,
+ * the parts are searched as regions of the same text, and their results are joined in order of the text.
+ * <p>
+ * Example:
+ * <pre>
+ * ForkJoinPool pool = new ForkJoinPool();
+ * List&lt;String&gt; ids = regex().startOfLine().capture().digit().oneOrMore().endCapture().then(",")
+ *         .build().parallel(pool).getTextGroups(csv, 1);
+ * </pre>
+ * Same as sequential search, if matches of the expression can't contain line breaks.
+ * Otherwise, e.g. with {@link VerbalExpression.Builder#lineBreak()}, {@link VerbalExpression.Builder#anythingBut(String)},
+ * "." with {@link java.util.regex.Pattern#DOTALL}, {@link VerbalExpression.Builder#add(String)} or "^"
+ * without {@link java.util.regex.Pattern#MULTILINE}, the text is searched on the calling thread as usual.
+ * <p>
+ * Thread-safe.
+ *
+ * @since 1.9
+ */
+public final class ParallelSearch {
+
+    /**
+     * Smaller parts are not worth the task
+     */
+    private static final int DEFAULT_PART_SIZE = 1 << 20;
+    /**
+     * Parts per thread, so threads, that are done earlier, take parts of the slower ones
+     */
+    private static final int PARTS_PER_THREAD = 4;
+
+    private final VerbalExpression expression;
+    private final ForkJoinPool pool;
+    private final int partSize;
+
+    ParallelSearch(final VerbalExpression expression, final ForkJoinPool pool, final int partSize) {
+        if (partSize <= 0) {
+            throw new IllegalArgumentException("Part size should be positive: " + partSize);
+        }
+        this.expression = expression;
+        this.pool = pool;
+        this.partSize = partSize;
+    }
+
+    ParallelSearch(final VerbalExpression expression, final ForkJoinPool pool) {
+        this(expression, pool, DEFAULT_PART_SIZE);
+    }
+
+    /**
+     * @param chars - the smallest part of the text to be searched by one task, 1M chars by default
+     * @return new search with the part size
+     */
+    public ParallelSearch partSize(final int chars) {
+        return new ParallelSearch(expression, pool, chars);
+    }
+
+    /**
+     * Same as {@link VerbalExpression#test(CharSequence)}. Parts are skipped, when the match is found in one of them
+     *
+     * @param text - text to search in
+     * @return true if there is a match
+     */
+    public boolean test(final CharSequence text) {
+        List<Matches> parts = split(text);
+        if (parts == null) {
+            return expression.test(text);
+        }
+        return pool.invoke(new TestTask(text, parts, 0, parts.size(), new AtomicBoolean()));
+    }
+
+    /**
+     * Same as {@link VerbalExpression#getTextGroups(CharSequence, int)}
+     *
+     * @param text  - text to search in
+     * @param group - number of the group
+     * @return values of the group of all matches in order of the text
+     */
+    public List<String> getTextGroups(final CharSequence text, final int group) {
+        List<Matches> parts = split(text);
+        if (parts == null) {
+            return expression.getTextGroups(text, group);
+        }
+        return pool.invoke(new GroupsTask(text, parts, 0, parts.size(), group));
+    }
+
+    /**
+     * @return parts of the text, or null if it should be searched as a whole
+     */
+    private List<Matches> split(final CharSequence text) {
+        int parts = (int) Math.min((long) pool.getParallelism() * PARTS_PER_THREAD, text.length() / partSize);
+        if (parts < 2 || !expression.isSearchableByLines()) {
+            return null;
+        }
+        return expression.matches(text).split(parts);
+    }
+
+    @Override
+    public String toString() {
+        return "ParallelSearch{" + expression + ", threads=" + pool.getParallelism() + ", part=" + partSize + "}";
+    }
+
+    /**
+     * Splits the parts in halves until one of them is left
+     */
+    private final class TestTask extends RecursiveTask<Boolean> {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence text;
+        private final List<Matches> parts;
+        private final int from;
+        private final int to;
+        private final AtomicBoolean found;
+
+        private TestTask(final CharSequence text, final List<Matches> parts, final int from, final int to,
+                         final AtomicBoolean found) {
+            this.text = text;
+            this.parts = parts;
+            this.from = from;
+            this.to = to;
+            this.found = found;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (found.get()) {
+                return true;
+            }
+            if (to - from == 1) {
+                Matches part = parts.get(from);
+                if (expression.test(text, part.start(), part.end())) {
+                    found.set(true);
+                }
+                return found.get();
+            }
+            int middle = (from + to) >>> 1;
+            TestTask left = new TestTask(text, parts, from, middle, found);
+            left.fork();
+            boolean right = new TestTask(text, parts, middle, to, found).compute();
+            return left.join() || right;
+        }
+    }
+
+    private final class GroupsTask extends RecursiveTask<List<String>> {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence text;
+        private final List<Matches> parts;
+        private final int from;
+        private final int to;
+        private final int group;
+
+        private GroupsTask(final CharSequence text, final List<Matches> parts, final int from, final int to,
+                           final int group) {
+            this.text = text;
+            this.parts = parts;
+            this.from = from;
+            this.to = to;
+            this.group = group;
+        }
+
+        @Override
+        protected List<String> compute() {
+            if (to - from == 1) {
+                return groups(parts.get(from), from == parts.size() - 1);
+            }
+            int middle = (from + to) >>> 1;
+            GroupsTask left = new GroupsTask(text, parts, from, middle, group);
+            left.fork();
+            List<String> right = new GroupsTask(text, parts, middle, to, group).compute();
+            List<String> joined = left.join();
+            joined.addAll(right);
+            return joined;
+        }
+
+        private List<String> groups(final Matches part, final boolean last) {
+            MatchSpans spans = new MatchSpans(0);
+            int count = expression.spans(text, part.start(), part.end(), spans, 0, group);
+            // the empty match at the end of the part is found again at the start of the next one
+            if (!last && count > 0 && spans.start(count - 1, 0) == part.end()) {
+                count--;
+            }
+            List<String> groups = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int start = spans.start(i, 1);
+                groups.add(start < 0 ? null : text.subSequence(start, spans.end(i, 1)).toString());
+            }
+            return groups;
+        }
+    }
+}
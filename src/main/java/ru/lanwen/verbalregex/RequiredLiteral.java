@@ -0,0 +1,331 @@
+package ru.lanwen.verbalregex;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import ru.lanwen.verbalregex.Node.Alternation;
+import ru.lanwen.verbalregex.Node.Anchor;
+import ru.lanwen.verbalregex.Node.CharClass;
+import ru.lanwen.verbalregex.Node.Group;
+import ru.lanwen.verbalregex.Node.Literal;
+import ru.lanwen.verbalregex.Node.OneOf;
+import ru.lanwen.verbalregex.Node.Quantifier;
+import ru.lanwen.verbalregex.Node.Sequence;
+
+/**
+ * Literal, that every match of the expression contains, and literal, that every match starts with.
+ * Found in the tree on {@link VerbalExpression.Builder#build()}, e.g. for
+ * {@code find("http").maybe("s").then("://")} both of them are "http".
+ * <p>
+ * Text without the required literal is rejected with {@link LiteralSearch} without running the matcher,
+ * and the matcher starts only where the prefix is found.
+ * <p>
+ * Not found for expressions with {@link Node.Raw} source or regex values of {@link OneOf}
+ * (they may contain "|" or inline flags), or with {@link Pattern#CASE_INSENSITIVE} or {@link Pattern#COMMENTS}
+ * (values of {@link OneOf} are not escaped, so whitespace and "#" in them are not matched as is).
+ *
+ * @since 1.9
+ */
+final class RequiredLiteral {
+
+    /**
+     * Longer repeated literals are not expanded
+     */
+    private static final int MAX_LENGTH = 1024;
+    private static final int UNSAFE_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.COMMENTS;
+
+    private final String required;
+    /**
+     * Empty if matches may start with anything
+     */
+    private final String prefix;
+    private final LiteralSearch requiredSearch;
+    private final LiteralSearch prefixSearch;
+    /**
+     * The tree has anchors, so its matches depend on chars around them
+     */
+    private final boolean anchored;
+    /**
+     * Matches don't contain line breaks, and are the same in the line, as if it was the whole text
+     */
+    private final boolean withinLine;
+
+    private RequiredLiteral(final String required, final String prefix, final boolean anchored,
+                            final boolean withinLine) {
+        this.required = required;
+        this.prefix = prefix;
+        this.requiredSearch = new LiteralSearch(required);
+        this.prefixSearch = prefix.isEmpty() ? null : new LiteralSearch(prefix);
+        this.anchored = anchored;
+        this.withinLine = withinLine;
+    }
+
+    /**
+     * @param root      - tree of the expression
+     * @param modifiers - flags the pattern is compiled with
+     * @return literals of the expression, or null if no literal is required for its matches
+     */
+    static RequiredLiteral of(final Node root, final int modifiers) {
+        if ((modifiers & UNSAFE_FLAGS) != 0) {
+            return null;
+        }
+        Factors factors = factors(root);
+        if (factors == null || factors.required.isEmpty()) {
+            return null;
+        }
+        return new RequiredLiteral(factors.required, factors.prefix, hasAnchor(root),
+                LineBreaks.searchableByLines(root, modifiers));
+    }
+
+    String required() {
+        return required;
+    }
+
+    String prefix() {
+        return prefix;
+    }
+
+    boolean withinLine() {
+        return withinLine;
+    }
+
+    /**
+     * @return index of the required literal in the region, or -1
+     */
+    int indexOf(final CharSequence text, final int from, final int end) {
+        return requiredSearch.indexOf(text, from, end);
+    }
+
+    /**
+     * Same as {@link Matcher#find()} in the region, but without running the matcher where the match can't be
+     *
+     * @param matcher - matcher of the text, with the region set before the first search
+     * @param text    - the text
+     * @param start   - first char of the region
+     * @param end     - index after the last char of the region
+     * @param first   - true if it is the first search in the region
+     * @return true if found
+     */
+    boolean find(final Matcher matcher, final CharSequence text, final int start, final int end,
+                 final boolean first) {
+        if (first && requiredSearch.indexOf(text, start, end) < 0) {
+            return false;
+        }
+        if (prefixSearch == null) {
+            return matcher.find();
+        }
+        // every match has the prefix, so it is not empty and the next one starts after its end
+        int from = prefixSearch.indexOf(text, first ? start : matcher.end(), end);
+        if (from < 0) {
+            return false;
+        }
+        if (start == 0 && end == text.length()) {
+            return matcher.find(from);
+        }
+        if (!anchored) {
+            // nothing looks at chars around the match, so the shorter region finds the same
+            matcher.region(from, end);
+        }
+        return matcher.find();
+    }
+
+    /**
+     * @return true if the whole region may match
+     */
+    boolean mayMatchExactly(final CharSequence text, final int start, final int end) {
+        return end - start >= prefix.length()
+                && (prefixSearch == null || prefixSearch.startsAt(text, start))
+                && requiredSearch.indexOf(text, start, end) >= 0;
+    }
+
+    static boolean hasAnchor(final Node node) {
+        if (node instanceof Anchor) {
+            return true;
+        }
+        if (node instanceof Group) {
+            return hasAnchor(((Group) node).body);
+        }
+        if (node instanceof Quantifier) {
+            return hasAnchor(((Quantifier) node).child);
+        }
+        Node[] children = node instanceof Sequence ? ((Sequence) node).items
+                : node instanceof Alternation ? ((Alternation) node).branches
+                : new Node[0];
+        for (Node child : children) {
+            if (hasAnchor(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * What is known about strings, matched by the node
+     */
+    private static final class Factors {
+        /**
+         * The only string it matches, or null
+         */
+        private final String exact;
+        private final String prefix;
+        private final String suffix;
+        /**
+         * The longest string known to be inside of every match
+         */
+        private final String required;
+
+        private Factors(final String exact, final String prefix, final String suffix, final String required) {
+            this.exact = exact;
+            this.prefix = prefix;
+            this.suffix = suffix;
+            this.required = required;
+        }
+
+        private static Factors exact(final String value) {
+            return new Factors(value, value, value, value);
+        }
+
+        private static Factors unknown() {
+            return new Factors(null, "", "", "");
+        }
+    }
+
+    /**
+     * @return factors of the node, or null if it is not known what it matches at all
+     */
+    private static Factors factors(final Node node) {
+        if (node instanceof Literal) {
+            return Factors.exact(((Literal) node).text);
+        }
+        if (node instanceof Anchor) {
+            // zero-width, so the neighbours are next to each other in the text
+            return Factors.exact("");
+        }
+        if (node instanceof CharClass) {
+            return Factors.unknown();
+        }
+        if (node instanceof Group) {
+            Group group = (Group) node;
+            if (group.kind == Group.Kind.FLAGS && (group.flagsOn & UNSAFE_FLAGS) != 0) {
+                return factors(group.body) == null ? null : Factors.unknown();
+            }
+            return factors(group.body);
+        }
+        if (node instanceof Quantifier) {
+            return repeated((Quantifier) node);
+        }
+        if (node instanceof OneOf) {
+            Node[] branches = new Node[((OneOf) node).values.length];
+            for (int i = 0; i < branches.length; i++) {
+                String value = ((OneOf) node).values[i];
+                if (value == null || !KeywordTrie.isPlain(value)) {
+                    return null;
+                }
+                branches[i] = new Literal(value);
+            }
+            return alternatives(branches);
+        }
+        if (node instanceof Alternation) {
+            return alternatives(((Alternation) node).branches);
+        }
+        if (node instanceof Sequence) {
+            return sequence(((Sequence) node).items);
+        }
+        return null;
+    }
+
+    private static Factors repeated(final Quantifier quantifier) {
+        Factors child = factors(quantifier.child);
+        if (child == null || quantifier.min == 0) {
+            return child == null ? null : Factors.unknown();
+        }
+        if (child.exact != null && quantifier.min == quantifier.max
+                && (long) child.exact.length() * quantifier.min <= MAX_LENGTH) {
+            StringBuilder repeated = new StringBuilder();
+            for (int i = 0; i < quantifier.min; i++) {
+                repeated.append(child.exact);
+            }
+            return Factors.exact(repeated.toString());
+        }
+        return new Factors(null, child.prefix, child.suffix, child.required);
+    }
+
+    private static Factors alternatives(final Node[] branches) {
+        if (branches.length == 0) {
+            return Factors.exact("");
+        }
+        Factors first = factors(branches[0]);
+        if (first == null) {
+            return null;
+        }
+        String exact = first.exact;
+        String prefix = first.prefix;
+        String suffix = first.suffix;
+        for (int i = 1; i < branches.length; i++) {
+            Factors branch = factors(branches[i]);
+            if (branch == null) {
+                return null;
+            }
+            if (exact != null && !exact.equals(branch.exact)) {
+                exact = null;
+            }
+            prefix = commonPrefix(prefix, branch.prefix);
+            suffix = commonSuffix(suffix, branch.suffix);
+        }
+        if (exact != null) {
+            return Factors.exact(exact);
+        }
+        return new Factors(null, prefix, suffix, longer(prefix, suffix));
+    }
+
+    private static Factors sequence(final Node[] items) {
+        StringBuilder exact = new StringBuilder();
+        String prefix = null;
+        // literal right before the current item
+        String run = "";
+        String required = "";
+        for (Node item : items) {
+            Factors factors = factors(item);
+            if (factors == null) {
+                return null;
+            }
+            if (factors.exact != null) {
+                if (prefix == null) {
+                    exact.append(factors.exact);
+                }
+                run = run + factors.exact;
+                continue;
+            }
+            if (prefix == null) {
+                prefix = exact + factors.prefix;
+            }
+            required = longer(required, longer(run + factors.prefix, factors.required));
+            run = factors.suffix;
+        }
+        if (prefix == null) {
+            return Factors.exact(exact.toString());
+        }
+        return new Factors(null, prefix, run, longer(required, run));
+    }
+
+    private static String longer(final String first, final String second) {
+        return second.length() > first.length() ? second : first;
+    }
+
+    private static String commonPrefix(final String first, final String second) {
+        int length = 0;
+        while (length < first.length() && length < second.length() && first.charAt(length) == second.charAt(length)) {
+            length++;
+        }
+        return first.substring(0, length);
+    }
+
+    private static String commonSuffix(final String first, final String second) {
+        int length = 0;
+        while (length < first.length() && length < second.length()
+                && first.charAt(first.length() - 1 - length) == second.charAt(second.length() - 1 - length)) {
+            length++;
+        }
+        return first.substring(first.length() - length);
+    }
+}
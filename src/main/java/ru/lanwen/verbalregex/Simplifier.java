@@ -0,0 +1,203 @@
+package ru.lanwen.verbalregex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ru.lanwen.verbalregex.Node.Alternation;
+import ru.lanwen.verbalregex.Node.CharClass;
+import ru.lanwen.verbalregex.Node.Group;
+import ru.lanwen.verbalregex.Node.Literal;
+import ru.lanwen.verbalregex.Node.OneOf;
+import ru.lanwen.verbalregex.Node.Quantifier;
+import ru.lanwen.verbalregex.Node.Raw;
+import ru.lanwen.verbalregex.Node.Sequence;
+
+/**
+ * Removes what does nothing for the matcher from the tree, without changing what it matches:
+ * <ul>
+ * <li>non-capturing groups around a single atom or around already delimited content: (?:a)(?:\d+) to a\d+</li>
+ * <li>nested alternatives: (?:a|(?:b|c)) to (?:a|b|c)</li>
+ * <li>adjacent literals are merged into one</li>
+ * <li>trivial quantifiers: {1} is dropped, {0,} to *, {1,} to +, {0,1} to ?</li>
+ * </ul>
+ * Groups around {@link Raw} nodes, nodes followed by them and quantifiers of them are kept as is -
+ * their content is unknown.
+ *
+ * @see VerbalExpression.Builder#simplify(boolean)
+ * @since 1.9
+ */
+final class Simplifier {
+
+    private Simplifier() {
+    }
+
+    /**
+     * @param root - root of the tree, built by {@link VerbalExpression.Builder#toNode()}
+     * @return tree, that matches the same, with less nodes
+     */
+    static Node simplify(final Node root) {
+        return delimited(simplifyNode(root));
+    }
+
+    private static Node simplifyNode(final Node node) {
+        if (node instanceof Group) {
+            Group group = (Group) node;
+            return group.withBody(delimited(simplifyNode(group.body)));
+        }
+        if (node instanceof Quantifier) {
+            return quantifier((Quantifier) node);
+        }
+        if (node instanceof Sequence) {
+            return sequence(((Sequence) node).items);
+        }
+        if (node instanceof Alternation) {
+            return alternation(((Alternation) node).branches);
+        }
+        return node;
+    }
+
+    /**
+     * Root, group body or alternative - braces or "|" are already around, so no need in more
+     */
+    private static Node delimited(final Node node) {
+        Node current = node;
+        while (isRemovable(current)) {
+            current = ((Group) current).body;
+        }
+        return current;
+    }
+
+    private static Node alternation(final Node[] branches) {
+        List<Node> flat = new ArrayList<>(branches.length);
+        for (Node branch : branches) {
+            Node simplified = delimited(simplifyNode(branch));
+            if (simplified instanceof Alternation) {
+                Collections.addAll(flat, ((Alternation) simplified).branches);
+            } else {
+                flat.add(simplified);
+            }
+        }
+        return new Alternation(flat);
+    }
+
+    private static Node sequence(final Node[] items) {
+        List<Node> flat = new ArrayList<>(items.length);
+        for (int i = 0; i < items.length; i++) {
+            // Raw may start with a quantifier, that should be applied to the item as it is
+            if (i + 1 < items.length && startsWithRaw(items[i + 1])) {
+                appendMerging(flat, items[i]);
+                continue;
+            }
+
+            Node item = simplifyNode(items[i]);
+            while (isRemovable(item) && !(((Group) item).body instanceof Alternation)) {
+                item = ((Group) item).body;
+            }
+
+            if (item instanceof Sequence) {
+                for (Node nested : ((Sequence) item).items) {
+                    appendMerging(flat, nested);
+                }
+            } else {
+                appendMerging(flat, item);
+            }
+        }
+        return Sequence.of(flat);
+    }
+
+    /**
+     * @return true if the source of the node starts with {@link Raw} one, e.g. the raw quantifier,
+     * that is repeated itself
+     */
+    private static boolean startsWithRaw(final Node node) {
+        if (node instanceof Quantifier) {
+            return startsWithRaw(((Quantifier) node).child);
+        }
+        if (node instanceof Sequence) {
+            Node[] items = ((Sequence) node).items;
+            return items.length > 0 && startsWithRaw(items[0]);
+        }
+        return node instanceof Raw;
+    }
+
+    private static void appendMerging(final List<Node> items, final Node item) {
+        int last = items.size() - 1;
+        if (last >= 0 && item instanceof Literal && items.get(last) instanceof Literal) {
+            Literal previous = (Literal) items.get(last);
+            Literal next = (Literal) item;
+            items.set(last, new Literal(previous.text + next.text, previous.render() + next.render()));
+        } else {
+            items.add(item);
+        }
+    }
+
+    private static Node quantifier(final Quantifier quantifier) {
+        if (quantifier.child instanceof Raw) {
+            return quantifier;
+        }
+
+        Node child = simplifyNode(quantifier.child);
+        while (isRemovable(child) && isAtom(((Group) child).body)) {
+            child = ((Group) child).body;
+        }
+
+        if (quantifier.possessive) {
+            return quantifier.withChild(child);
+        }
+        if (quantifier.min == 1 && quantifier.max == 1) {
+            return child;
+        }
+        if (quantifier.max == Quantifier.UNBOUNDED && quantifier.min == 0) {
+            return new Quantifier(child, 0, Quantifier.UNBOUNDED, Quantifier.Form.STAR);
+        }
+        if (quantifier.max == Quantifier.UNBOUNDED && quantifier.min == 1) {
+            return new Quantifier(child, 1, Quantifier.UNBOUNDED, Quantifier.Form.PLUS);
+        }
+        if (quantifier.min == 0 && quantifier.max == 1) {
+            return new Quantifier(child, 0, 1, Quantifier.Form.OPTIONAL);
+        }
+        return quantifier.withChild(child);
+    }
+
+    /**
+     * @return true if node can be repeated by quantifier without braces around
+     */
+    private static boolean isAtom(final Node node) {
+        if (node instanceof Literal) {
+            String text = ((Literal) node).text;
+            return !text.isEmpty() && text.codePointCount(0, text.length()) == 1;
+        }
+        return node instanceof CharClass || node instanceof Group || node instanceof OneOf;
+    }
+
+    /**
+     * @return true if node is a non-capturing group without any {@link Raw} inside
+     */
+    private static boolean isRemovable(final Node node) {
+        return node instanceof Group
+                && ((Group) node).kind == Group.Kind.NON_CAPTURING
+                && !containsRaw(((Group) node).body);
+    }
+
+    static boolean containsRaw(final Node node) {
+        if (node instanceof Raw) {
+            return true;
+        }
+        if (node instanceof Group) {
+            return containsRaw(((Group) node).body);
+        }
+        if (node instanceof Quantifier) {
+            return containsRaw(((Quantifier) node).child);
+        }
+        Node[] children = node instanceof Sequence ? ((Sequence) node).items
+                : node instanceof Alternation ? ((Alternation) node).branches
+                : new Node[0];
+        for (Node child : children) {
+            if (containsRaw(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
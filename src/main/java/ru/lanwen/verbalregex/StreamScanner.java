@@ -0,0 +1,176 @@
+package ru.lanwen.verbalregex;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Scans unbounded streams with the expression, keeping in memory only the window of chars:
+ * there is no need to read the whole input into the string. The window slides over the input,
+ * chars before the current search are dropped, and more of them are read only when the matcher
+ * hits the end of the window ({@link Matcher#hitEnd()}), so the match could change with more input.
+ * <p>
+ * Example:
+ * <pre>
+ * regex().find("ERROR").anything().endOfLine().build().streamScanner()
+ *         .scan(socket.getChannel(), new StreamScanner.Handler() {
+ *             &#64;Override
+ *             public void onMatch(MatchResult match, long offset) {
+ *                 alert(match.group());
+ *             }
+ *         });
+ * </pre>
+ * Matches are the same as in the whole text, if they are not longer than half of the window.
+ * Longer matches are cut at the end of the window, and may be missed, if the window fills up without them.
+ * One char before the search is kept, so "^" and "\\b" at the start of the window see the previous char.
+ * <p>
+ * Not thread-safe: the window is reused by each scan.
+ *
+ * @since 1.9
+ */
+public final class StreamScanner {
+
+    private static final int DEFAULT_WINDOW = 64 << 10;
+
+    private final VerbalExpression expression;
+    private final Pattern pattern;
+    private Charset charset = Charset.forName("UTF-8");
+    private char[] window = new char[DEFAULT_WINDOW];
+
+    StreamScanner(final VerbalExpression expression, final Pattern pattern) {
+        this.expression = expression;
+        this.pattern = pattern;
+    }
+
+    /**
+     * Called for each match in the stream
+     */
+    public interface Handler {
+
+        /**
+         * @param match  - the match, its offsets are of the current window and valid only until the method returns
+         * @param offset - index of the first char of the match from the start of the stream
+         */
+        void onMatch(MatchResult match, long offset);
+    }
+
+    /**
+     * @param pCharset - charset of channels, UTF-8 by default
+     * @return this scanner
+     */
+    public StreamScanner charset(final Charset pCharset) {
+        this.charset = pCharset;
+        return this;
+    }
+
+    /**
+     * @param chars - how many chars to keep in memory, 64K by default
+     * @return this scanner
+     */
+    public StreamScanner window(final int chars) {
+        if (chars < 2) {
+            throw new IllegalArgumentException("Window should be at least 2 chars: " + chars);
+        }
+        this.window = new char[chars];
+        return this;
+    }
+
+    /**
+     * Finds all matches in the channel, decoded with the charset. Malformed input is replaced
+     *
+     * @param channel - bytes to scan, read until the end of the stream, but not closed
+     * @param handler - to be called for each match
+     * @return count of the matches
+     * @throws IOException if the channel can't be read
+     */
+    public long scan(final ReadableByteChannel channel, final Handler handler) throws IOException {
+        return scan(Channels.newReader(channel, charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE), -1), handler);
+    }
+
+    /**
+     * Finds all matches in the stream of chars
+     *
+     * @param reader  - chars to scan, read until the end of the stream, but not closed
+     * @param handler - to be called for each match
+     * @return count of the matches
+     * @throws IOException if the reader can't be read
+     */
+    public long scan(final Reader reader, final Handler handler) throws IOException {
+        // chars of the window from 0 to the limit, the matcher looks at them only
+        CharBuffer text = CharBuffer.wrap(window);
+        text.limit(0);
+        Matcher matcher = pattern.matcher(text).useAnchoringBounds(false).useTransparentBounds(true);
+        long count = 0;
+        // index of the window start from the start of the stream
+        long offset = 0;
+        // where the next search starts in the window
+        int from = 0;
+        boolean end = false;
+        while (true) {
+            int length = text.limit();
+            boolean found = from <= length && matcher.region(from, length).find();
+            if (!end && (from > length || matcher.hitEnd())) {
+                // with more input the match may be longer, or found before this one
+                int keep = Math.max(0, Math.min(from, length) - 1);
+                if (keep == 0 && length == window.length) {
+                    // the window is full: chars before the match, or the first half of them are dropped,
+                    // as longer matches are not supported
+                    if (!found) {
+                        keep = length / 2;
+                        from = keep + 1;
+                    } else if (matcher.start() > 1) {
+                        keep = matcher.start() - 1;
+                        from = matcher.start();
+                    }
+                }
+                if (keep > 0 || length < window.length) {
+                    slide(text, keep);
+                    offset += keep;
+                    from -= keep;
+                    int read = reader.read(window, text.limit(), window.length - text.limit());
+                    if (read < 0) {
+                        end = true;
+                    } else {
+                        text.limit(text.limit() + read);
+                    }
+                    continue;
+                }
+                // the match starts the full window, so it is cut at its end
+            }
+            if (!found) {
+                if (end) {
+                    return count;
+                }
+                // the matcher didn't look at the end, so nothing is found in the window with any input after it
+                from = length;
+                continue;
+            }
+            handler.onMatch(matcher, offset + matcher.start());
+            count++;
+            from = matcher.end() == matcher.start() ? matcher.end() + 1 : matcher.end();
+        }
+    }
+
+    /**
+     * Drops the first chars of the window
+     */
+    private void slide(final CharBuffer text, final int chars) {
+        int length = text.limit();
+        System.arraycopy(window, chars, window, 0, length - chars);
+        text.limit(length - chars);
+    }
+
+    @Override
+    public String toString() {
+        return "StreamScanner{" + expression + ", " + charset + ", window=" + window.length + "}";
+    }
+}
@@ -1,24 +1,191 @@
 package ru.lanwen.verbalregex;
 
-import static java.lang.String.valueOf;
-
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import ru.lanwen.verbalregex.Node.Alternation;
+import ru.lanwen.verbalregex.Node.Anchor;
+import ru.lanwen.verbalregex.Node.CharClass;
+import ru.lanwen.verbalregex.Node.Group;
+import ru.lanwen.verbalregex.Node.Literal;
+import ru.lanwen.verbalregex.Node.OneOf;
+import ru.lanwen.verbalregex.Node.Quantifier;
+import ru.lanwen.verbalregex.Node.Raw;
+import ru.lanwen.verbalregex.Node.Sequence;
 
 public class VerbalExpression {
 
-    private final Pattern pattern;
+    /**
+     * Listener of every match, or null
+     */
+    private static volatile MatchListener listener;
+
+    private final String source;
+    private final int modifiers;
+    private final List<BacktrackingWarning> warnings;
+    /**
+     * Tree of the expression, kept only until it is compiled. Guarded by this
+     */
+    private Node root;
+    /**
+     * Null until the first match or {@link #precompile()}
+     */
+    private volatile Compiled compiled;
+    /**
+     * Matcher of each thread, if the expression is built with {@link Builder#reuseMatchers()}. Otherwise null
+     */
+    private volatile ThreadLocal<VerbalMatcher> matchers;
+    /**
+     * Automaton for {@link #test} and {@link #testExact}, if built with {@link Builder#dfa()} and supported.
+     * Otherwise null
+     */
+    private volatile Dfa dfa;
+    /**
+     * True once {@link Builder#dfa()} asked to build the automaton. Guarded by this
+     */
+    private boolean dfaTried;
 
     public static class Builder {
 
-        private StringBuilder prefixes = new StringBuilder();
-        private StringBuilder source = new StringBuilder();
-        private StringBuilder suffixes = new StringBuilder();
-        private int modifiers = Pattern.MULTILINE;
+        /**
+         * Innermost group, opened with {@link #capture()}, {@link #group()} or {@link #atomicGroup()} and not yet ended.
+         * The root one holds items of the current alternative
+         */
+        private Frame current = new Frame(null, null, null);
+        /**
+         * Count of {@link #or(String)} calls. Each of them opens a group in front of the whole expression,
+         * as the previous string-based implementation did, and ends the innermost group opened at the moment
+         */
+        private int ors;
+        /**
+         * Groups of {@link #or(String)} ended by {@link #or(String)} or {@link #endCapture()} without opened group
+         */
+        private int orsEnded;
+        /**
+         * {@link #or(String)} calls with more than one group opened, their groups are never ended
+         */
+        private int orsNotEnded;
+        /**
+         * For each {@link #startOfLine()} - count of {@link #or(String)} groups, the anchor is placed in
+         */
+        private List<Integer> startsOfLine = new ArrayList<>();
+        /**
+         * For each {@link #endOfLine()} - count of groups, that are ended in front of the anchor,
+         * without the ones of {@link #or(String)} calls, which all are added in {@link #toNode()}
+         */
+        private List<Integer> endsOfLine = new ArrayList<>();
+        private int modifiers = DEFAULT_MODIFIERS;
+        private boolean simplify;
+        private boolean preventBacktracking;
+        private boolean lazy;
+        private boolean reuseMatchers;
+        private boolean dfa;
+
+        private static final int DEFAULT_MODIFIERS = Pattern.MULTILINE;
+
+        /**
+         * Group opened with {@link #capture()}, {@link #group()} or {@link #atomicGroup()}.
+         * Mutable while building, turned into immutable {@link Group} by {@link #endCapture()}
+         */
+        private static final class Frame {
+            private final Frame parent;
+            private final Group.Kind kind;
+            private final String name;
+            private final List<Node> items = new ArrayList<>();
+
+            private Frame(final Frame parent, final Group.Kind kind, final String name) {
+                this.parent = parent;
+                this.kind = kind;
+                this.name = name;
+            }
+
+            private boolean isRoot() {
+                return parent == null;
+            }
+
+            private int depth() {
+                return isRoot() ? 0 : parent.depth() + 1;
+            }
+
+            /**
+             * @param lastItems - ended nested group and anchors to be appended
+             */
+            private Node toGroup(final List<Node> lastItems) {
+                List<Node> body = new ArrayList<>(items);
+                body.addAll(lastItems);
+                switch (kind) {
+                    case NON_CAPTURING:
+                        return Group.nonCapturing(alternation(body));
+                    case ATOMIC:
+                        return Group.atomic(alternation(body));
+                    default:
+                        return Group.capturing(name, alternation(body));
+                }
+            }
+
+            private Frame copy(final Frame newParent) {
+                Frame copy = new Frame(newParent, kind, name);
+                copy.items.addAll(items);
+                return copy;
+            }
+        }
+
+        /**
+         * Brace opened by {@link #or(String)} in front of the whole expression. Used only inside of {@link #toNode()}
+         */
+        private static final class OrOpen extends Node {
+            private static final OrOpen INSTANCE = new OrOpen();
+
+            @Override
+            void render(final StringBuilder out) {
+                out.append("(?:");
+            }
+        }
+
+        /**
+         * Separator of alternatives, added by {@link #or(String)}
+         */
+        private static final class OrBar extends Node {
+            private static final OrBar INSTANCE = new OrBar();
+
+            @Override
+            void render(final StringBuilder out) {
+                out.append('|');
+            }
+        }
+
+        /**
+         * Brace, that ends the group of {@link #or(String)}, when there is no opened group in the builder
+         */
+        private static final class OrClose extends Node {
+            private static final OrClose INSTANCE = new OrClose(null);
+
+            /**
+             * Quantifier without child, that repeats the ended group, or null
+             */
+            private final Quantifier repeat;
+
+            private OrClose(final Quantifier repeat) {
+                this.repeat = repeat;
+            }
+
+            @Override
+            void render(final StringBuilder out) {
+                out.append(')');
+                if (repeat != null) {
+                    repeat.render(out);
+                }
+            }
+        }
 
         private static final Map<Character, Integer> SYMBOL_MAP = new HashMap<Character, Integer>() {{
             put('d', Pattern.UNIX_LINES);
@@ -39,33 +206,221 @@ public class VerbalExpression {
         }
 
         /**
-         * Escapes any non-word char with two backslashes
-         * used by any method, except {@link #add(String)}
+         * Compiles the expression, or only renders it in {@link #lazy()} mode.
+         * If {@link ExpressionCache#getShared()} is set, returns the cached instance for the same source, modifiers
+         * and options
          *
-         * @param pValue - the string for char escaping
-         * @return sanitized string value
+         * @return immutable expression, safe to be used from many threads
          */
-        private String sanitize(final String pValue) {
-            return pValue.replaceAll("[\\W]", "\\\\$0");
+        public VerbalExpression build() {
+            Node root = KeywordTrie.factorAll(toNode(), modifiers, simplify);
+            if (simplify) {
+                root = Simplifier.simplify(root);
+            }
+            if (preventBacktracking) {
+                root = Backtracking.preventBacktracking(root, modifiers);
+            }
+            String source = root.render();
+
+            ExpressionCache cache = ExpressionCache.getShared();
+            int options = (dfa ? ExpressionCache.DFA : 0) | (reuseMatchers ? ExpressionCache.REUSE_MATCHERS : 0);
+            VerbalExpression expression = cache != null ? cache.get(source, modifiers, options) : null;
+            if (expression == null) {
+                expression = new VerbalExpression(root, source, modifiers);
+                // options are set before the expression is shared, cached one is never changed
+                if (dfa) {
+                    expression.useDfa(root);
+                }
+                if (reuseMatchers) {
+                    expression.reuseMatchers();
+                }
+                if (cache != null) {
+                    expression = cache.putIfAbsent(source, modifiers, options, expression);
+                }
+            }
+            return lazy ? expression : expression.precompile();
         }
 
         /**
-         * Counts occurrences of some substring in whole string
-         * Same as org.apache.commons.lang3.StringUtils#countMatches(String, java.lang.String)
-         * by effect. Used to count braces for {@link #or(String)} method
+         * Immutable tree of everything added so far. Groups, that are not ended yet, are closed here.
+         * Builder itself stays unchanged
          *
-         * @param where - where to find
-         * @param what  - what needs to count matches
-         * @return 0 if nothing found, count of occurrences instead
+         * @return root node of the expression
+         * @throws PatternSyntaxException if {@link #or(String)} was used with more than one group opened
+         */
+        Node toNode() {
+            // Keeps the braces layout of previous string-based implementation, so toString() is not changed:
+            // groups of or() calls are opened in front of everything, with ^ anchors between them,
+            // and the ones not ended yet are ended after everything, with $ anchors between them
+            int ended = 0;
+            List<Node> lastItems = new ArrayList<>();
+            Frame frame = current;
+            for (; !frame.isRoot(); frame = frame.parent) {
+                addEndsOfLine(lastItems, ended);
+                Node group = frame.toGroup(lastItems);
+                lastItems = new ArrayList<>();
+                lastItems.add(group);
+                ended++;
+            }
+
+            List<Node> tokens = new ArrayList<>();
+            for (int i = 0; i <= ors; i++) {
+                for (int opened : startsOfLine) {
+                    if (opened == i) {
+                        tokens.add(Anchor.START_OF_LINE);
+                    }
+                }
+                if (i < ors) {
+                    tokens.add(OrOpen.INSTANCE);
+                }
+            }
+            tokens.addAll(frame.items);
+            tokens.addAll(lastItems);
+            addEndsOfLine(tokens, ended);
+            for (int i = orsEnded + orsNotEnded; i < ors; i++) {
+                tokens.add(OrClose.INSTANCE);
+                addEndsOfLine(tokens, ++ended);
+            }
+            for (int before : endsOfLine) {
+                if (before + ors > ended) {
+                    tokens.add(Anchor.END_OF_LINE);
+                }
+            }
+
+            if (orsNotEnded > 0) {
+                throw new PatternSyntaxException("Can't use or() with more than one group opened",
+                        Sequence.of(tokens).render(), -1);
+            }
+
+            List<List<Node>> opened = new ArrayList<>();
+            List<Node> items = new ArrayList<>();
+            for (Node token : tokens) {
+                if (token == OrOpen.INSTANCE) {
+                    opened.add(items);
+                    items = new ArrayList<>();
+                } else if (token instanceof OrClose) {
+                    Node group = Group.nonCapturing(alternation(items));
+                    Quantifier repeat = ((OrClose) token).repeat;
+                    items = opened.remove(opened.size() - 1);
+                    items.add(repeat == null ? group : repeat.withChild(group));
+                } else {
+                    items.add(token);
+                }
+            }
+            return alternation(items);
+        }
+
+        /**
+         * Appends $ anchors, added by {@link #endOfLine()} after this count of ended groups
          */
-        private int countOccurrencesOf(String where, String what) {
-            return (where.length() - where.replace(what, "").length()) / what.length();
+        private void addEndsOfLine(final List<Node> items, final int ended) {
+            for (int before : endsOfLine) {
+                if (Math.max(before + ors, 0) == ended) {
+                    items.add(Anchor.END_OF_LINE);
+                }
+            }
         }
 
-        public VerbalExpression build() {
-            Pattern pattern = Pattern.compile(new StringBuilder(prefixes)
-                    .append(source).append(suffixes).toString(), modifiers);
-            return new VerbalExpression(pattern);
+        /**
+         * @param items - nodes with {@link OrBar} between alternatives
+         * @return sequence of the items, or alternation of such sequences
+         */
+        private static Node alternation(final List<Node> items) {
+            if (!items.contains(OrBar.INSTANCE)) {
+                return Sequence.of(items);
+            }
+            List<Node> branches = new ArrayList<>();
+            List<Node> branch = new ArrayList<>();
+            for (Node item : items) {
+                if (item == OrBar.INSTANCE) {
+                    branches.add(Sequence.of(branch));
+                    branch = new ArrayList<>();
+                } else {
+                    branch.add(item);
+                }
+            }
+            branches.add(Sequence.of(branch));
+            return new Alternation(branches);
+        }
+
+        /**
+         * Tree of this builder to be added to another one.
+         * Modifiers changed from defaults are kept with inline flags group (?on-off: ... ),
+         * everything else is inherited from the enclosing expression
+         *
+         * @return root node of the expression
+         */
+        private Node toEmbeddedNode() {
+            int on = modifiers & ~DEFAULT_MODIFIERS;
+            int off = DEFAULT_MODIFIERS & ~modifiers;
+
+            if (on == 0 && off == 0) {
+                return toNode();
+            }
+            return Group.flags(on, off, toNode());
+        }
+
+        /**
+         * Appends node to the innermost opened group
+         *
+         * @param node - node to append
+         * @return this builder
+         */
+        private Builder addNode(final Node node) {
+            this.current.items.add(node);
+            return this;
+        }
+
+        /**
+         * Repeats last added node, or appends quantifier as is if there is nothing to repeat
+         */
+        private Builder quantify(final int min, final int max, final Quantifier.Form form) {
+            return this.quantify(min, max, form, false);
+        }
+
+        /**
+         * @param possessive - true if the repeated node is not backtracked into
+         */
+        private Builder quantify(final int min, final int max, final Quantifier.Form form, final boolean possessive) {
+            List<Node> items = this.current.items;
+            Quantifier quantifier = new Quantifier(Sequence.EMPTY, min, max, form, possessive);
+            if (items.isEmpty()) {
+                return this.add(quantifier.render());
+            }
+
+            Node last = items.get(items.size() - 1);
+            if (last instanceof OrClose) {
+                // Repeats the group of or(), that is ended by this brace
+                Quantifier previous = ((OrClose) last).repeat;
+                Node repeat = previous == null ? quantifier : repeat(previous, quantifier);
+                if (repeat == null) {
+                    return this.add(quantifier.render());
+                }
+                items.set(items.size() - 1, new OrClose((Quantifier) repeat));
+                return this;
+            }
+            Node repeat = last == OrBar.INSTANCE ? null : repeat(last, quantifier);
+            if (repeat == null) {
+                return this.add(quantifier.render());
+            }
+            items.set(items.size() - 1, repeat);
+            return this;
+        }
+
+        /**
+         * @param quantifier - quantifier without child
+         * @return node, that replaces the last one, or null if the quantifier should be appended as is
+         */
+        private static Node repeat(final Node last, final Quantifier quantifier) {
+            if (last instanceof Quantifier) {
+                Quantifier previous = (Quantifier) last;
+                if (quantifier.form == Quantifier.Form.PLUS && !previous.possessive) {
+                    // (?:a)*+ is possessive one
+                    return previous.possessive();
+                }
+                return null;
+            }
+            return quantifier.withChild(last);
         }
 
         /**
@@ -81,19 +436,21 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder add(final String pValue) {
-            this.source.append(pValue);
-            return this;
+            return this.addNode(new Raw(pValue));
         }
 
         /**
          * Append a regex from builder and wrap it with unnamed group (?: ... )
+         * Source of passed builder is copied as is, without compiling it.
+         * If its modifiers differ from defaults (e.g. {@link #withAnyCase()}),
+         * they are applied only to this part with inline flags: (?:(?i: ... ))
          *
          * @param regex - VerbalExpression.Builder, that not changed
          * @return this builder
          * @since 1.2
          */
         public Builder add(final Builder regex) {
-            return this.group().add(regex.build().toString()).endGr();
+            return this.addNode(Group.nonCapturing(regex.toEmbeddedNode()));
         }
 
         /**
@@ -103,9 +460,10 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder startOfLine(final boolean pEnable) {
-            this.prefixes.append(pEnable ? "^" : "");
-            if (!pEnable) {
-                this.prefixes = new StringBuilder(this.prefixes.toString().replace("^", ""));
+            if (pEnable) {
+                this.startsOfLine.add(this.ors);
+            } else {
+                this.startsOfLine.clear();
             }
             return this;
         }
@@ -127,9 +485,10 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder endOfLine(final boolean pEnable) {
-            this.suffixes.append(pEnable ? "$" : "");
-            if (!pEnable) {
-                this.suffixes = new StringBuilder(this.suffixes.toString().replace("$", ""));
+            if (pEnable) {
+                this.endsOfLine.add(this.current.depth() - this.orsEnded - this.orsNotEnded);
+            } else {
+                this.endsOfLine.clear();
             }
             return this;
         }
@@ -151,7 +510,7 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder then(final String pValue) {
-            return this.add("(?:" + sanitize(pValue) + ")");
+            return this.addNode(Group.nonCapturing(new Literal(pValue)));
         }
 
         /**
@@ -182,7 +541,7 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder maybe(final String pValue) {
-            return this.then(pValue).add("?");
+            return this.then(pValue).quantify(0, 1, Quantifier.Form.OPTIONAL);
         }
 
         /**
@@ -204,7 +563,7 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder maybe(final Builder regex) {
-            return this.group().add(regex).endGr().add("?");
+            return this.group().add(regex).endGr().quantify(0, 1, Quantifier.Form.OPTIONAL);
         }
 
         /**
@@ -213,7 +572,8 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder anything() {
-            return this.add("(?:.*)");
+            return this.addNode(Group.nonCapturing(
+                    new Quantifier(CharClass.predefined('.'), 0, Quantifier.UNBOUNDED, Quantifier.Form.STAR)));
         }
 
         /**
@@ -223,7 +583,8 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder anythingBut(final String pValue) {
-            return this.add("(?:[^" + sanitize(pValue) + "]*)");
+            return this.addNode(Group.nonCapturing(
+                    new Quantifier(CharClass.of(pValue, true), 0, Quantifier.UNBOUNDED, Quantifier.Form.STAR)));
         }
 
         /**
@@ -232,11 +593,13 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder something() {
-            return this.add("(?:.+)");
+            return this.addNode(Group.nonCapturing(
+                    new Quantifier(CharClass.predefined('.'), 1, Quantifier.UNBOUNDED, Quantifier.Form.PLUS)));
         }
 
         public Builder somethingButNot(final String pValue) {
-            return this.add("(?:[^" + sanitize(pValue) + "]+)");
+            return this.addNode(Group.nonCapturing(
+                    new Quantifier(CharClass.of(pValue, true), 1, Quantifier.UNBOUNDED, Quantifier.Form.PLUS)));
         }
 
         /**
@@ -245,7 +608,10 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder lineBreak() {
-            return this.add("(?:\\n|(?:\\r\\n)|(?:\\r\\r))");
+            return this.addNode(Group.nonCapturing(new Alternation(
+                    new Literal("\n", "\\n"),
+                    Group.nonCapturing(new Literal("\r\n", "\\r\\n")),
+                    Group.nonCapturing(new Literal("\r\r", "\\r\\r")))));
         }
 
         /**
@@ -263,7 +629,7 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder tab() {
-            return this.add("(?:\\t)");
+            return this.addNode(Group.nonCapturing(new Literal("\t", "\\t")));
         }
 
         /**
@@ -272,7 +638,8 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder word() {
-            return this.add("(?:\\w+)");
+            return this.addNode(Group.nonCapturing(
+                    new Quantifier(CharClass.predefined('w'), 1, Quantifier.UNBOUNDED, Quantifier.Form.PLUS)));
         }
 
 
@@ -286,7 +653,7 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder wordChar() {
-            return this.add("(?:\\w)");
+            return this.addNode(Group.nonCapturing(CharClass.predefined('w')));
         }
 
 
@@ -296,7 +663,7 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder nonWordChar() {
-            return this.add("(?:\\W)");
+            return this.addNode(Group.nonCapturing(CharClass.predefined('W')));
         }
 
         /**
@@ -305,7 +672,7 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder nonDigit() {
-            return this.add("(?:\\D)");
+            return this.addNode(Group.nonCapturing(CharClass.predefined('D')));
         }
 
         /**
@@ -314,7 +681,7 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder digit() {
-            return this.add("(?:\\d)");
+            return this.addNode(Group.nonCapturing(CharClass.predefined('d')));
         }
 
         /**
@@ -323,7 +690,7 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder space() {
-            return this.add("(?:\\s)");
+            return this.addNode(Group.nonCapturing(CharClass.predefined('s')));
         }
 
         /**
@@ -332,7 +699,7 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder nonSpace() {
-            return this.add("(?:\\S)");
+            return this.addNode(Group.nonCapturing(CharClass.predefined('S')));
         }
 
         /**
@@ -351,7 +718,7 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder wordBoundary() {
-            return this.add("(?:\\b)");
+            return this.addNode(Group.nonCapturing(Anchor.WORD_BOUNDARY));
         }
 
 
@@ -361,8 +728,7 @@ public class VerbalExpression {
 
 
         public Builder anyOf(final String pValue) {
-            this.add("[" + sanitize(pValue) + "]");
-            return this;
+            return this.addNode(CharClass.of(pValue, false));
         }
 
         /**
@@ -385,16 +751,7 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder range(final String... pArgs) {
-            StringBuilder value = new StringBuilder("[");
-            for (int firstInPairPosition = 1; firstInPairPosition < pArgs.length; firstInPairPosition += 2) {
-                String from = sanitize(pArgs[firstInPairPosition - 1]);
-                String to = sanitize(pArgs[firstInPairPosition]);
-
-                value.append(from).append("-").append(to);
-            }
-            value.append("]");
-
-            return this.add(value.toString());
+            return this.addNode(CharClass.ranges(pArgs.clone()));
         }
 
         public Builder addModifier(final char pModifier) {
@@ -435,6 +792,155 @@ public class VerbalExpression {
             return withAnyCase(true);
         }
 
+        /**
+         * Turn ON or OFF simplification of the pattern on {@link #build()}:
+         * redundant non-capturing groups are removed, adjacent literals are merged
+         * and trivial quantifiers are folded ({1} is dropped, {0,} becomes *, {1,} becomes +).
+         * Matches and groups stay the same, only {@link VerbalExpression#toString()} differs.
+         * OFF by default
+         *
+         * @param pEnable - true to simplify
+         * @return this builder
+         * @since 1.9
+         */
+        public Builder simplify(final boolean pEnable) {
+            this.simplify = pEnable;
+            return this;
+        }
+
+        /**
+         * Turn ON simplification of the pattern on {@link #build()}
+         * Example:
+         * regex().startOfLine().then("http").maybe("s").then("://").simplify() // produce ^https?\:\/\/
+         *
+         * @return this builder
+         * @see #simplify(boolean)
+         * @since 1.9
+         */
+        public Builder simplify() {
+            return simplify(true);
+        }
+
+        /**
+         * Turn ON or OFF rewriting of repetitions, that can't give back any char for the rest of the expression
+         * to match, to possessive ones: \\w+@ becomes \\w++@, (?:\\d+)+$ becomes (?&gt;(?:\\d+)+)$.
+         * Matches and groups stay the same, but a text without a match is rejected without trying
+         * every way to split it. Those, that can't be rewritten safely, stay in {@link VerbalExpression#getWarnings()}.
+         * OFF by default
+         *
+         * @param pEnable - true to rewrite
+         * @return this builder
+         * @since 1.9
+         */
+        public Builder preventBacktracking(final boolean pEnable) {
+            this.preventBacktracking = pEnable;
+            return this;
+        }
+
+        /**
+         * Turn ON rewriting of repetitions to possessive ones
+         * <pre>
+         * regex().startOfLine().wordChar().oneOrMore().then("@").simplify().preventBacktracking() // produce ^\w++\@
+         * </pre>
+         *
+         * @return this builder
+         * @see #preventBacktracking(boolean)
+         * @since 1.9
+         */
+        public Builder preventBacktracking() {
+            return preventBacktracking(true);
+        }
+
+        /**
+         * Turn ON or OFF lazy compilation: {@link #build()} only renders the expression,
+         * and the pattern is compiled on the first match, or on {@link VerbalExpression#precompile()}.
+         * {@link VerbalExpression#toString()} doesn't compile it.
+         * Invalid expression throws {@link PatternSyntaxException} on the first match instead of {@link #build()}.
+         * OFF by default
+         *
+         * @param pEnable - true to compile on the first use
+         * @return this builder
+         * @since 1.9
+         */
+        public Builder lazy(final boolean pEnable) {
+            this.lazy = pEnable;
+            return this;
+        }
+
+        /**
+         * Turn ON lazy compilation
+         * Example:
+         * regex().startOfLine().then("http").lazy().build() // not compiled until the first test
+         *
+         * @return this builder
+         * @see #lazy(boolean)
+         * @since 1.9
+         */
+        public Builder lazy() {
+            return lazy(true);
+        }
+
+        /**
+         * Turn ON or OFF reuse of matchers: methods of the built expression take {@link VerbalMatcher}
+         * of the current thread and reset it, instead of allocating the new {@link java.util.regex.Matcher}
+         * for each call. Each thread keeps its matcher as long as the expression lives.
+         * {@link ExpressionCache} keeps the expressions built with and without it apart.
+         * OFF by default
+         *
+         * @param pEnable - true to reuse matchers
+         * @return this builder
+         * @see VerbalExpression#matcher()
+         * @since 1.9
+         */
+        public Builder reuseMatchers(final boolean pEnable) {
+            this.reuseMatchers = pEnable;
+            return this;
+        }
+
+        /**
+         * Turn ON reuse of matchers
+         *
+         * @return this builder
+         * @see #reuseMatchers(boolean)
+         * @since 1.9
+         */
+        public Builder reuseMatchers() {
+            return reuseMatchers(true);
+        }
+
+        /**
+         * Turn ON or OFF the automaton, that answers {@link VerbalExpression#test(CharSequence)} and
+         * {@link VerbalExpression#testExact(CharSequence)} in time linear to the text, instead of the backtracking
+         * of {@link java.util.regex.Pattern}. Pays off for expressions like nested or adjacent repetitions,
+         * that backtrack a lot on texts without a match. Expressions, the automaton can't be built for, e.g. with
+         * {@link #add(String)}, and texts with surrogate pairs, are still matched by the pattern.
+         * Captures, replaces and other methods, that need bounds of the match, always use the pattern.
+         * {@link ExpressionCache} keeps the expressions built with and without it apart.
+         * OFF by default
+         *
+         * @param pEnable - true to use the automaton
+         * @return this builder
+         * @since 1.9
+         */
+        public Builder dfa(final boolean pEnable) {
+            this.dfa = pEnable;
+            return this;
+        }
+
+        /**
+         * Turn ON the automaton
+         * <pre>
+         * regex().startOfLine().word().oneOrMore().then("=").word().oneOrMore().endOfLine().dfa().build()
+         * </pre>
+         *
+         * @return this builder
+         * @see #dfa(boolean)
+         * @since 1.9
+         */
+        public Builder dfa() {
+            return dfa(true);
+        }
+
         public Builder searchOneLine(final boolean pEnable) {
             if (pEnable) {
                 this.removeModifier('m');
@@ -483,7 +989,7 @@ public class VerbalExpression {
          * @since 1.2
          */
         public Builder oneOrMore() {
-            return this.add("+");
+            return this.quantify(1, Quantifier.UNBOUNDED, Quantifier.Form.PLUS);
         }
 
         /**
@@ -494,7 +1000,33 @@ public class VerbalExpression {
          * @since 1.2
          */
         public Builder zeroOrMore() {
-            return this.add("*");
+            return this.quantify(0, Quantifier.UNBOUNDED, Quantifier.Form.STAR);
+        }
+
+        /**
+         * Same as {@link #oneOrMore()}, but possessive: adds "++", takes as many as it can and never gives them back
+         * for the rest of the expression to match. Fails faster on the text without a match, when the rest
+         * can't start with what is repeated.
+         * for example:
+         * .range("0", "9").oneOrMorePossessive().then(";") // produce [0-9]++(?:;)
+         *
+         * @return this builder
+         * @see #atomicGroup()
+         * @since 1.9
+         */
+        public Builder oneOrMorePossessive() {
+            return this.quantify(1, Quantifier.UNBOUNDED, Quantifier.Form.PLUS, true);
+        }
+
+        /**
+         * Same as {@link #zeroOrMore()}, but possessive: adds "*+"
+         *
+         * @return this builder
+         * @see #oneOrMorePossessive()
+         * @since 1.9
+         */
+        public Builder zeroOrMorePossessive() {
+            return this.quantify(0, Quantifier.UNBOUNDED, Quantifier.Form.STAR, true);
         }
 
         /**
@@ -506,8 +1038,7 @@ public class VerbalExpression {
          * @return this Builder
          */
         public Builder count(final int count) {
-            this.source.append("{").append(count).append("}");
-            return this;
+            return this.quantify(count, count, Quantifier.Form.EXACT);
         }
 
         /**
@@ -521,8 +1052,36 @@ public class VerbalExpression {
          * @see #count(int)
          */
         public Builder count(final int from, final int to) {
-            this.source.append("{").append(from).append(",").append(to).append("}");
-            return this;
+            return this.quantify(from, to, Quantifier.Form.RANGE);
+        }
+
+        /**
+         * Same as {@link #count(int)}, but possessive
+         * for example:
+         * .group().digit().then(".").endGr().countPossessive(3) // produce (?:(?:\d)(?:\.)){3}+
+         *
+         * @param count - number of occurrences of previous group in expression
+         * @return this Builder
+         * @see #oneOrMorePossessive()
+         * @since 1.9
+         */
+        public Builder countPossessive(final int count) {
+            return this.quantify(count, count, Quantifier.Form.EXACT, true);
+        }
+
+        /**
+         * Same as {@link #count(int, int)}, but possessive
+         * for example:
+         * .find("w").countPossessive(1, 3) // produce (?:w){1,3}+
+         *
+         * @param from - minimal number of occurrences
+         * @param to   - max number of occurrences
+         * @return this Builder
+         * @see #oneOrMorePossessive()
+         * @since 1.9
+         */
+        public Builder countPossessive(final int from, final int to) {
+            return this.quantify(from, to, Quantifier.Form.RANGE, true);
         }
 
         /**
@@ -538,7 +1097,21 @@ public class VerbalExpression {
          * @since 1.2
          */
         public Builder atLeast(final int from) {
-            return this.add("{").add(valueOf(from)).add(",}");
+            return this.quantify(from, Quantifier.UNBOUNDED, Quantifier.Form.AT_LEAST);
+        }
+
+        /**
+         * Same as {@link #atLeast(int)}, but possessive
+         * for example:
+         * .find("w").atLeastPossessive(2) // produce (?:w){2,}+
+         *
+         * @param from - minimal number of occurrences
+         * @return this Builder
+         * @see #oneOrMorePossessive()
+         * @since 1.9
+         */
+        public Builder atLeastPossessive(final int from) {
+            return this.quantify(from, Quantifier.UNBOUNDED, Quantifier.Form.AT_LEAST, true);
         }
 
         /**
@@ -550,16 +1123,20 @@ public class VerbalExpression {
          * @return this builder
          */
         public Builder or(final String pValue) {
-            this.prefixes.append("(?:");
-
-            int opened = countOccurrencesOf(this.prefixes.toString(), "(");
-            int closed = countOccurrencesOf(this.suffixes.toString(), ")");
-
-            if (opened >= closed) {
-                this.suffixes = new StringBuilder(")" + this.suffixes.toString());
+            if (this.current.depth() - this.orsEnded - this.orsNotEnded > 1) {
+                // Brace of the or() group is already taken by the opened group, so the group is never ended
+                this.orsNotEnded++;
+            }
+            if (!this.current.isRoot()) {
+                this.endCapture();
+            } else {
+                this.addNode(OrClose.INSTANCE);
+                this.orsEnded++;
             }
+            this.ors++;
+            this.addNode(OrBar.INSTANCE);
+            this.current = new Frame(this.current, Group.Kind.NON_CAPTURING, null);
 
-            this.add(")|(?:");
             if (pValue != null) {
                 this.then(pValue);
             }
@@ -569,30 +1146,25 @@ public class VerbalExpression {
         /**
          * Adds an alternative expression to be matched
          * based on an array of values
+         * <p>
+         * If there are many of them (or {@link #simplify()} is ON), and all of them are plain strings
+         * without regex special chars, they are factored to a trie by common prefixes on {@link #build()},
+         * e.g. foo, foobar, fob produce fo(?:o(?:|bar)|b) - so the matcher doesn't try every value at every position.
+         * Values are still tried in the given order, so matches stay the same
          *
          * @param pValues - the strings to be looked for
          * @return this builder
          * @since 1.3
          */
         public Builder oneOf(final String... pValues) {
-            if(pValues != null && pValues.length > 0) {
-        	this.add("(?:");
-        	for(int i = 0; i < pValues.length; i++) {
-        	    String value = pValues[i];
-        	    this.add("(?:");
-        	    this.add(value);
-        	    this.add(")");
-        	    if(i < pValues.length - 1) {
-        	        this.add("|");
-        	    }
-        	}
-        	this.add(")");
+            if (pValues != null && pValues.length > 0) {
+                this.addNode(new OneOf(pValues));
             }
             return this;
         }
 
         /**
-         * Adds capture - open brace to current position and closed to suffixes
+         * Adds capture - open brace to current position, closed by {@link #endCapture()} or on {@link #build()}
          *
          * @return this builder
          */
@@ -601,7 +1173,7 @@ public class VerbalExpression {
         }
 
         /**
-         * Adds named-capture - open brace to current position and closed to suffixes
+         * Adds named-capture - open brace to current position, closed by {@link #endCapture()} or on {@link #build()}
          * <p>
          * <pre>Example:{@code
          * String text = "test@example.com";
@@ -615,12 +1187,12 @@ public class VerbalExpression {
          * @since 1.6
          */
         public Builder capture(final String name) {
-            this.suffixes.append(")");
-
             if (name == null || name.trim().isEmpty()) {
-                return this.add("(");
+                this.current = new Frame(this.current, Group.Kind.CAPTURING, null);
+            } else {
+                this.current = new Frame(this.current, Group.Kind.NAMED, name);
             }
-            return this.add("(?<" + name + ">");
+            return this;
         }
 
         /**
@@ -657,20 +1229,43 @@ public class VerbalExpression {
          * @since 1.2
          */
         public Builder group() {
-            this.suffixes.append(")");
-            return this.add("(?:");
+            this.current = new Frame(this.current, Group.Kind.NON_CAPTURING, null);
+            return this;
         }
 
         /**
-         * Close brace for previous capture and remove last closed brace from suffixes
+         * Same as {@link #group()}, but atomic: (?&gt; ... ). Once the group matched, the rest of the expression
+         * never makes it try other ways to match, e.g. with less chars taken by its repetitions,
+         * or with the next of {@link #oneOf(String...)} values. Closed by {@link #endAtomic()} or on {@link #build()}
+         * Example:
+         * regex().atomicGroup().anythingBut(" ").endAtomic().then(" ") // produce (?&gt;(?:[^\ ]*))(?:\ )
+         *
+         * @return this builder
+         * @see #oneOrMorePossessive()
+         * @since 1.9
+         */
+        public Builder atomicGroup() {
+            this.current = new Frame(this.current, Group.Kind.ATOMIC, null);
+            return this;
+        }
+
+        /**
+         * Close brace for previous capture or group
          * Can be used to continue build regex after capture or to add multiply captures
+         * After {@link #or(String)} (once for each call) it is allowed without opened group
+         * and ends the group of alternatives, so next items follow it, e.g.
+         * regex().then("a").or("b").endCapture().then("c") // produce (?:(?:a))|(?:(?:b))(?:c)
          *
          * @return this builder
          */
         public Builder endCapture() {
-            if (this.suffixes.indexOf(")") != -1) {
-                this.suffixes.setLength(suffixes.length() - 1);
-                return this.add(")");
+            if (!this.current.isRoot()) {
+                Frame ended = this.current;
+                this.current = ended.parent;
+                return this.addNode(ended.toGroup(Collections.<Node>emptyList()));
+            } else if (this.ors - this.orsEnded - this.orsNotEnded > 0) {
+                this.orsEnded++;
+                return this.addNode(OrClose.INSTANCE);
             } else {
                 throw new IllegalStateException("Can't end capture (group) when it not started");
             }
@@ -699,16 +1294,229 @@ public class VerbalExpression {
         public Builder endGr() {
             return this.endCapture();
         }
+
+        /**
+         * Closes current atomic group
+         * Shortcut for {@link #endCapture()}
+         * Use it with {@link #atomicGroup()} for prettify code
+         *
+         * @return this builder
+         * @since 1.9
+         */
+        public Builder endAtomic() {
+            return this.endCapture();
+        }
     }
 
     /**
      * Use builder {@link #regex()} (or {@link #regex(ru.lanwen.verbalregex.VerbalExpression.Builder)})
      * to create new instance of VerbalExpression
      *
-     * @param pattern - {@link java.util.regex.Pattern} that constructed by builder
+     * @param root      - tree of the expression, to be compiled on the first use
+     * @param source    - rendered tree
+     * @param modifiers - flags to compile the pattern with
+     */
+    private VerbalExpression(final Node root, final String source, final int modifiers) {
+        this.root = root;
+        this.source = source;
+        this.modifiers = modifiers;
+        this.warnings = Collections.unmodifiableList(Backtracking.warnings(root, modifiers));
+    }
+
+    /**
+     * Compiles the pattern now, if it is not compiled yet.
+     * Not needed unless the expression is built in {@link Builder#lazy()} mode
+     * <p>
+     * Example:
+     * <pre>
+     * VerbalExpression regex = regex().find("http").maybe("s").lazy().build(); // not compiled
+     * regex.precompile(); // compiled, or PatternSyntaxException is thrown
+     * </pre>
+     *
+     * @return this expression
+     * @throws PatternSyntaxException if the expression is invalid
+     * @since 1.9
+     */
+    public VerbalExpression precompile() {
+        compiled();
+        return this;
+    }
+
+    /**
+     * @return true if the pattern is compiled already
+     */
+    boolean isCompiled() {
+        return compiled != null;
+    }
+
+    /**
+     * @return true if the expression is matched with {@link AhoCorasick} instead of the pattern
+     */
+    boolean isLiteralSet() {
+        return compiled().literals != null;
+    }
+
+    /**
+     * @return literal, that every match contains, or null if unknown
+     */
+    String requiredLiteral() {
+        RequiredLiteral required = compiled().required;
+        return required == null ? null : required.required();
+    }
+
+    /**
+     * @return strings of the expression, if it is only a set of them, otherwise null
+     */
+    List<String> literalSet() {
+        AhoCorasick literals = compiled().literals;
+        return literals == null ? null : literals.keywords();
+    }
+
+    /**
+     * @return true if lines of the text may be searched apart from each other
+     * @see LineBreaks#searchableByLines(Node, int)
+     */
+    boolean isSearchableByLines() {
+        return compiled().byLines;
+    }
+
+    /**
+     * @return compiled pattern, for those who drive the {@link Matcher} themselves
+     */
+    Pattern pattern() {
+        return compiled().pattern;
+    }
+
+    /**
+     * Repetitions, that make the pattern try too many ways to match the text, before it fails on it.
+     * Found when the expression is built, see {@link BacktrackingWarning.Kind} for what is reported.
+     * Example:
+     * <pre>
+     * regex().anything().then(" = ").anything().build().getWarnings(); // []
+     * regex().anything().anything().build().getWarnings(); // [ADJACENT_QUANTIFIERS (?:.*)(?:.*)]
+     * </pre>
+     *
+     * @return warnings in order of the source, empty if none
+     * @see Builder#preventBacktracking()
+     * @since 1.9
+     */
+    public List<BacktrackingWarning> getWarnings() {
+        return warnings;
+    }
+
+    /**
+     * @return listener of every match, or null if there is no one
+     * @since 1.9
+     */
+    public static MatchListener getListener() {
+        return listener;
+    }
+
+    /**
+     * @param matchListener - listener to be called after every match of each expression, or null to stop
+     * @see MatchMetrics
+     * @since 1.9
+     */
+    public static void setListener(final MatchListener matchListener) {
+        listener = matchListener;
+    }
+
+    /**
+     * Creates a new handle to match texts without allocating {@link Matcher} for each of them
+     *
+     * @return matcher, to be used by one thread
+     * @throws PatternSyntaxException if the expression is invalid and not compiled yet
+     * @since 1.9
+     */
+    public VerbalMatcher matcher() {
+        Compiled current = compiled();
+        return new VerbalMatcher(current.pattern, current.literals, current.required, dfa);
+    }
+
+    /**
+     * Builds the automaton from the tree of the builder.
+     * Called by the builder before the expression is cached, so the shared one is never changed
+     */
+    private synchronized void useDfa(final Node tree) {
+        if (!dfaTried) {
+            dfaTried = true;
+            dfa = Dfa.of(tree, modifiers);
+        }
+    }
+
+    /**
+     * @return true if {@link #test} and {@link #testExact} use the automaton
      */
-    private VerbalExpression(final Pattern pattern) {
-        this.pattern = pattern;
+    boolean usesDfa() {
+        return dfa != null;
+    }
+
+    /**
+     * Turns ON the matcher of each thread.
+     * Called by the builder before the expression is cached, so the shared one is never changed
+     */
+    private synchronized void reuseMatchers() {
+        if (matchers == null) {
+            matchers = new ThreadLocal<VerbalMatcher>() {
+                @Override
+                protected VerbalMatcher initialValue() {
+                    return matcher();
+                }
+            };
+        }
+    }
+
+    private VerbalMatcher acquire() {
+        ThreadLocal<VerbalMatcher> pool = matchers;
+        return pool != null ? pool.get() : matcher();
+    }
+
+    private void release(final VerbalMatcher matcher) {
+        if (matchers != null) {
+            matcher.forget();
+        }
+    }
+
+    private Compiled compiled() {
+        Compiled result = compiled;
+        if (result == null) {
+            synchronized (this) {
+                result = compiled;
+                if (result == null) {
+                    result = new Compiled(root, source, modifiers);
+                    compiled = result;
+                    root = null;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Everything built from the tree to match the text. Immutable, published through the volatile field
+     */
+    private static final class Compiled {
+        private final Pattern pattern;
+        /**
+         * Used instead of the pattern, when the expression is only a set of literal strings. Otherwise null
+         */
+        private final AhoCorasick literals;
+        /**
+         * Literal, every match contains, to skip the text without it. Null if unknown
+         */
+        private final RequiredLiteral required;
+        /**
+         * Matches lie inside of lines, so lines may be searched apart
+         */
+        private final boolean byLines;
+
+        private Compiled(final Node root, final String source, final int modifiers) {
+            this.pattern = Pattern.compile(source, modifiers);
+            this.literals = AhoCorasick.of(root, modifiers);
+            this.required = literals == null ? RequiredLiteral.of(root, modifiers) : null;
+            this.byLines = LineBreaks.searchableByLines(root, modifiers);
+        }
+
     }
 
     /**
@@ -718,13 +1526,51 @@ public class VerbalExpression {
      * @return true if matches exact string, false otherwise
      */
     public boolean testExact(final String pToTest) {
-        boolean ret = false;
-        if (pToTest != null) {
-            ret = pattern.matcher(pToTest).matches();
+        return testExact((CharSequence) pToTest);
+    }
+
+    /**
+     * Test that full sequence matches regular expression
+     *
+     * @param pToTest - sequence to check match
+     * @return true if matches exact sequence, false otherwise, or for null
+     * @since 1.9
+     */
+    public boolean testExact(final CharSequence pToTest) {
+        return pToTest != null && testExact(pToTest, 0, pToTest.length());
+    }
+
+    /**
+     * Test that the region of sequence matches regular expression, as if it was the whole text.
+     * Nothing is copied, region is matched in place with {@link Matcher#region(int, int)}
+     *
+     * @param pToTest - sequence to check match
+     * @param start   - first char of the region
+     * @param end     - index after the last char of the region
+     * @return true if the region matches, false otherwise, or for null
+     * @throws IndexOutOfBoundsException if the region is not inside of the sequence
+     * @since 1.9
+     */
+    public boolean testExact(final CharSequence pToTest, final int start, final int end) {
+        MatchListener current = listener;
+        if (current == null) {
+            return matchExact(pToTest, start, end);
         }
+        long begin = System.nanoTime();
+        boolean ret = matchExact(pToTest, start, end);
+        current.onMatch(this, MatchListener.Operation.TEST_EXACT, end - start, ret, System.nanoTime() - begin);
         return ret;
     }
 
+    private boolean matchExact(final CharSequence pToTest, final int start, final int end) {
+        VerbalMatcher matcher = acquire();
+        try {
+            return matcher.testExact(pToTest, start, end);
+        } finally {
+            release(matcher);
+        }
+    }
+
     /**
      * Test that full string contains regex
      *
@@ -732,13 +1578,50 @@ public class VerbalExpression {
      * @return true if string contains regex, false otherwise
      */
     public boolean test(final String pToTest) {
-        boolean ret = false;
-        if (pToTest != null) {
-            ret = pattern.matcher(pToTest).find();
+        return test((CharSequence) pToTest);
+    }
+
+    /**
+     * Test that sequence contains regex
+     *
+     * @param pToTest - sequence to check match
+     * @return true if sequence contains regex, false otherwise, or for null
+     * @since 1.9
+     */
+    public boolean test(final CharSequence pToTest) {
+        return pToTest != null && test(pToTest, 0, pToTest.length());
+    }
+
+    /**
+     * Test that the region of sequence contains regex, as if it was the whole text
+     *
+     * @param pToTest - sequence to check match
+     * @param start   - first char of the region
+     * @param end     - index after the last char of the region
+     * @return true if the region contains regex, false otherwise, or for null
+     * @throws IndexOutOfBoundsException if the region is not inside of the sequence
+     * @since 1.9
+     */
+    public boolean test(final CharSequence pToTest, final int start, final int end) {
+        MatchListener current = listener;
+        if (current == null) {
+            return find(pToTest, start, end);
         }
+        long begin = System.nanoTime();
+        boolean ret = find(pToTest, start, end);
+        current.onMatch(this, MatchListener.Operation.TEST, end - start, ret, System.nanoTime() - begin);
         return ret;
     }
 
+    private boolean find(final CharSequence pToTest, final int start, final int end) {
+        VerbalMatcher matcher = acquire();
+        try {
+            return matcher.test(pToTest, start, end);
+        } finally {
+            release(matcher);
+        }
+    }
+
     /**
      * Extract full string that matches regex
      * Same as {@link #getText(String, int)} for 0 group
@@ -750,6 +1633,17 @@ public class VerbalExpression {
         return getText(toTest, 0);
     }
 
+    /**
+     * Same as {@link #getText(String)} for any sequence
+     *
+     * @param toTest - sequence to extract from
+     * @return group 0, extracted from text
+     * @since 1.9
+     */
+    public String getText(final CharSequence toTest) {
+        return getText(toTest, 0);
+    }
+
     /**
      * Extract exact group from string
      *
@@ -759,15 +1653,51 @@ public class VerbalExpression {
      * @since 1.1
      */
     public String getText(final String toTest, final int group) {
-        Matcher m = pattern.matcher(toTest);
-        StringBuilder result = new StringBuilder();
-        while (m.find()) {
-            String groupValue = m.group(group);
-            if (groupValue != null) {
-                result.append(groupValue);
-            }
+        return getText((CharSequence) toTest, group);
+    }
+
+    /**
+     * Same as {@link #getText(String, int)} for any sequence
+     *
+     * @param toTest - sequence to extract from
+     * @param group  - group to extract
+     * @return extracted group
+     * @since 1.9
+     */
+    public String getText(final CharSequence toTest, final int group) {
+        return getText(toTest, 0, toTest.length(), group);
+    }
+
+    /**
+     * Extract exact group from the region of sequence, as if it was the whole text
+     *
+     * @param toTest - sequence to extract from
+     * @param start  - first char of the region
+     * @param end    - index after the last char of the region
+     * @param group  - group to extract
+     * @return extracted group
+     * @throws IndexOutOfBoundsException if the region is not inside of the sequence
+     * @since 1.9
+     */
+    public String getText(final CharSequence toTest, final int start, final int end, final int group) {
+        MatchListener current = listener;
+        if (current == null) {
+            return extract(toTest, start, end, group);
+        }
+        long begin = System.nanoTime();
+        String ret = extract(toTest, start, end, group);
+        current.onMatch(this, MatchListener.Operation.GET_TEXT, end - start, !ret.isEmpty(),
+                System.nanoTime() - begin);
+        return ret;
+    }
+
+    private String extract(final CharSequence toTest, final int start, final int end, final int group) {
+        VerbalMatcher matcher = acquire();
+        try {
+            return matcher.getText(toTest, start, end, group);
+        } finally {
+            release(matcher);
         }
-        return result.toString();
     }
 
     /**
@@ -781,15 +1711,51 @@ public class VerbalExpression {
      * @since 1.6
      */
     public String getText(final String toTest, final String group) {
-        Matcher m = pattern.matcher(toTest);
-        StringBuilder result = new StringBuilder();
-        while (m.find()) {
-            String groupValue = m.group(group);
-            if (groupValue != null) {
-                result.append(groupValue);
-            }
+        return getText((CharSequence) toTest, group);
+    }
+
+    /**
+     * Same as {@link #getText(String, String)} for any sequence
+     *
+     * @param toTest - sequence to extract from
+     * @param group  - group to extract
+     * @return extracted group
+     * @since 1.9
+     */
+    public String getText(final CharSequence toTest, final String group) {
+        return getText(toTest, 0, toTest.length(), group);
+    }
+
+    /**
+     * Extract exact named-group from the region of sequence, as if it was the whole text
+     *
+     * @param toTest - sequence to extract from
+     * @param start  - first char of the region
+     * @param end    - index after the last char of the region
+     * @param group  - group to extract
+     * @return extracted group
+     * @throws IndexOutOfBoundsException if the region is not inside of the sequence
+     * @since 1.9
+     */
+    public String getText(final CharSequence toTest, final int start, final int end, final String group) {
+        MatchListener current = listener;
+        if (current == null) {
+            return extract(toTest, start, end, group);
+        }
+        long begin = System.nanoTime();
+        String ret = extract(toTest, start, end, group);
+        current.onMatch(this, MatchListener.Operation.GET_TEXT, end - start, !ret.isEmpty(),
+                System.nanoTime() - begin);
+        return ret;
+    }
+
+    private String extract(final CharSequence toTest, final int start, final int end, final String group) {
+        VerbalMatcher matcher = acquire();
+        try {
+            return matcher.getText(toTest, start, end, group);
+        } finally {
+            release(matcher);
         }
-        return result.toString();
     }
 
     /**
@@ -806,17 +1772,260 @@ public class VerbalExpression {
      * @return list of extracted groups
      */
     public List<String> getTextGroups(final String toTest, final int group) {
-        List<String> groups = new ArrayList<>();
-        Matcher m = pattern.matcher(toTest);
-        while (m.find()) {
-            groups.add(m.group(group));
+        return getTextGroups((CharSequence) toTest, group);
+    }
+
+    /**
+     * Same as {@link #getTextGroups(String, int)} for any sequence
+     *
+     * @param toTest - sequence to extract from
+     * @param group  - group to extract
+     * @return list of extracted groups
+     * @since 1.9
+     */
+    public List<String> getTextGroups(final CharSequence toTest, final int group) {
+        return getTextGroups(toTest, 0, toTest.length(), group);
+    }
+
+    /**
+     * Extract exact group from the region of sequence and add it to list, as if the region was the whole text
+     *
+     * @param toTest - sequence to extract from
+     * @param start  - first char of the region
+     * @param end    - index after the last char of the region
+     * @param group  - group to extract
+     * @return list of extracted groups
+     * @throws IndexOutOfBoundsException if the region is not inside of the sequence
+     * @since 1.9
+     */
+    public List<String> getTextGroups(final CharSequence toTest, final int start, final int end,
+                                      final int group) {
+        MatchListener current = listener;
+        if (current == null) {
+            return extractGroups(toTest, start, end, group);
+        }
+        long begin = System.nanoTime();
+        List<String> ret = extractGroups(toTest, start, end, group);
+        current.onMatch(this, MatchListener.Operation.GET_TEXT_GROUPS, end - start, !ret.isEmpty(),
+                System.nanoTime() - begin);
+        return ret;
+    }
+
+    private List<String> extractGroups(final CharSequence toTest, final int start, final int end, final int group) {
+        VerbalMatcher matcher = acquire();
+        try {
+            return matcher.getTextGroups(toTest, start, end, group);
+        } finally {
+            release(matcher);
         }
-        return groups;
+    }
+
+    /**
+     * Same as {@link #test(CharSequence)}, but gives up, once the match exceeds the budget.
+     * Use it for the texts and expressions, that come from the users.
+     *
+     * @param pToTest - sequence to check match
+     * @param budget  - steps and time the match may take
+     * @return true if sequence contains regex, false otherwise, or for null
+     * @throws MatchTimeoutException if the budget is exceeded before the answer is known
+     * @since 1.9
+     */
+    public boolean test(final CharSequence pToTest, final MatchBudget budget) {
+        return pToTest != null && test(budget.wrap(pToTest));
+    }
+
+    /**
+     * Same as {@link #getText(CharSequence, int)}, but gives up, once the match exceeds the budget
+     *
+     * @param toTest - sequence to extract from
+     * @param group  - group to extract
+     * @param budget - steps and time the search may take
+     * @return extracted group
+     * @throws MatchTimeoutException if the budget is exceeded before all matches are found
+     * @since 1.9
+     */
+    public String getText(final CharSequence toTest, final int group, final MatchBudget budget) {
+        return getText(budget.wrap(toTest), group);
+    }
+
+    /**
+     * Same as {@link #getTextGroups(CharSequence, int)}, but gives up, once the search exceeds the budget.
+     * The budget is for all matches together
+     *
+     * @param toTest - sequence to extract from
+     * @param group  - group to extract
+     * @param budget - steps and time the search may take
+     * @return list of extracted groups
+     * @throws MatchTimeoutException if the budget is exceeded before all matches are found
+     * @since 1.9
+     */
+    public List<String> getTextGroups(final CharSequence toTest, final int group, final MatchBudget budget) {
+        return getTextGroups(budget.wrap(toTest), group);
+    }
+
+    /**
+     * Finds all matches and writes offsets of the groups of each of them to the buffer, instead of extracting strings.
+     * Nothing is allocated per match, the buffer grows only when it is too small.
+     * <p>
+     * Example:
+     * <pre>
+     * MatchSpans spans = new MatchSpans();
+     * int count = regex.spans(text, spans, 0, 2); // whole matches and their 2nd groups
+     * for (int i = 0; i &lt; count; i++) {
+     *     index(spans.start(i, 1), spans.end(i, 1));
+     * }
+     * </pre>
+     *
+     * @param text   - sequence to search in
+     * @param spans  - buffer to overwrite with offsets
+     * @param groups - numbers of groups to keep, group 0 only if none
+     * @return count of the matches
+     * @throws IndexOutOfBoundsException if there is no such group
+     * @since 1.9
+     */
+    public int spans(final CharSequence text, final MatchSpans spans, final int... groups) {
+        return spans(text, 0, text.length(), spans, groups);
+    }
+
+    /**
+     * Same as {@link #spans(CharSequence, MatchSpans, int...)} in the region of sequence,
+     * as if it was the whole text. Offsets are of the whole text
+     *
+     * @param text   - sequence to search in
+     * @param start  - first char of the region
+     * @param end    - index after the last char of the region
+     * @param spans  - buffer to overwrite with offsets
+     * @param groups - numbers of groups to keep, group 0 only if none
+     * @return count of the matches
+     * @throws IndexOutOfBoundsException if the region is not inside of the sequence, or there is no such group
+     * @since 1.9
+     */
+    public int spans(final CharSequence text, final int start, final int end, final MatchSpans spans,
+                     final int... groups) {
+        VerbalMatcher matcher = acquire();
+        try {
+            return matcher.spans(text, start, end, spans, groups);
+        } finally {
+            release(matcher);
+        }
+    }
+
+    /**
+     * Lazy matches in the sequence, found one by one while iterating, so the first of them
+     * is available before the whole text is scanned, and the rest is not scanned if the iteration stops
+     *
+     * @param text - sequence to search in
+     * @return matches, each iterator of them searches again from the start
+     * @see Matches#split(int)
+     * @since 1.9
+     */
+    public Matches matches(final CharSequence text) {
+        return new Matches(this, text, 0, text.length());
+    }
+
+    /**
+     * Same as {@link #matches(CharSequence)} in the region of sequence, as if it was the whole text.
+     * Offsets of the matches are of the whole text
+     *
+     * @param text  - sequence to search in
+     * @param start - first char of the region
+     * @param end   - index after the last char of the region
+     * @return matches, each iterator of them searches again from the start of the region
+     * @throws IndexOutOfBoundsException if the region is not inside of the sequence
+     * @since 1.9
+     */
+    public Matches matches(final CharSequence text, final int start, final int end) {
+        return new Matches(this, text, start, end);
+    }
+
+    /**
+     * Creates scanner of files, that maps them into memory chunk by chunk instead of reading lines into strings
+     *
+     * @return new scanner, to be used by one thread
+     * @see FileScanner
+     * @since 1.9
+     */
+    public FileScanner fileScanner() {
+        return new FileScanner(this);
+    }
+
+    /**
+     * Creates scanner of unbounded streams, that keeps only the window of the last chars in memory
+     *
+     * @return new scanner, to be used by one thread
+     * @throws PatternSyntaxException if the expression is invalid and not compiled yet
+     * @see StreamScanner
+     * @since 1.9
+     */
+    public StreamScanner streamScanner() {
+        return new StreamScanner(this, pattern());
+    }
+
+    /**
+     * Creates tester of many texts at once on the calling thread, with one matcher for all of them
+     *
+     * @return batch matcher, that may be used many times
+     * @throws PatternSyntaxException if the expression is invalid and not compiled yet
+     * @see BatchMatcher
+     * @since 1.9
+     */
+    public BatchMatcher batch() {
+        precompile();
+        return new BatchMatcher(this, null, 1);
+    }
+
+    /**
+     * Creates tester of many texts at once, that splits them to ranges for the tasks on the executor
+     *
+     * @param executor - threads to run the tasks on
+     * @param tasks    - count of ranges, usually the count of the threads
+     * @return batch matcher, that may be used many times
+     * @throws PatternSyntaxException if the expression is invalid and not compiled yet
+     * @see BatchMatcher
+     * @since 1.9
+     */
+    public BatchMatcher batch(final ExecutorService executor, final int tasks) {
+        precompile();
+        return new BatchMatcher(this, Objects.requireNonNull(executor, "executor"), tasks);
+    }
+
+    /**
+     * Creates search of large texts on all threads of the pool, that splits them by lines
+     *
+     * @param pool - threads to search on
+     * @return search, that may be used many times
+     * @throws PatternSyntaxException if the expression is invalid and not compiled yet
+     * @see ParallelSearch
+     * @since 1.9
+     */
+    public ParallelSearch parallel(final ForkJoinPool pool) {
+        precompile();
+        return new ParallelSearch(this, Objects.requireNonNull(pool, "pool"));
+    }
+
+    /**
+     * Creates extractor of the named groups, to get all of them from each match in one pass over the text
+     *
+     * @param names - names of groups, given to {@link Builder#capture(String)}
+     * @return extractor, that may be used many times
+     * @throws IllegalArgumentException if there is no group with one of the names
+     * @see GroupExtractor
+     * @since 1.9
+     */
+    public GroupExtractor extractor(final String... names) {
+        precompile();
+        return new GroupExtractor(this, source, modifiers, names);
+    }
+
+    int extract(final CharSequence text, final int start, final int end, final GroupExtractor.Groups groups,
+                final GroupExtractor.Handler handler) {
+        // the handler may use this expression too, so the matcher of the thread is not taken
+        return matcher().extract(text, start, end, groups, handler);
     }
 
     @Override
     public String toString() {
-        return pattern.pattern();
+        return source;
     }
 
     /**
@@ -829,11 +2038,27 @@ public class VerbalExpression {
     public static Builder regex(final Builder pBuilder) {
         Builder builder = new Builder();
 
-        //Using created StringBuilder
-        builder.prefixes.append(pBuilder.prefixes);
-        builder.source.append(pBuilder.source);
-        builder.suffixes.append(pBuilder.suffixes);
+        List<Builder.Frame> frames = new ArrayList<>();
+        for (Builder.Frame frame = pBuilder.current; frame != null; frame = frame.parent) {
+            frames.add(0, frame);
+        }
+        //Nodes are immutable, so only opened groups are copied
+        Builder.Frame copy = null;
+        for (Builder.Frame frame : frames) {
+            copy = frame.copy(copy);
+        }
+        builder.current = copy;
+        builder.ors = pBuilder.ors;
+        builder.orsEnded = pBuilder.orsEnded;
+        builder.orsNotEnded = pBuilder.orsNotEnded;
+        builder.startsOfLine.addAll(pBuilder.startsOfLine);
+        builder.endsOfLine.addAll(pBuilder.endsOfLine);
         builder.modifiers = pBuilder.modifiers;
+        builder.simplify = pBuilder.simplify;
+        builder.preventBacktracking = pBuilder.preventBacktracking;
+        builder.lazy = pBuilder.lazy;
+        builder.reuseMatchers = pBuilder.reuseMatchers;
+        builder.dfa = pBuilder.dfa;
 
         return builder;
     }
@@ -0,0 +1,219 @@
+package ru.lanwen.verbalregex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Many expressions, tested against the same text at once: which of them have a match in it.
+ * <p>
+ * Literals of all expressions - the one, every match of the expression contains, or all strings of
+ * the expression, that is only a set of them - are put into one {@link AhoCorasick} automaton.
+ * One pass of it over the text finds out which literals are there, and only expressions with the found literal
+ * are run. Those, that are only sets of strings, are not run at all, and those, where nothing is known
+ * about their matches, e.g. with {@link java.util.regex.Pattern#CASE_INSENSITIVE}, are run on each text.
+ * <p>
+ * Example:
+ * <pre>
+ * VerbalExpressionSet rules = VerbalExpressionSet.of(
+ *         regex().find("ERROR").anything().build(),
+ *         regex().find("timeout after ").digit().oneOrMore().then("ms").build());
+ * BitSet matched = rules.test(event);
+ * for (int rule = matched.nextSetBit(0); rule &gt;= 0; rule = matched.nextSetBit(rule + 1)) {
+ *     alert(rules.get(rule));
+ * }
+ * </pre>
+ * Thread-safe, each thread has its own matchers.
+ *
+ * @since 1.9
+ */
+public final class VerbalExpressionSet {
+
+    private final VerbalExpression[] rules;
+    /**
+     * Literals of the rules, null if none of them has one
+     */
+    private final AhoCorasick literals;
+    /**
+     * Rules, that may match, if the literal is found
+     */
+    private final int[][] rulesOfLiteral;
+    /**
+     * Rules, that match, once any of their literals is found
+     */
+    private final BitSet literalSets;
+    /**
+     * Rules without literals, they are run on each text
+     */
+    private final int[] others;
+    private final ThreadLocal<State> states = new ThreadLocal<State>() {
+        @Override
+        protected State initialValue() {
+            return new State(rules.length);
+        }
+    };
+
+    private VerbalExpressionSet(final VerbalExpression[] rules) {
+        this.rules = rules;
+        this.literalSets = new BitSet(rules.length);
+
+        Map<String, List<Integer>> byLiteral = new LinkedHashMap<>();
+        List<Integer> withoutLiteral = new ArrayList<>();
+        for (int rule = 0; rule < rules.length; rule++) {
+            List<String> set = rules[rule].literalSet();
+            String required = rules[rule].requiredLiteral();
+            if (set != null) {
+                literalSets.set(rule);
+                for (String literal : set) {
+                    add(byLiteral, literal, rule);
+                }
+            } else if (required != null) {
+                add(byLiteral, required, rule);
+            } else {
+                withoutLiteral.add(rule);
+            }
+        }
+
+        this.literals = byLiteral.isEmpty() ? null : AhoCorasick.of(new ArrayList<>(byLiteral.keySet()));
+        this.rulesOfLiteral = new int[byLiteral.size()][];
+        int literal = 0;
+        for (List<Integer> ids : byLiteral.values()) {
+            rulesOfLiteral[literal++] = toArray(ids);
+        }
+        this.others = toArray(withoutLiteral);
+    }
+
+    /**
+     * Compiles the expressions, if they are not yet, and puts their literals together
+     *
+     * @param rules - expressions, their ids are the indexes
+     * @return set of the expressions
+     * @throws java.util.regex.PatternSyntaxException if one of the expressions is invalid
+     */
+    public static VerbalExpressionSet of(final VerbalExpression... rules) {
+        return of(Arrays.asList(rules));
+    }
+
+    /**
+     * @see #of(VerbalExpression...)
+     */
+    public static VerbalExpressionSet of(final List<VerbalExpression> rules) {
+        VerbalExpression[] compiled = new VerbalExpression[rules.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = rules.get(i).precompile();
+        }
+        return new VerbalExpressionSet(compiled);
+    }
+
+    /**
+     * Same as {@link VerbalExpression#test(CharSequence)} of each expression
+     *
+     * @param text - text to test
+     * @return ids of the expressions, that have a match in the text
+     */
+    public BitSet test(final CharSequence text) {
+        BitSet matched = new BitSet(rules.length);
+        test(text, matched);
+        return matched;
+    }
+
+    /**
+     * Same as {@link #test(CharSequence)}, but writes ids to the given set, to reuse it
+     *
+     * @param text    - text to test
+     * @param matched - cleared and filled with ids of the expressions, that have a match in the text
+     */
+    public void test(final CharSequence text, final BitSet matched) {
+        matched.clear();
+        if (text == null) {
+            return;
+        }
+        State state = states.get();
+        for (int rule : others) {
+            if (state.test(rule, text)) {
+                matched.set(rule);
+            }
+        }
+        if (literals == null) {
+            return;
+        }
+
+        BitSet found = state.literals;
+        found.clear();
+        literals.occurring(text, 0, text.length(), found);
+        for (int literal = found.nextSetBit(0); literal >= 0; literal = found.nextSetBit(literal + 1)) {
+            for (int rule : rulesOfLiteral[literal]) {
+                if (!matched.get(rule) && (literalSets.get(rule) || state.test(rule, text))) {
+                    matched.set(rule);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return count of the expressions
+     */
+    public int size() {
+        return rules.length;
+    }
+
+    /**
+     * @param id - index of the expression, given to {@link #of(VerbalExpression...)}
+     * @return the expression
+     */
+    public VerbalExpression get(final int id) {
+        return rules[id];
+    }
+
+    @Override
+    public String toString() {
+        return "VerbalExpressionSet{" + rules.length + " rules, " + others.length + " without literals}";
+    }
+
+    private static void add(final Map<String, List<Integer>> byLiteral, final String literal, final int rule) {
+        List<Integer> ids = byLiteral.get(literal);
+        if (ids == null) {
+            ids = new ArrayList<>(1);
+            byLiteral.put(literal, ids);
+        }
+        if (ids.isEmpty() || ids.get(ids.size() - 1) != rule) {
+            ids.add(rule);
+        }
+    }
+
+    private static int[] toArray(final List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Matchers and found literals of one thread
+     */
+    private final class State {
+        private final VerbalMatcher[] matchers;
+        private final BitSet literals = new BitSet();
+
+        private State(final int rules) {
+            this.matchers = new VerbalMatcher[rules];
+        }
+
+        private boolean test(final int rule, final CharSequence text) {
+            VerbalMatcher matcher = matchers[rule];
+            if (matcher == null) {
+                matcher = rules[rule].matcher();
+                matchers[rule] = matcher;
+            }
+            try {
+                return matcher.test(text);
+            } finally {
+                matcher.forget();
+            }
+        }
+    }
+}
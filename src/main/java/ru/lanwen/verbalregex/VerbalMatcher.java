@@ -0,0 +1,417 @@
+package ru.lanwen.verbalregex;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reusable handle to match texts with the one {@link VerbalExpression}.
+ * Keeps the {@link Matcher} and resets it for every new text, so repeated calls don't allocate it again.
+ * Methods are the same as of the expression, including region ones, that match a part of the text in place.
+ * <p>
+ * Not thread-safe: get one with {@link VerbalExpression#matcher()} for each thread.
+ * <pre>
+ * VerbalMatcher matcher = regex().find("error ").digit().oneOrMore().build().matcher();
+ * for (String line : lines) {
+ *     if (matcher.test(line)) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * Holds the last matched text until the next call.
+ *
+ * @since 1.9
+ */
+public final class VerbalMatcher {
+
+    private final Pattern pattern;
+    /**
+     * Used instead of the pattern, when the expression is only a set of literal strings. Otherwise null
+     */
+    private final AhoCorasick literals;
+    /**
+     * Literal, every match contains, to skip the text without it. Null if unknown
+     */
+    private final RequiredLiteral required;
+    /**
+     * Answers {@link #test} and {@link #testExact} without the pattern, if built with
+     * {@link VerbalExpression.Builder#dfa()}. Otherwise null
+     */
+    private final Dfa dfa;
+    /**
+     * Created on the first use of the pattern
+     */
+    private Matcher matcher;
+
+    VerbalMatcher(final Pattern pattern, final AhoCorasick literals, final RequiredLiteral required) {
+        this(pattern, literals, required, null);
+    }
+
+    VerbalMatcher(final Pattern pattern, final AhoCorasick literals, final RequiredLiteral required, final Dfa dfa) {
+        this.pattern = pattern;
+        this.literals = literals;
+        this.required = required;
+        this.dfa = dfa;
+    }
+
+    /**
+     * @see VerbalExpression#testExact(CharSequence)
+     */
+    public boolean testExact(final CharSequence pToTest) {
+        return pToTest != null && testExact(pToTest, 0, pToTest.length());
+    }
+
+    /**
+     * @see VerbalExpression#testExact(CharSequence, int, int)
+     */
+    public boolean testExact(final CharSequence pToTest, final int start, final int end) {
+        boolean ret = false;
+        if (pToTest != null) {
+            if (literals != null) {
+                checkRegion(pToTest, start, end);
+                ret = literals.matches(pToTest, start, end);
+            } else if (dfa != null) {
+                checkRegion(pToTest, start, end);
+                if (required == null || required.mayMatchExactly(pToTest, start, end)) {
+                    int answer = dfa.matches(pToTest, start, end);
+                    ret = answer == Dfa.UNKNOWN ? reset(pToTest, start, end).matches() : answer == Dfa.MATCH;
+                }
+            } else {
+                Matcher m = reset(pToTest, start, end);
+                if (required == null || required.mayMatchExactly(pToTest, start, end)) {
+                    ret = m.matches();
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @see VerbalExpression#test(CharSequence)
+     */
+    public boolean test(final CharSequence pToTest) {
+        return pToTest != null && test(pToTest, 0, pToTest.length());
+    }
+
+    /**
+     * @see VerbalExpression#test(CharSequence, int, int)
+     */
+    public boolean test(final CharSequence pToTest, final int start, final int end) {
+        boolean ret = false;
+        if (pToTest != null) {
+            if (literals != null) {
+                checkRegion(pToTest, start, end);
+                ret = literals.find(pToTest, start, end);
+            } else if (dfa != null) {
+                checkRegion(pToTest, start, end);
+                if (required == null || required.indexOf(pToTest, start, end) >= 0) {
+                    int answer = dfa.find(pToTest, start, end);
+                    ret = answer == Dfa.UNKNOWN ? reset(pToTest, start, end).find() : answer == Dfa.MATCH;
+                }
+            } else {
+                ret = find(reset(pToTest, start, end), pToTest, start, end, true);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @see VerbalExpression#getText(CharSequence)
+     */
+    public String getText(final CharSequence toTest) {
+        return getText(toTest, 0);
+    }
+
+    /**
+     * @see VerbalExpression#getText(CharSequence, int)
+     */
+    public String getText(final CharSequence toTest, final int group) {
+        return getText(toTest, 0, toTest.length(), group);
+    }
+
+    /**
+     * @see VerbalExpression#getText(CharSequence, int, int, int)
+     */
+    public String getText(final CharSequence toTest, final int start, final int end, final int group) {
+        StringBuilder result = new StringBuilder();
+        if (literals != null && group == 0) {
+            checkRegion(toTest, start, end);
+            for (String found : literals.findAll(toTest, start, end)) {
+                result.append(found);
+            }
+            return result.toString();
+        }
+
+        Matcher m = reset(toTest, start, end);
+        for (boolean first = true; find(m, toTest, start, end, first); first = false) {
+            String groupValue = m.group(group);
+            if (groupValue != null) {
+                result.append(groupValue);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * @see VerbalExpression#getText(CharSequence, String)
+     */
+    public String getText(final CharSequence toTest, final String group) {
+        return getText(toTest, 0, toTest.length(), group);
+    }
+
+    /**
+     * @see VerbalExpression#getText(CharSequence, int, int, String)
+     */
+    public String getText(final CharSequence toTest, final int start, final int end, final String group) {
+        Matcher m = reset(toTest, start, end);
+        StringBuilder result = new StringBuilder();
+        for (boolean first = true; find(m, toTest, start, end, first); first = false) {
+            String groupValue = m.group(group);
+            if (groupValue != null) {
+                result.append(groupValue);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * @see VerbalExpression#getTextGroups(CharSequence, int)
+     */
+    public List<String> getTextGroups(final CharSequence toTest, final int group) {
+        return getTextGroups(toTest, 0, toTest.length(), group);
+    }
+
+    /**
+     * @see VerbalExpression#getTextGroups(CharSequence, int, int, int)
+     */
+    public List<String> getTextGroups(final CharSequence toTest, final int start, final int end, final int group) {
+        if (literals != null && group == 0) {
+            checkRegion(toTest, start, end);
+            return literals.findAll(toTest, start, end);
+        }
+
+        List<String> groups = new ArrayList<>();
+        Matcher m = reset(toTest, start, end);
+        for (boolean first = true; find(m, toTest, start, end, first); first = false) {
+            groups.add(m.group(group));
+        }
+        return groups;
+    }
+
+    /**
+     * @see VerbalExpression#spans(CharSequence, MatchSpans, int...)
+     */
+    public int spans(final CharSequence text, final MatchSpans spans, final int... groups) {
+        return spans(text, 0, text.length(), spans, groups);
+    }
+
+    /**
+     * @see VerbalExpression#spans(CharSequence, int, int, MatchSpans, int...)
+     */
+    public int spans(final CharSequence text, final int start, final int end, final MatchSpans spans,
+                     final int... groups) {
+        if (groups.length == 0) {
+            return spans(text, start, end, spans, 0);
+        }
+        spans.reset(groups.length);
+        if (literals != null && groups.length == 1 && groups[0] == 0) {
+            checkRegion(text, start, end);
+            literals.spans(text, start, end, spans);
+            return spans.count();
+        }
+
+        Matcher m = reset(text, start, end);
+        for (int group : groups) {
+            if (group < 0 || group > m.groupCount()) {
+                throw new IndexOutOfBoundsException("No group " + group);
+            }
+        }
+        for (boolean first = true; find(m, text, start, end, first); first = false) {
+            for (int group : groups) {
+                spans.add(m.start(group), m.end(group));
+            }
+        }
+        return spans.count();
+    }
+
+    /**
+     * @see GroupExtractor#extract(CharSequence, int, int, GroupExtractor.Handler)
+     */
+    int extract(final CharSequence text, final int start, final int end, final GroupExtractor.Groups groups,
+                final GroupExtractor.Handler handler) {
+        Matcher m = reset(text, start, end);
+        groups.match(m);
+        int count = 0;
+        for (boolean first = true; find(m, text, start, end, first); first = false) {
+            handler.onMatch(groups);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return lazy iterator over the matches in the region, uses this matcher
+     */
+    Iterator<MatchResult> iterator(final CharSequence text, final int start, final int end) {
+        if (literals != null) {
+            return new LiteralIterator(text, start, end);
+        }
+        return new PatternIterator(reset(text, start, end), text, start, end);
+    }
+
+    /**
+     * @return true if matches lie inside of lines, so lines without the required literal may be skipped
+     */
+    boolean skipsLines() {
+        return required != null && required.withinLine();
+    }
+
+    /**
+     * @return index of the literal, that every match contains, in the region, or -1
+     * @see #skipsLines()
+     */
+    int indexOfRequired(final CharSequence text, final int from, final int end) {
+        return required.indexOf(text, from, end);
+    }
+
+    /**
+     * Drops the reference to the last matched text
+     */
+    void forget() {
+        if (matcher != null) {
+            matcher.reset("");
+        }
+    }
+
+    /**
+     * @return matcher of the text with the region set
+     * @throws IndexOutOfBoundsException if the region is not inside of the text
+     */
+    private Matcher reset(final CharSequence text, final int start, final int end) {
+        if (matcher == null) {
+            matcher = pattern.matcher(text);
+        } else {
+            matcher.reset(text);
+        }
+        return matcher.region(start, end);
+    }
+
+    /**
+     * Same bounds check as of {@link Matcher#region(int, int)}, when the matcher is not used
+     */
+    private static void checkRegion(final CharSequence text, final int start, final int end) {
+        if (start < 0 || start > end || end > text.length()) {
+            throw new IndexOutOfBoundsException("Region " + start + ".." + end + " of " + text.length() + " chars");
+        }
+    }
+
+    /**
+     * Same as {@link Matcher#find()}, but skips the text, where the match can't be
+     *
+     * @param matcher - matcher of the text
+     * @param text    - the text
+     * @param start   - first char of the region
+     * @param end     - index after the last char of the region
+     * @param first   - true if it is the first search in the region
+     * @return true if found
+     */
+    private boolean find(final Matcher matcher, final CharSequence text, final int start, final int end,
+                         final boolean first) {
+        return required != null ? required.find(matcher, text, start, end, first) : matcher.find();
+    }
+
+    /**
+     * Finds the next match only when the previous one is taken
+     */
+    private abstract static class LazyIterator implements Iterator<MatchResult> {
+        private MatchResult next;
+        private boolean done;
+
+        /**
+         * @return next match, or null if there is no more
+         */
+        abstract MatchResult findNext();
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                next = findNext();
+                done = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public MatchResult next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            MatchResult result = next;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Matches can't be removed");
+        }
+    }
+
+    private final class PatternIterator extends LazyIterator {
+        private final Matcher m;
+        private final CharSequence text;
+        private final int start;
+        private final int end;
+        private boolean first = true;
+
+        private PatternIterator(final Matcher m, final CharSequence text, final int start, final int end) {
+            this.m = m;
+            this.text = text;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        MatchResult findNext() {
+            boolean found = find(m, text, start, end, first);
+            first = false;
+            if (!found) {
+                return null;
+            }
+            int[] offsets = new int[2 * (m.groupCount() + 1)];
+            for (int group = 0; group <= m.groupCount(); group++) {
+                offsets[2 * group] = m.start(group);
+                offsets[2 * group + 1] = m.end(group);
+            }
+            return new Match(text, offsets);
+        }
+    }
+
+    private final class LiteralIterator extends LazyIterator {
+        private final CharSequence text;
+        private final int end;
+        private final int[] matchStart = new int[1];
+        private int from;
+
+        private LiteralIterator(final CharSequence text, final int start, final int end) {
+            checkRegion(text, start, end);
+            this.text = text;
+            this.end = end;
+            this.from = start;
+        }
+
+        @Override
+        MatchResult findNext() {
+            int keyword = literals.next(text, from, end, matchStart);
+            if (keyword < 0) {
+                return null;
+            }
+            from = matchStart[0] + literals.length(keyword);
+            return new Match(text, new int[]{matchStart[0], from});
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class AhoCorasickTest {
+
+    @Test
+    public void shouldBeUsedForOneOf() {
+        assertThat(regex().oneOf("error", "fail", "denied").build().isLiteralSet(), equalTo(true));
+    }
+
+    @Test
+    public void shouldBeUsedForThenOrChain() {
+        assertThat(regex().then("http").maybe("s").then("://").or("ftp://").build().isLiteralSet(), equalTo(true));
+    }
+
+    @Test
+    public void shouldBeUsedForLiteralsWithSpecialChars() {
+        assertThat(regex().then("example.com").or("a+b").build().isLiteralSet(), equalTo(true));
+    }
+
+    @Test
+    public void shouldNotBeUsedForRegexValues() {
+        assertThat(regex().oneOf("Mr.", "Mrs").build().isLiteralSet(), equalTo(false));
+    }
+
+    @Test
+    public void shouldNotBeUsedWithAnchors() {
+        assertThat(regex().startOfLine().oneOf("a", "b").build().isLiteralSet(), equalTo(false));
+    }
+
+    @Test
+    public void shouldNotBeUsedWithCaptures() {
+        assertThat(regex().capture().oneOf("a", "b").endCapture().build().isLiteralSet(), equalTo(false));
+    }
+
+    @Test
+    public void shouldNotBeUsedWithAnyCase() {
+        assertThat(regex().oneOf("a", "b").withAnyCase().build().isLiteralSet(), equalTo(false));
+    }
+
+    @Test
+    public void shouldNotBeUsedIfEmptyStringMatches() {
+        assertThat(regex().then("a").or(null).build().isLiteralSet(), equalTo(false));
+    }
+
+    @Test
+    public void shouldNotBeUsedForUnpairedSurrogates() {
+        assertThat(regex().then("\uD83D").or("b").build().isLiteralSet(), equalTo(false));
+    }
+
+    @Test
+    public void shouldPreferFirstAlternativeAtSamePosition() {
+        VerbalExpression expression = regex().oneOf("ab", "abcd", "bc").build();
+
+        assertThat(expression.getTextGroups("xabcd abcd", 0), equalTo(Arrays.asList("ab", "ab")));
+        assertThat(expression.getText("xabcd bcd"), equalTo("abbc"));
+    }
+
+    @Test
+    public void shouldPreferLeftmostMatch() {
+        VerbalExpression expression = regex().oneOf("bcd", "abcde").build();
+
+        assertThat(expression.getTextGroups("abcdx abcde", 0), equalTo(Arrays.asList("bcd", "abcde")));
+    }
+
+    @Test
+    public void shouldMatchExactly() {
+        VerbalExpression expression = regex().then("a").oneOf("b", "c").build();
+
+        assertThat(expression.testExact("ac"), equalTo(true));
+        assertThat(expression.testExact("a"), equalTo(false));
+        assertThat(expression.testExact("acx"), equalTo(false));
+        assertThat(expression.testExact(null), equalTo(false));
+        assertThat(expression.test(null), equalTo(false));
+    }
+
+    @Test
+    public void shouldMatchSameAsRegex() {
+        Random random = new Random(11);
+        int literalSets = 0;
+        for (int round = 0; round < 3000; round++) {
+            VerbalExpression expression = randomLiterals(random).build();
+            if (expression.isLiteralSet()) {
+                literalSets++;
+            }
+            Pattern pattern = Pattern.compile(expression.toString(), Pattern.MULTILINE);
+
+            for (int i = 0; i < 5; i++) {
+                String text = randomString(random, 1, 20);
+                String message = expression + " on " + text;
+                assertThat(message, expression.test(text), equalTo(pattern.matcher(text).find()));
+                assertThat(message, expression.testExact(text), equalTo(pattern.matcher(text).matches()));
+                assertThat(message, expression.getTextGroups(text, 0), equalTo(findAll(pattern, text)));
+                assertThat(message, expression.getText(text), equalTo(join(findAll(pattern, text))));
+            }
+        }
+        assertThat(literalSets > 1000, equalTo(true));
+    }
+
+    private static VerbalExpression.Builder randomLiterals(Random random) {
+        VerbalExpression.Builder builder = regex();
+        int parts = 1 + random.nextInt(3);
+        for (int part = 0; part < parts; part++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    String[] values = new String[1 + random.nextInt(20)];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = randomString(random, 1, 5);
+                    }
+                    builder.oneOf(values);
+                    break;
+                case 1:
+                    builder.maybe(randomString(random, 1, 3));
+                    break;
+                case 2:
+                    builder.or(randomString(random, 1, 4));
+                    break;
+                default:
+                    builder.then(randomString(random, 1, 4));
+            }
+        }
+        return builder.simplify(random.nextBoolean());
+    }
+
+    private static String randomString(Random random, int minLength, int maxLength) {
+        char[] chars = new char[minLength + random.nextInt(maxLength - minLength + 1)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "abc".charAt(random.nextInt(3));
+        }
+        return new String(chars);
+    }
+
+    private static List<String> findAll(Pattern pattern, String text) {
+        List<String> found = new ArrayList<>();
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            found.add(matcher.group());
+        }
+        return found;
+    }
+
+    private static String join(List<String> values) {
+        StringBuilder joined = new StringBuilder();
+        for (String value : values) {
+            joined.append(value);
+        }
+        return joined.toString();
+    }
+}
@@ -0,0 +1,174 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class BacktrackingTest {
+
+    @Test
+    public void shouldWarnAboutNestedQuantifiers() {
+        assertThat(regex().something().oneOrMore().then("!").build().getWarnings().toString(),
+                equalTo("[NESTED_QUANTIFIERS (?:.+)+]"));
+        assertThat(regex().capture().word().maybe(".").endCapture().oneOrMore().simplify().build()
+                .getWarnings().toString(), equalTo("[NESTED_QUANTIFIERS (\\w+\\.?)+]"));
+    }
+
+    @Test
+    public void shouldWarnAboutAdjacentQuantifiers() {
+        BacktrackingWarning warning = regex().anything().anything().build().getWarnings().get(0);
+
+        assertThat(warning.getKind(), equalTo(BacktrackingWarning.Kind.ADJACENT_QUANTIFIERS));
+        assertThat(warning.getFragment(), equalTo("(?:.*)(?:.*)"));
+        assertThat(regex().word().space().zeroOrMore().digit().oneOrMore().simplify().build()
+                .getWarnings().toString(), equalTo("[ADJACENT_QUANTIFIERS \\w+\\s*\\d+]"));
+    }
+
+    @Test
+    public void shouldNotWarnWhenRepetitionsAreSeparated() {
+        assertThat(regex().capture().word().space().endCapture().oneOrMore().build().getWarnings().isEmpty(),
+                equalTo(true));
+        assertThat(regex().anything().then(" = ").anything().build().getWarnings().isEmpty(), equalTo(true));
+        assertThat(regex().word().space().oneOrMore().digit().oneOrMore().build().getWarnings().isEmpty(),
+                equalTo(true));
+    }
+
+    @Test
+    public void shouldMakeRepetitionsPossessive() {
+        assertThat(regex().startOfLine().wordChar().oneOrMore().then("@").simplify().preventBacktracking().build()
+                .toString(), equalTo("^\\w++\\@"));
+        assertThat(regex().word().oneOrMore().endOfLine().simplify().preventBacktracking().build().toString(),
+                equalTo("(?>(?:\\w+)+)$"));
+        assertThat(regex().range("a", "z").oneOrMore().digit().zeroOrMore().simplify().preventBacktracking()
+                .build().toString(), equalTo("[a-z]++\\d*+"));
+    }
+
+    @Test
+    public void shouldKeepRepetitionsThatGiveBack() {
+        VerbalExpression expression = regex().something().oneOrMore().then("!").simplify().preventBacktracking()
+                .build();
+
+        assertThat(expression.toString(), equalTo("(?:.+)+\\!"));
+        assertThat(expression.getWarnings().size(), equalTo(1));
+        assertThat(regex().word().then("x").simplify().preventBacktracking().build().toString(),
+                equalTo("\\w+x"));
+        assertThat(regex().then("a").oneOrMore().add("\\1").preventBacktracking().build().toString(),
+                equalTo("(?:a)+\\1"));
+    }
+
+    @Test
+    public void shouldKeepRepetitionsBeforeValuesWithComments() {
+        // whitespace of the value is ignored, so \w+ has to give back "a"
+        VerbalExpression.Builder comments = regex().word().oneOf(" a").addModifier('x');
+        VerbalExpression.Builder inline = regex().word().add(regex().oneOf(" a").addModifier('x'));
+
+        for (VerbalExpression.Builder builder : new VerbalExpression.Builder[]{comments, inline}) {
+            String original = VerbalExpression.regex(builder).build().toString();
+            String rewritten = VerbalExpression.regex(builder).preventBacktracking().build().toString();
+            int flags = Pattern.MULTILINE | (builder == comments ? Pattern.COMMENTS : 0);
+
+            assertThat(rewritten, equalTo(original));
+            assertThat(Pattern.compile(original, flags).matcher("ba").find(), equalTo(true));
+            assertThat(Pattern.compile(rewritten, flags).matcher("ba").find(), equalTo(true));
+        }
+    }
+
+    @Test
+    public void shouldRejectNearMissQuickly() {
+        VerbalExpression expression = regex().startOfLine().word().oneOrMore().then("@").preventBacktracking()
+                .build();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            text.append('a');
+        }
+
+        assertThat(expression.getWarnings().isEmpty(), equalTo(true));
+        assertThat(expression.test(text.append('!')), equalTo(false));
+    }
+
+    @Test
+    public void shouldMatchSameAfterRewrite() {
+        Random random = new Random(44);
+        for (int round = 0; round < 1000; round++) {
+            VerbalExpression.Builder builder = regex();
+            for (int i = random.nextInt(5); i >= 0; i--) {
+                item(builder, random);
+            }
+            if (random.nextInt(5) == 0) {
+                builder.withAnyCase();
+            }
+            VerbalExpression rewritten = VerbalExpression.regex(builder).preventBacktracking().build();
+            VerbalExpression expression = builder.build();
+
+            for (int i = 0; i < 30; i++) {
+                String text = text(random);
+                assertThat(rewritten + " in " + text, rewritten.test(text), equalTo(expression.test(text)));
+                assertThat(rewritten + " exactly " + text,
+                        rewritten.testExact(text), equalTo(expression.testExact(text)));
+                assertThat(rewritten + " groups in " + text,
+                        rewritten.getTextGroups(text, 0), equalTo(expression.getTextGroups(text, 0)));
+            }
+        }
+    }
+
+    private static void item(VerbalExpression.Builder builder, Random random) {
+        switch (random.nextInt(12)) {
+            case 0:
+                builder.then(word(random));
+                break;
+            case 1:
+                builder.maybe(word(random));
+                break;
+            case 2:
+                builder.word();
+                break;
+            case 3:
+                builder.digit().oneOrMore();
+                break;
+            case 4:
+                builder.anything();
+                break;
+            case 5:
+                builder.anythingBut(word(random));
+                break;
+            case 6:
+                builder.startOfLine();
+                break;
+            case 7:
+                builder.endOfLine();
+                break;
+            case 8:
+                builder.wordBoundary();
+                break;
+            case 9:
+                builder.range("a", "c").count(1, 3);
+                break;
+            case 10:
+                builder.capture().word().then(word(random)).endCapture().zeroOrMore();
+                break;
+            default:
+                builder.space().zeroOrMore().nonSpace();
+        }
+    }
+
+    private static String word(Random random) {
+        char[] chars = new char[1 + random.nextInt(2)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "abA1 ".charAt(random.nextInt(5));
+        }
+        return new String(chars);
+    }
+
+    private static String text(Random random) {
+        char[] chars = new char[random.nextInt(12)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "abcAB1 _\n-".charAt(random.nextInt(10));
+        }
+        return new String(chars);
+    }
+}
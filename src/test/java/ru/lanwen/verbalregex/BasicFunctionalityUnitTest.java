@@ -577,6 +577,35 @@ public class BasicFunctionalityUnitTest {
         assertThat(regex, not(matchesExactly(example2digit)));
     }
 
+    @Test
+    public void addRegexBuilderKeepsItsOwnModifiers() throws Exception {
+        VerbalExpression regex = regex()
+                .then("a").add(regex().then("b").withAnyCase()).then("c").build();
+
+        assertThat(regex.toString(), equalTo("(?:a)(?:(?i:(?:b)))(?:c)"));
+        assertThat(regex, matchesExactly("aBc"));
+        assertThat(regex, not(matchesExactly("Abc")));
+    }
+
+    @Test
+    public void addRegexBuilderWithDefaultModifiersInheritsOuter() throws Exception {
+        VerbalExpression regex = regex()
+                .then("a").add(regex().then("b")).withAnyCase().build();
+
+        assertThat(regex.toString(), equalTo("(?:a)(?:(?:b))"));
+        assertThat(regex, matchesExactly("AB"));
+    }
+
+    @Test
+    public void addRegexBuilderWithRemovedModifier() throws Exception {
+        VerbalExpression regex = regex()
+                .add(regex().startOfLine().then("b").searchOneLine(true)).build();
+
+        assertThat(regex.toString(), equalTo("(?:(?-m:^(?:b)))"));
+        assertThat(regex, not(matchesTo("a\nb")));
+        assertThat(regex, matchesTo("b\na"));
+    }
+
     @Test
     public void multiplyWith1NumProduceSameAsCountResult() throws Exception {
         VerbalExpression regex = regex().multiple("a", 1).build();
@@ -656,6 +685,43 @@ public class BasicFunctionalityUnitTest {
         assertThat(regexWithOneOrMore, matchesExactly(empty));
     }
 
+    @Test
+    public void possessiveQuantifiersDontGiveBack() {
+        assertThat(regex().find("a").oneOrMorePossessive().then("a").build(), not(matchesTo("aaa")));
+        assertThat(regex().find("a").zeroOrMorePossessive().then("b").build(), matchesExactly("aab"));
+        assertThat(regex().find("a").countPossessive(1, 3).then("a").build(), not(matchesExactly("aaa")));
+        assertThat(regex().find("a").countPossessive(1, 3).then("a").build(), matchesExactly("aaaa"));
+        assertThat(regex().find("a").atLeastPossessive(2).build(), not(matchesTo("ab")));
+    }
+
+    @Test
+    public void possessiveQuantifiersRender() {
+        assertThat(regex().find("a").oneOrMorePossessive().build().toString(), equalTo("(?:a)++"));
+        assertThat(regex().find("a").zeroOrMorePossessive().build().toString(), equalTo("(?:a)*+"));
+        assertThat(regex().find("a").countPossessive(2).build().toString(), equalTo("(?:a){2}+"));
+        assertThat(regex().find("a").countPossessive(1, 3).build().toString(), equalTo("(?:a){1,3}+"));
+        assertThat(regex().find("a").atLeastPossessive(2).build().toString(), equalTo("(?:a){2,}+"));
+    }
+
+    @Test
+    public void atomicGroupDoesntTryOtherAlternatives() {
+        VerbalExpression regex = regex().atomicGroup().oneOf("a", "ab").endAtomic().then("c").build();
+
+        assertThat(regex.toString(), equalTo("(?>(?:(?:a)|(?:ab)))(?:c)"));
+        assertThat(regex, matchesTo("ac"));
+        assertThat(regex, not(matchesTo("abc")));
+    }
+
+    @Test
+    public void atomicGroupIsClosedOnBuildAndCanBeRepeated() {
+        VerbalExpression repeated = regex().atomicGroup().digit().oneOrMore().then(",").endAtomic().count(2).build();
+        VerbalExpression opened = regex().then("a").atomicGroup().anythingBut(" ").build();
+
+        assertThat(repeated, matchesExactly("1,23,"));
+        assertThat(repeated.getText("1,2,3,", 0), equalTo("1,2,"));
+        assertThat(opened.toString(), equalTo("(?:a)(?>(?:[^\\ ]*))"));
+    }
+
     @Test
     public void testOneOf() {
         VerbalExpression testRegex = new VerbalExpression.Builder()
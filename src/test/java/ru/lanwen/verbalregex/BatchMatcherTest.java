@@ -0,0 +1,85 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class BatchMatcherTest {
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(3);
+
+    @AfterClass
+    public static void shutdown() {
+        EXECUTOR.shutdown();
+    }
+
+    @Test
+    public void shouldSetBitsOfMatchedTexts() {
+        BitSet matched = regex().startOfLine().digit().count(5).endOfLine().build().batch()
+                .test(Arrays.asList("12345", "1234", null, "54321"));
+
+        assertThat(matched.toString(), equalTo("{0, 3}"));
+    }
+
+    @Test
+    public void shouldFillArrayOfMatchedTexts() {
+        boolean[] matched = regex().then("a").build().batch().test(new CharSequence[]{"abc", "b", new StringBuilder("ba")});
+
+        assertThat(Arrays.toString(matched), equalTo("[true, false, true]"));
+    }
+
+    @Test
+    public void shouldCountMatchedTexts() {
+        assertThat(regex().digit().build().batch(EXECUTOR, 3).count(new LinkedList<>(Arrays.asList("1", "a", "2"))),
+                equalTo(2));
+    }
+
+    @Test
+    public void shouldHandleEmptyBatch() {
+        BatchMatcher batch = regex().digit().build().batch(EXECUTOR, 3);
+
+        assertThat(batch.test(new ArrayList<String>()).isEmpty(), equalTo(true));
+        assertThat(batch.test(new CharSequence[0]).length, equalTo(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAcceptZeroTasks() {
+        regex().digit().build().batch(EXECUTOR, 0);
+    }
+
+    @Test
+    public void shouldFindSameOnExecutorAsOneByOne() {
+        Random random = new Random(37);
+        VerbalExpression expression = regex().then("key").digit().oneOrMore().build();
+        for (int round = 0; round < 20; round++) {
+            List<String> texts = new ArrayList<>();
+            for (int i = random.nextInt(1000); i > 0; i--) {
+                texts.add((random.nextBoolean() ? "key" : "value") + random.nextInt(100));
+            }
+
+            BitSet expected = new BitSet();
+            for (int i = 0; i < texts.size(); i++) {
+                expected.set(i, expression.test(texts.get(i)));
+            }
+            BatchMatcher batch = expression.batch(EXECUTOR, 1 + random.nextInt(8));
+            assertThat(batch.test(texts), equalTo(expected));
+            assertThat(batch.count(texts), equalTo(expected.cardinality()));
+            boolean[] matched = batch.test(texts.toArray(new CharSequence[0]));
+            for (int i = 0; i < texts.size(); i++) {
+                assertThat(matched[i], equalTo(expected.get(i)));
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class DfaTest {
+
+    @Test
+    public void shouldMatchWithoutBacktracking() {
+        VerbalExpression expression = regex().startOfLine().capture().word().oneOrMore().endCapture().oneOrMore()
+                .then("!").endOfLine().dfa().build();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            text.append('a');
+        }
+
+        assertThat(expression.usesDfa(), equalTo(true));
+        assertThat(expression.test(text), equalTo(false));
+        assertThat(expression.testExact(text), equalTo(false));
+        assertThat(expression.test(text.append('!')), equalTo(true));
+    }
+
+    @Test
+    public void shouldResolveAnchors() {
+        VerbalExpression line = regex().startOfLine().then("key").endOfLine().dfa().build();
+        VerbalExpression word = regex().wordBoundary().then("id").wordBoundary().dfa().build();
+
+        assertThat(line.test("a\nkey\r\nb"), equalTo(true));
+        assertThat(line.test("akey\n"), equalTo(false));
+        assertThat(line.test("key!"), equalTo(false));
+        assertThat(word.test("the id."), equalTo(true));
+        assertThat(word.test("the ids"), equalTo(false));
+    }
+
+    @Test
+    public void shouldFoldCase() {
+        VerbalExpression expression = regex().then("Key").range("a", "c").withAnyCase().dfa().build();
+
+        assertThat(expression.usesDfa(), equalTo(true));
+        assertThat(expression.testExact("kEYB"), equalTo(true));
+        assertThat(expression.testExact("keyd"), equalTo(false));
+    }
+
+    @Test
+    public void shouldFallBackToPattern() {
+        VerbalExpression raw = regex().add("(?=a)a").dfa().build();
+        VerbalExpression end = regex().then("a").endOfLine().searchOneLine(true).dfa().build();
+
+        assertThat(raw.usesDfa(), equalTo(false));
+        assertThat(raw.test("ba"), equalTo(true));
+        assertThat(end.usesDfa(), equalTo(false));
+        assertThat(end.test("ba\n"), equalTo(true));
+    }
+
+    @Test
+    public void shouldFallBackOnZeroCountOfRawSource() {
+        VerbalExpression raw = regex().add("abc").count(0).dfa().build();
+        VerbalExpression quantifier = regex().zeroOrMore().count(0).startOfLine().dfa().build();
+
+        assertThat(raw.usesDfa(), equalTo(false));
+        assertThat(raw.test("xyz"), equalTo(false));
+        assertThat(raw.test("ab"), equalTo(true));
+        assertThat(quantifier.usesDfa(), equalTo(false));
+        assertThat(quantifier.test(""), equalTo(true));
+    }
+
+    @Test
+    public void shouldLeaveSurrogatesToPattern() {
+        VerbalExpression expression = regex().then("a").anything().then("b").dfa().build();
+
+        assertThat(expression.usesDfa(), equalTo(true));
+        assertThat(expression.testExact("a\uD83D\uDE00b"), equalTo(true));
+        assertThat(expression.test("\uD83D\uDE00a"), equalTo(false));
+    }
+
+    @Test
+    public void shouldMergeSameAlternatives() {
+        VerbalExpression.Builder builder = regex().oneOf("a", "a", "ab").anyOf("ba").wordChar();
+        VerbalExpression dfa = VerbalExpression.regex(builder).dfa().build();
+        VerbalExpression pattern = builder.build();
+
+        assertThat(dfa.usesDfa(), equalTo(true));
+        for (String text : new String[]{"a\naaaa\n", "aab", "abb_", "ab\nba", "aaaaaaaa"}) {
+            assertThat(dfa + " in " + text, dfa.test(text), equalTo(pattern.test(text)));
+            assertThat(dfa + " exactly " + text, dfa.testExact(text), equalTo(pattern.testExact(text)));
+        }
+    }
+
+    @Test
+    public void shouldNotUseDfaByDefault() {
+        assertThat(regex().then("a").build().usesDfa(), equalTo(false));
+    }
+
+    @Test
+    public void shouldMatchSameAsPattern() {
+        Random random = new Random(43);
+        int built = 0;
+        for (int round = 0; round < 1000; round++) {
+            VerbalExpression.Builder builder = regex();
+            for (int i = random.nextInt(5); i >= 0; i--) {
+                item(builder, random);
+            }
+            if (random.nextInt(5) == 0) {
+                builder.withAnyCase();
+            }
+            if (random.nextInt(5) == 0) {
+                builder.addModifier('s');
+            }
+            if (random.nextInt(5) == 0) {
+                builder.addModifier('d');
+            }
+            VerbalExpression dfa = VerbalExpression.regex(builder).dfa().build();
+            VerbalExpression pattern = builder.dfa(false).build();
+            if (dfa.usesDfa()) {
+                built++;
+            }
+
+            for (int i = 0; i < 30; i++) {
+                String text = text(random);
+                assertThat(dfa + " in " + text, dfa.test(text), equalTo(pattern.test(text)));
+                assertThat(dfa + " exactly " + text, dfa.testExact(text), equalTo(pattern.testExact(text)));
+                int start = random.nextInt(text.length() + 1);
+                int end = start + random.nextInt(text.length() - start + 1);
+                assertThat(dfa + " in region of " + text,
+                        dfa.test(text, start, end), equalTo(pattern.test(text, start, end)));
+            }
+        }
+        assertThat(built > 900, equalTo(true));
+    }
+
+    private static void item(VerbalExpression.Builder builder, Random random) {
+        switch (random.nextInt(14)) {
+            case 0:
+                builder.then(word(random));
+                break;
+            case 1:
+                builder.maybe(word(random));
+                break;
+            case 2:
+                builder.word();
+                break;
+            case 3:
+                builder.digit().oneOrMore();
+                break;
+            case 4:
+                builder.anything();
+                break;
+            case 5:
+                builder.anythingBut(word(random));
+                break;
+            case 6:
+                builder.oneOf(word(random), word(random), "");
+                break;
+            case 7:
+                builder.startOfLine();
+                break;
+            case 8:
+                builder.endOfLine();
+                break;
+            case 9:
+                builder.wordBoundary();
+                break;
+            case 10:
+                builder.range("a", "c").count(1, 3);
+                break;
+            case 11:
+                builder.capture().then(word(random)).or(word(random)).endCapture().zeroOrMore();
+                break;
+            case 12:
+                builder.lineBreak();
+                break;
+            default:
+                builder.space().nonSpace();
+        }
+    }
+
+    private static String word(Random random) {
+        char[] chars = new char[1 + random.nextInt(3)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "abcA1".charAt(random.nextInt(5));
+        }
+        return new String(chars);
+    }
+
+    private static String text(Random random) {
+        char[] chars = new char[random.nextInt(12)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "abcAB1 _\n\r\u0085\u00e9-".charAt(random.nextInt(13));
+        }
+        return new String(chars);
+    }
+}
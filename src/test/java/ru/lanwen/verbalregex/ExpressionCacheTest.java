@@ -0,0 +1,163 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class ExpressionCacheTest {
+
+    @After
+    public void stopCaching() {
+        ExpressionCache.setShared(null);
+    }
+
+    @Test
+    public void shouldNotCacheByDefault() {
+        assertThat(regex().then("a").build(), not(sameInstance(regex().then("a").build())));
+    }
+
+    @Test
+    public void shouldReturnSameInstanceForSameExpression() {
+        ExpressionCache cache = new ExpressionCache(10);
+        ExpressionCache.setShared(cache);
+
+        VerbalExpression first = regex().startOfLine().then("a").digit().build();
+        VerbalExpression second = regex().startOfLine().then("a").digit().build();
+
+        assertThat(second, sameInstance(first));
+        assertThat(cache.missCount(), equalTo(1L));
+        assertThat(cache.hitCount(), equalTo(1L));
+        assertThat(cache.size(), equalTo(1));
+    }
+
+    @Test
+    public void shouldSeparateByModifiers() {
+        ExpressionCache.setShared(new ExpressionCache(10));
+
+        VerbalExpression sensitive = regex().then("a").build();
+        VerbalExpression insensitive = regex().then("a").withAnyCase().build();
+
+        assertThat(insensitive, not(sameInstance(sensitive)));
+        assertThat(insensitive.test("A"), equalTo(true));
+        assertThat(sensitive.test("A"), equalTo(false));
+    }
+
+    @Test
+    public void shouldSeparateByOptions() {
+        ExpressionCache cache = new ExpressionCache(10);
+        ExpressionCache.setShared(cache);
+
+        VerbalExpression withDfa = regex().then("a").dfa().build();
+        VerbalExpression plain = regex().then("a").build();
+        VerbalExpression reusing = regex().then("a").reuseMatchers().build();
+
+        assertThat(plain, not(sameInstance(withDfa)));
+        assertThat(reusing, not(sameInstance(plain)));
+        assertThat(withDfa.usesDfa(), equalTo(true));
+        assertThat(plain.usesDfa(), equalTo(false));
+        assertThat(regex().then("a").dfa().build(), sameInstance(withDfa));
+        assertThat(cache.size(), equalTo(3));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() {
+        ExpressionCache cache = new ExpressionCache(2, 1);
+        ExpressionCache.setShared(cache);
+
+        VerbalExpression a = regex().then("a").build();
+        regex().then("b").build();
+        assertThat(regex().then("a").build(), sameInstance(a));
+        regex().then("c").build();
+
+        assertThat(cache.evictionCount(), equalTo(1L));
+        assertThat(cache.size(), equalTo(2));
+        assertThat(regex().then("a").build(), sameInstance(a));
+        assertThat(cache.missCount(), equalTo(3L));
+    }
+
+    @Test
+    public void shouldNotExceedMaximumSize() {
+        ExpressionCache cache = new ExpressionCache(10);
+        ExpressionCache.setShared(cache);
+
+        for (int i = 0; i < 100; i++) {
+            regex().then("value" + i).build();
+        }
+
+        assertThat(cache.size() <= 10, equalTo(true));
+        assertThat(cache.evictionCount(), equalTo(100L - cache.size()));
+    }
+
+    @Test
+    public void shouldClear() {
+        ExpressionCache cache = new ExpressionCache(10);
+        ExpressionCache.setShared(cache);
+        VerbalExpression first = regex().then("a").build();
+
+        cache.clear();
+
+        assertThat(cache.size(), equalTo(0));
+        assertThat(regex().then("a").build(), not(sameInstance(first)));
+    }
+
+    @Test
+    public void shouldKeepEachExpressionOfSmallCache() {
+        for (int size = 1; size <= 20; size++) {
+            ExpressionCache cache = new ExpressionCache(size);
+            ExpressionCache.setShared(cache);
+
+            List<VerbalExpression> built = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                built.add(regex().then("value" + i).build());
+            }
+
+            assertThat(cache.size() + " of " + size, cache.size() <= size, equalTo(true));
+            // every segment holds at least one expression, so the last built one is never evicted
+            assertThat(regex().then("value199").build(), sameInstance(built.get(199)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAcceptZeroSize() {
+        new ExpressionCache(0);
+    }
+
+    @Test
+    public void shouldShareOneInstanceBetweenThreads() throws Exception {
+        ExpressionCache cache = new ExpressionCache(100, 4);
+        ExpressionCache.setShared(cache);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<VerbalExpression>> built = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                built.add(executor.submit(new Callable<VerbalExpression>() {
+                    @Override
+                    public VerbalExpression call() {
+                        return regex().startOfLine().then("http").maybe("s").then("://").build();
+                    }
+                }));
+            }
+
+            VerbalExpression first = built.get(0).get();
+            for (Future<VerbalExpression> expression : built) {
+                assertThat(expression.get(), sameInstance(first));
+            }
+            assertThat(cache.hitCount() + cache.missCount(), equalTo(200L));
+            assertThat(cache.size(), equalTo(1));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+/**
+ * Builder records tree of nodes and renders it on build().
+ * Expected sources were produced by previous string-based builder, they should stay the same
+ */
+public class ExpressionTreeTest {
+
+    @Test
+    public void shouldRenderUrl() {
+        assertThat(regex().startOfLine().then("http").maybe("s").then("://").maybe("www.").anythingBut(" ").endOfLine().build().toString(),
+                equalTo("^(?:http)(?:s)?(?:\\:\\/\\/)(?:www\\.)?(?:[^\\ ]*)$"));
+    }
+
+    @Test
+    public void shouldRenderOr2() {
+        assertThat(regex().startOfLine().then("abc").or("def").endOfLine().build().toString(),
+                equalTo("^(?:(?:abc))|(?:(?:def))$"));
+    }
+
+    @Test
+    public void shouldRenderOr3() {
+        assertThat(regex().startOfLine().then("a").or("b").or("c").endOfLine().build().toString(),
+                equalTo("^(?:(?:(?:a))|(?:(?:b))|(?:(?:c)))$"));
+    }
+
+    @Test
+    public void shouldRenderOr4() {
+        assertThat(regex().then("a").or("b").or("c").or("d").build().toString(),
+                equalTo("(?:(?:(?:(?:a))|(?:(?:b))|(?:(?:c))|(?:(?:d))))"));
+    }
+
+    @Test
+    public void shouldRenderOrNull() {
+        assertThat(regex().startOfLine().then("a").or(null).build().toString(),
+                equalTo("^(?:(?:a))|(?:)"));
+    }
+
+    @Test
+    public void shouldRenderOrCapture() {
+        assertThat(regex().startOfLine().then("a").capture().or("b").build().toString(),
+                equalTo("^(?:(?:a)()|(?:(?:b)))"));
+    }
+
+    @Test
+    public void shouldRenderOrCapture3() {
+        assertThat(regex().then("a").capture().then("x").or("b").or("c").build().toString(),
+                equalTo("(?:(?:(?:a)((?:x))|(?:(?:b))|(?:(?:c))))"));
+    }
+
+    @Test
+    public void shouldRenderOrNamed() {
+        assertThat(regex().capture("n").find("abc").or("def").build().toString(),
+                equalTo("(?:(?<n>(?:abc))|(?:(?:def)))"));
+    }
+
+    @Test
+    public void shouldRenderOrClosedCapture() {
+        assertThat(regex().capture().find("abc").endCapt().or("def").build().toString(),
+                equalTo("(?:((?:abc)))|(?:(?:def))"));
+    }
+
+    @Test
+    public void shouldRenderCaptures() {
+        assertThat(regex().capt().digit().oneOrMore().endCapt().tab().capt("x").range("0", "1").count(1).endCapt().build().toString(),
+                equalTo("((?:\\d)+)(?:\\t)(?<x>[0-1]{1})"));
+    }
+
+    @Test
+    public void shouldRenderUnclosed() {
+        assertThat(regex().find("a").capture().find("b").group().word().build().toString(),
+                equalTo("(?:a)((?:b)(?:(?:\\w+)))"));
+    }
+
+    @Test
+    public void shouldRenderLineBreak() {
+        assertThat(regex().lineBreak().br().tab().word().wordChar().nonWordChar().digit().nonDigit().space().nonSpace().wordBoundary().build().toString(),
+                equalTo("(?:\\n|(?:\\r\\n)|(?:\\r\\r))(?:\\n|(?:\\r\\n)|(?:\\r\\r))(?:\\t)(?:\\w+)(?:\\w)(?:\\W)(?:\\d)(?:\\D)(?:\\s)(?:\\S)(?:\\b)"));
+    }
+
+    @Test
+    public void shouldRenderSomething() {
+        assertThat(regex().something().somethingButNot("a-b").anything().anyOf("x]y").any("-").build().toString(),
+                equalTo("(?:.+)(?:[^a\\-b]+)(?:.*)[x\\]y][\\-]"));
+    }
+
+    @Test
+    public void shouldRenderQuantifiers() {
+        assertThat(regex().find("a").zeroOrMore().find("b").atLeast(2).find("c").count(1, 3).multiple("d").multiple("e", 2).multiple("f", 1, 2).multiple("g", null).build().toString(),
+                equalTo("(?:a)*(?:b){2,}(?:c){1,3}(?:d)+(?:e){2}(?:f){1,2}(?:g)+"));
+    }
+
+    @Test
+    public void shouldRenderPossessive() {
+        assertThat(regex().find("a").oneOrMore().oneOrMore().maybe("b").oneOrMore().build().toString(),
+                equalTo("(?:a)++(?:b)?+"));
+    }
+
+    @Test
+    public void shouldRenderOneOf() {
+        assertThat(regex().oneOf("Mr.", "Ms.", "abc").build().toString(),
+                equalTo("(?:(?:Mr.)|(?:Ms.)|(?:abc))"));
+    }
+
+    @Test
+    public void shouldRenderMaybeBuilder() {
+        assertThat(regex().maybe(regex().oneOf("Mr.", "Ms.")).space().zeroOrMore().word().oneOrMore().build().toString(),
+                equalTo("(?:(?:(?:(?:Mr.)|(?:Ms.))))?(?:\\s)*(?:\\w+)+"));
+    }
+
+    @Test
+    public void shouldRenderAddBuilder() {
+        assertThat(regex().add(regex().capt().find("string").count(2).endCapt().count(1).digit()).count(2).build().toString(),
+                equalTo("(?:((?:string){2}){1}(?:\\d)){2}"));
+    }
+
+    @Test
+    public void shouldRenderAddBuilderFlags() {
+        assertThat(regex().then("a").add(regex().startOfLine().then("b").withAnyCase().searchOneLine(true)).then("c").build().toString(),
+                equalTo("(?:a)(?:(?i-m:^(?:b)))(?:c)"));
+    }
+
+    @Test
+    public void shouldRenderRaw() {
+        assertThat(regex().add("[A-Z0-1!-|]").add("x+").oneOrMore().build().toString(),
+                equalTo("[A-Z0-1!-|]x++"));
+    }
+
+    @Test
+    public void shouldRenderStartFalse() {
+        assertThat(regex().startOfLine().startOfLine(false).then("a").endOfLine().endOfLine(false).build().toString(),
+                equalTo("(?:a)"));
+    }
+
+    @Test
+    public void shouldRenderRangeOdd() {
+        assertThat(regex().startOfLine().range("a", "z", "A").build().toString(),
+                equalTo("^[a-z]"));
+    }
+
+    @Test
+    public void shouldRenderUnicode() {
+        assertThat(regex().then("😀 é").anythingBut("\t\n").build().toString(),
+                equalTo("(?:\\😀\\ \\é)(?:[^\\\t\\\n]*)"));
+    }
+
+    @Test
+    public void shouldRenderGroupCount() {
+        assertThat(regex().group().capt().range("0", "1").endCapt().tab().capt().digit().count(5).endCapt().endGr().count(2).build().toString(),
+                equalTo("(?:([0-1])(?:\\t)((?:\\d){5})){2}"));
+    }
+
+    @Test
+    public void shouldRenderModifiers() {
+        assertThat(regex().find("a").withAnyCase().addModifier('s').removeModifier('m').build().toString(),
+                equalTo("(?:a)"));
+    }
+
+    @Test
+    public void toNodeShouldNotChangeBuilder() {
+        VerbalExpression.Builder builder = regex().capture().find("a").or("b").capture().find("c");
+
+        String first = builder.toNode().render();
+        String second = builder.toNode().render();
+
+        assertThat(second, equalTo(first));
+        assertThat(builder.find("d").toNode().render(), not(equalTo(first)));
+    }
+
+    @Test
+    public void clonedBuilderShouldShareNodes() {
+        VerbalExpression.Builder builder = regex().find("a").capture().find("b");
+        VerbalExpression.Builder cloned = regex(builder);
+
+        Node.Sequence original = (Node.Sequence) builder.toNode();
+        Node.Sequence copy = (Node.Sequence) cloned.toNode();
+
+        assertThat(copy.items[0], sameInstance(original.items[0]));
+    }
+
+    @Test
+    public void endCaptureAfterOrContinuesAlternative() {
+        VerbalExpression regex = regex().then("a").or("b").endCapture().then("c").build();
+
+        assertThat(regex.testExact("a"), equalTo(true));
+        assertThat(regex.testExact("bc"), equalTo(true));
+        assertThat(regex.testExact("b"), equalTo(false));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void endCaptureAfterOrOnlyOnce() {
+        regex().then("a").or("b").endCapture().endCapture();
+    }
+
+    @Test
+    public void shouldRepeatGroupEndedAfterOr() {
+        assertThat(regex().then("X").or(null).endCapture().zeroOrMore().build().toString(),
+                equalTo("(?:(?:X))|(?:)*"));
+    }
+
+    @Test
+    public void shouldRenderEndCaptureAfterOrBeforeNextItems() {
+        assertThat(regex().digit().or(null).endCapture().oneOf("a", "b").build().toString(),
+                equalTo("(?:(?:\\d))|(?:)(?:(?:a)|(?:b))"));
+    }
+
+    @Test
+    public void shouldRenderAnchorsAddedAfterOr() {
+        assertThat(regex().or(null).startOfLine().digit().build().toString(),
+                equalTo("(?:^)|(?:(?:\\d))"));
+        assertThat(regex().then("a").or("b").endOfLine().or("c").build().toString(),
+                equalTo("(?:(?:(?:a))|(?:(?:b))|(?:(?:c)))$"));
+        assertThat(regex().capture().then("a").or("b").startOfLine().endCapture().then("c").build().toString(),
+                equalTo("(?:^((?:a))|(?:(?:b))(?:c))"));
+    }
+
+    @Test
+    public void shouldRenderRepeatedAnchors() {
+        assertThat(regex().startOfLine().startOfLine().endOfLine().endOfLine().build().toString(),
+                equalTo("^^$$"));
+        assertThat(regex().endOfLine().capture().build().toString(), equalTo("($)"));
+    }
+}
@@ -0,0 +1,134 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.MatchResult;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class FileScannerTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldFindMatchesWithOffsets() throws IOException {
+        Path file = write("ok\nerror 1\nok\nerror 22\n", UTF_8);
+        Collector found = new Collector();
+
+        long count = regex().find("error ").digit().oneOrMore().build().fileScanner().scan(file, found);
+
+        assertThat(count, equalTo(2L));
+        assertThat(found.values, equalTo(Arrays.asList("3/3:error 1", "14/14:error 22")));
+    }
+
+    @Test
+    public void shouldCountBytesOfMultibyteChars() throws IOException {
+        Path file = write("привет error 1\n😀 error 2\n", UTF_8);
+        Collector found = new Collector();
+
+        regex().find("error ").digit().build().fileScanner().chunkSize(4).scan(file, found);
+
+        assertThat(found.values, equalTo(Arrays.asList("7/13:error 1", "18/26:error 2")));
+    }
+
+    @Test
+    public void shouldScanLinesLongerThanChunk() throws IOException {
+        Path file = write("aaaaaaaaaaaaaaaaaaaa key=1 aaaaaaaaaaaaa\nkey=2", UTF_8);
+        Collector found = new Collector();
+
+        regex().then("key=").digit().build().fileScanner().chunkSize(3).scan(file, found);
+
+        assertThat(found.values, equalTo(Arrays.asList("21/21:key=1", "41/41:key=2")));
+    }
+
+    @Test
+    public void shouldScanSingleByteCharset() throws IOException {
+        Charset latin = Charset.forName("ISO-8859-1");
+        Path file = write("café error 1\n", latin);
+        Collector found = new Collector();
+
+        regex().find("error ").digit().build().fileScanner().charset(latin).scan(file, found);
+
+        assertThat(found.values, equalTo(Arrays.asList("5/5:error 1")));
+    }
+
+    @Test
+    public void shouldScanEmptyFile() throws IOException {
+        assertThat(regex().then("a").build().fileScanner().scan(write("", UTF_8), new Collector()), equalTo(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAcceptUtf16() {
+        regex().then("a").build().fileScanner().charset(Charset.forName("UTF-16"));
+    }
+
+    @Test
+    public void shouldFindSameAsWholeText() throws IOException {
+        Random random = new Random(13);
+        VerbalExpression[] expressions = {
+                regex().startOfLine().capture().word().endCapture().then("=").digit().oneOrMore().build(),
+                regex().word().then("=").digit().endOfLine().build(),
+                regex().digit().oneOrMore().build(),
+        };
+        for (int round = 0; round < 150; round++) {
+            VerbalExpression expression = expressions[round % expressions.length];
+            StringBuilder text = new StringBuilder();
+            for (int line = random.nextInt(40); line > 0; line--) {
+                text.append(random.nextBoolean() ? "kéy" : "a b").append('=').append(random.nextInt(1000))
+                        .append(random.nextBoolean() ? "\n" : "\r\n");
+            }
+            Path file = write(text.toString(), UTF_8);
+
+            Collector found = new Collector();
+            expression.fileScanner().chunkSize(1 + random.nextInt(64)).scan(file, found);
+
+            List<String> expected = new ArrayList<>();
+            for (MatchResult match : expression.matches(text)) {
+                expected.add(match.start() + "/" + text.substring(0, match.start()).getBytes(UTF_8).length
+                        + ":" + match.group());
+            }
+            assertThat(text.toString(), found.values, equalTo(expected));
+        }
+    }
+
+    @Test
+    public void shouldSkipLinesOnlyIfMatchesAreInsideOfLines() {
+        assertThat(regex().word().then(" error ").digit().build().matcher().skipsLines(), equalTo(true));
+        assertThat(regex().startOfLine().then("a").endOfLine().build().matcher().skipsLines(), equalTo(true));
+        assertThat(regex().then("a").lineBreak().build().matcher().skipsLines(), equalTo(false));
+        assertThat(regex().anythingBut("#").then("a").build().matcher().skipsLines(), equalTo(false));
+        assertThat(regex().then("a").anything().withAnyCase().build().matcher().skipsLines(), equalTo(false));
+        assertThat(regex().startOfLine().then("a").searchOneLine(true).build().matcher().skipsLines(),
+                equalTo(false));
+    }
+
+    private Path write(String text, Charset charset) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, text.getBytes(charset));
+        return file;
+    }
+
+    private static final class Collector implements FileScanner.Handler {
+        private final List<String> values = new ArrayList<>();
+
+        @Override
+        public void onMatch(MatchResult match, long charOffset, long byteOffset) {
+            values.add(charOffset + "/" + byteOffset + ":" + match.group());
+        }
+    }
+}
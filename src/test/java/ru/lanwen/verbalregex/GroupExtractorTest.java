@@ -0,0 +1,113 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class GroupExtractorTest {
+
+    private static final VerbalExpression LOG = regex().startOfLine()
+            .capture("level").word().endCapture().then(" ")
+            .capture().digit().oneOrMore().endCapture().then(" ")
+            .capture("user").word().endCapture().then(": ")
+            .capture("message").anythingBut("\n").endCapture()
+            .build();
+
+    @Test
+    public void shouldExtractAllGroupsInOnePass() {
+        final List<String> values = new ArrayList<>();
+        int count = LOG.extractor("message", "level").extract("INFO 1 bob: started\nWARN 2 alice: slow\n",
+                new GroupExtractor.Handler() {
+                    @Override
+                    public void onMatch(GroupExtractor.Groups groups) {
+                        values.add(groups.get(0) + "/" + groups.get(1));
+                    }
+                });
+
+        assertThat(count, equalTo(2));
+        assertThat(values, equalTo(Arrays.asList("started/INFO", "slow/WARN")));
+    }
+
+    @Test
+    public void shouldGiveOffsetsAndNames() {
+        final List<String> values = new ArrayList<>();
+        LOG.extractor("user").extract("INFO 1 bob: started", new GroupExtractor.Handler() {
+            @Override
+            public void onMatch(GroupExtractor.Groups groups) {
+                values.add(groups.name(0) + "[" + groups.start(0) + ", " + groups.end(0) + ")=" + groups);
+            }
+        });
+
+        assertThat(values, equalTo(Arrays.asList("user[7, 10)=Groups{user=bob}")));
+    }
+
+    @Test
+    public void shouldExtractSameAsGetText() {
+        String text = "INFO 1 bob: started\nbad line\nWARN 22 alice: slow";
+        final StringBuilder users = new StringBuilder();
+        final StringBuilder messages = new StringBuilder();
+        LOG.extractor("user", "message").extract(text, new GroupExtractor.Handler() {
+            @Override
+            public void onMatch(GroupExtractor.Groups groups) {
+                users.append(groups.get(0));
+                messages.append(groups.get(1));
+            }
+        });
+
+        assertThat(users.toString(), equalTo(LOG.getText(text, "user")));
+        assertThat(messages.toString(), equalTo(LOG.getText(text, "message")));
+    }
+
+    @Test
+    public void shouldAllowSameExpressionInHandler() {
+        final VerbalExpression pair = regex().capture("key").word().endCapture().then("=").reuseMatchers().build();
+        final List<String> values = new ArrayList<>();
+        pair.extractor("key").extract("a= b=", new GroupExtractor.Handler() {
+            @Override
+            public void onMatch(GroupExtractor.Groups groups) {
+                values.add(groups.get(0) + pair.test("x="));
+            }
+        });
+
+        assertThat(values, equalTo(Arrays.asList("atrue", "btrue")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAcceptUnknownName() {
+        LOG.extractor("level", "date");
+    }
+
+    @Test
+    public void shouldNumberGroupsAsPattern() {
+        String source = "(a)(?:b)(?<first>c)[(](?<second>\\(d)\\Q(\\E(?=a)(?<third>[a[(]]f)(g(?<fourth>h))";
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("first", 2);
+        expected.put("second", 3);
+        expected.put("third", 4);
+        expected.put("fourth", 6);
+
+        assertThat(GroupExtractor.namedGroups(source, 0), equalTo(expected));
+        Matcher matcher = Pattern.compile(source).matcher("abc((d(afgh");
+        assertThat(matcher.matches(), equalTo(true));
+        for (Map.Entry<String, Integer> group : expected.entrySet()) {
+            assertThat(matcher.group(group.getValue()), equalTo(matcher.group(group.getKey())));
+        }
+    }
+
+    @Test
+    public void shouldSkipCommentsInCommentsMode() {
+        Map<String, Integer> named = GroupExtractor.namedGroups("(a) # (b)\n(?<name>c)", Pattern.COMMENTS);
+
+        assertThat(named.get("name"), equalTo(2));
+    }
+}
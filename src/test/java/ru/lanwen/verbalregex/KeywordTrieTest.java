@@ -0,0 +1,125 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class KeywordTrieTest {
+
+    @Test
+    public void shouldFactorCommonPrefixes() {
+        assertThat(regex().oneOf("foo", "foobar", "fob").simplify().build().toString(),
+                equalTo("fo(?:o(?:|bar)|b)"));
+    }
+
+    @Test
+    public void shouldTryLongerFirstIfItIsFirst() {
+        assertThat(regex().oneOf("foobar", "foo", "fob").simplify().build().toString(),
+                equalTo("fo(?:o(?:bar)?|b)"));
+    }
+
+    @Test
+    public void shouldRemoveDuplicates() {
+        assertThat(regex().oneOf("ab", "ac", "ab").simplify().build().toString(),
+                equalTo("a(?:b|c)"));
+    }
+
+    @Test
+    public void shouldNotFactorFewValuesByDefault() {
+        assertThat(regex().oneOf("foo", "foobar", "fob").build().toString(),
+                equalTo("(?:(?:foo)|(?:foobar)|(?:fob))"));
+    }
+
+    @Test
+    public void shouldFactorManyValuesByDefault() {
+        String[] values = new String[KeywordTrie.MIN_VALUES];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = "sku-" + (100 + i);
+        }
+
+        assertThat(regex().oneOf(values).build().toString(),
+                equalTo("(?:sku\\-1(?:0(?:0|1|2|3|4|5|6|7|8|9)|1(?:0|1|2|3|4|5)))"));
+    }
+
+    @Test
+    public void shouldNotFactorRegexValues() {
+        assertThat(regex().oneOf("Mr.", "Mrs").simplify().build().toString(),
+                equalTo("(?:(?:Mr.)|(?:Mrs))"));
+    }
+
+    @Test
+    public void shouldNotFactorWithAnyCase() {
+        assertThat(regex().oneOf("ab", "ac").simplify().withAnyCase().build().toString(),
+                equalTo("(?:(?:ab)|(?:ac))"));
+    }
+
+    @Test
+    public void shouldNotFactorInsideAddedBuilderWithAnyCase() {
+        assertThat(regex().add(regex().oneOf("ab", "ac").withAnyCase()).simplify().build().toString(),
+                equalTo("(?i:(?:(?:ab)|(?:ac)))"));
+    }
+
+    @Test
+    public void shouldNotFactorAfterRawInlineFlags() {
+        assertThat(regex().add("(?i)").oneOf("ab", "ac").simplify().build().toString(),
+                equalTo("(?i)(?:(?:ab)|(?:ac))"));
+    }
+
+    @Test
+    public void shouldKeepQuantifierOnWholeSet() {
+        assertThat(regex().oneOf("a", "ab").oneOrMore().simplify().build().toString(),
+                equalTo("(?:a(?:|b))+"));
+    }
+
+    @Test
+    public void shouldFactorSupplementaryChars() {
+        assertThat(regex().oneOf("😀a", "😀b", "😁").simplify().build().toString(),
+                equalTo("\\😀(?:a|b)|\\😁"));
+    }
+
+    @Test
+    public void factoredShouldMatchSameAsFlat() {
+        Random random = new Random(7);
+        for (int round = 0; round < 2000; round++) {
+            String[] values = new String[1 + random.nextInt(8)];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = randomString(random, 4);
+            }
+            String text = randomString(random, 24);
+
+            VerbalExpression factored = regex().oneOf(values).then("b").simplify().build();
+            VerbalExpression flat = regex().oneOf(values).then("b").build();
+            VerbalExpression factoredCapture = regex().capture().oneOf(values).endCapture().simplify().build();
+            VerbalExpression flatCapture = regex().capture().oneOf(values).endCapture().build();
+
+            assertThat(factored + " vs " + flat + " on " + text, matches(factored, text), equalTo(matches(flat, text)));
+            assertThat(factoredCapture + " vs " + flatCapture + " on " + text,
+                    matches(factoredCapture, text), equalTo(matches(flatCapture, text)));
+        }
+    }
+
+    private static String randomString(Random random, int maxLength) {
+        char[] chars = new char[random.nextInt(maxLength + 1)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "abc".charAt(random.nextInt(3));
+        }
+        return new String(chars);
+    }
+
+    private static List<String> matches(VerbalExpression expression, String input) {
+        List<String> found = new ArrayList<>();
+        Matcher matcher = Pattern.compile(expression.toString()).matcher(input);
+        while (matcher.find()) {
+            found.add(matcher.start() + ":" + matcher.group());
+        }
+        return found;
+    }
+}
@@ -0,0 +1,112 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.PatternSyntaxException;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class LazyCompilationTest {
+
+    @Test
+    public void shouldCompileOnBuildByDefault() {
+        assertThat(regex().then("a").build().isCompiled(), equalTo(true));
+    }
+
+    @Test
+    public void shouldNotCompileOnToString() {
+        VerbalExpression expression = regex().startOfLine().then("http").maybe("s").lazy().build();
+
+        assertThat(expression.toString(), equalTo("^(?:http)(?:s)?"));
+        assertThat(expression.isCompiled(), equalTo(false));
+    }
+
+    @Test
+    public void shouldCompileOnFirstMatch() {
+        VerbalExpression expression = regex().startOfLine().then("http").maybe("s").lazy().build();
+
+        assertThat(expression.test("https://"), equalTo(true));
+        assertThat(expression.isCompiled(), equalTo(true));
+        assertThat(expression.getText("http://"), equalTo("http"));
+    }
+
+    @Test
+    public void shouldCompileOnPrecompile() {
+        VerbalExpression expression = regex().then("a").lazy().build();
+
+        assertThat(expression.precompile(), sameInstance(expression));
+        assertThat(expression.isCompiled(), equalTo(true));
+    }
+
+    @Test
+    public void shouldCopyLazyMode() {
+        assertThat(regex(regex().then("a").lazy()).build().isCompiled(), equalTo(false));
+    }
+
+    @Test
+    public void shouldBuildInvalidExpression() {
+        VerbalExpression expression = regex().add("(a").lazy().build();
+
+        assertThat(expression.toString(), equalTo("(a"));
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void shouldThrowOnFirstMatchOfInvalidExpression() {
+        regex().add("(a").lazy().build().test("a");
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void shouldThrowOnBuildOfInvalidExpression() {
+        regex().add("(a").build();
+    }
+
+    @Test
+    public void shouldCompileCachedLazyExpressionOnEagerBuild() {
+        ExpressionCache.setShared(new ExpressionCache(10));
+        try {
+            VerbalExpression lazy = regex().then("a").lazy().build();
+            VerbalExpression eager = regex().then("a").build();
+
+            assertThat(eager, sameInstance(lazy));
+            assertThat(lazy.isCompiled(), equalTo(true));
+        } finally {
+            ExpressionCache.setShared(null);
+        }
+    }
+
+    @Test
+    public void shouldMatchSameFromManyThreadsOnFirstUse() throws Exception {
+        final VerbalExpression expression = regex().find("error ").digit().oneOrMore().lazy().build();
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> found = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                found.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        start.await();
+                        return expression.getText("job failed with error 42");
+                    }
+                }));
+            }
+            start.countDown();
+
+            for (Future<String> text : found) {
+                assertThat(text.get(), equalTo("error 42"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class LiteralEscaperTest {
+
+    private static final String[] SAMPLES = {
+            "",
+            "abc_XYZ_019",
+            "http://www.google.com/?q=a+b&c=[d]",
+            "\\Q not a quote \\E",
+            "$^.|?*+()[]{}-#",
+            " \t\r\n\u000B\f",
+            "привет, мир",
+            "café",
+            "😀 smile 😀",
+            "lone \uD83D high",
+            "lone \uDE00 low",
+            "reversed \uDE00\uD83D pair",
+            "\uD83D",
+    };
+
+    @Test
+    public void shouldEscapeSameAsReplaceAll() {
+        for (String sample : SAMPLES) {
+            assertThat(sample, escape(sample), equalTo(replaceAll(sample)));
+        }
+    }
+
+    @Test
+    public void shouldEscapeRandomStringsSameAsReplaceAll() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            char[] chars = new char[random.nextInt(16)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = random.nextBoolean()
+                        ? (char) random.nextInt(128)
+                        : (char) (0xD7F0 + random.nextInt(0x0820));
+            }
+            String sample = new String(chars);
+            assertThat(sample, escape(sample), equalTo(replaceAll(sample)));
+        }
+    }
+
+    @Test
+    public void shouldAppendToExistingBuffer() {
+        StringBuilder out = new StringBuilder("(?:");
+        LiteralEscaper.escape("a.b", out).append(")");
+
+        assertThat(out.toString(), equalTo("(?:a\\.b)"));
+    }
+
+    @Test
+    public void escapedValueShouldMatchItselfLiterally() {
+        for (String sample : SAMPLES) {
+            assertThat(sample, Pattern.compile(escape(sample)).matcher(sample).matches(), equalTo(true));
+        }
+    }
+
+    private static String escape(String value) {
+        return LiteralEscaper.escape(value, new StringBuilder()).toString();
+    }
+
+    private static String replaceAll(String value) {
+        return value.replaceAll("[\\W]", "\\\\$0");
+    }
+}
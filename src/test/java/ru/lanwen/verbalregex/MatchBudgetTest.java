@@ -0,0 +1,127 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class MatchBudgetTest {
+
+    private static final VerbalExpression TOKEN = regex().anythingBut(" ").then(" took ").digit().oneOrMore()
+            .then("ms").build();
+
+    @Test
+    public void shouldStopAfterSteps() {
+        try {
+            TOKEN.test(token(), MatchBudget.steps(1000000));
+            fail("Quadratic search should exceed the budget");
+        } catch (MatchTimeoutException e) {
+            assertThat(e.getSteps(), equalTo(1000000L));
+        }
+    }
+
+    @Test
+    public void shouldStopAfterTimeout() {
+        long start = System.nanoTime();
+        try {
+            TOKEN.test(token(), MatchBudget.timeout(10, TimeUnit.MILLISECONDS));
+            fail("Quadratic search should pass the deadline");
+        } catch (MatchTimeoutException e) {
+            assertThat(e.getSteps() > 0, equalTo(true));
+        }
+        assertThat(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), equalTo(true));
+    }
+
+    @Test
+    public void shouldMatchWithinBudget() {
+        MatchBudget budget = MatchBudget.steps(1000).withTimeout(1, TimeUnit.SECONDS);
+
+        assertThat(TOKEN.test("request took 15ms", budget), equalTo(true));
+        assertThat(TOKEN.test("request took ms", budget), equalTo(false));
+        assertThat(TOKEN.test(null, budget), equalTo(false));
+        assertThat(TOKEN.getText("a took 1ms, b took 22ms", 0, budget), equalTo("a took 1msb took 22ms"));
+        assertThat(TOKEN.getTextGroups("a took 1ms, b took 22ms", 0, budget),
+                equalTo(Arrays.asList("a took 1ms", "b took 22ms")));
+    }
+
+    @Test
+    public void shouldCountAllMatchesTogether() {
+        VerbalExpression expression = regex().digit().build();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append(i % 10);
+        }
+
+        assertThat(expression.getTextGroups(text, 0, MatchBudget.steps(100)).size(), equalTo(100));
+        try {
+            expression.getTextGroups(text, 0, MatchBudget.steps(99));
+            fail("Reading of 100 chars should exceed 99 steps");
+        } catch (MatchTimeoutException e) {
+            assertThat(e.getSteps(), equalTo(99L));
+        }
+    }
+
+    @Test
+    public void shouldReuseMatcherAfterTimeout() {
+        VerbalExpression expression = regex().anythingBut(" ").then(" took ").digit().oneOrMore().then("ms")
+                .reuseMatchers().build();
+        try {
+            expression.test(token(), MatchBudget.steps(1000));
+            fail("Quadratic search should exceed the budget");
+        } catch (MatchTimeoutException e) {
+            assertThat(expression.test("request took 15ms"), equalTo(true));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNonPositiveSteps() {
+        MatchBudget.steps(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNonPositiveTimeout() {
+        MatchBudget.steps(10).withTimeout(-1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void shouldMatchSameWithinBudget() {
+        Random random = new Random(45);
+        MatchBudget budget = MatchBudget.steps(Long.MAX_VALUE - 1).withTimeout(1, TimeUnit.MINUTES);
+        VerbalExpression[] expressions = {
+                TOKEN,
+                regex().startOfLine().word().then("@").build(),
+                regex().capture().digit().oneOrMore().endCapture().then(".").build(),
+                regex().then("ab").or("ba").build()
+        };
+        for (int round = 0; round < 1000; round++) {
+            VerbalExpression expression = expressions[random.nextInt(expressions.length)];
+            String text = text(random);
+
+            assertThat(expression + " in " + text, expression.test(text, budget), equalTo(expression.test(text)));
+            assertThat(expression + " groups in " + text,
+                    expression.getTextGroups(text, 0, budget), equalTo(expression.getTextGroups(text, 0)));
+        }
+    }
+
+    private static String token() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            text.append('a');
+        }
+        return text.append(" took ?ms").toString();
+    }
+
+    private static String text(Random random) {
+        char[] chars = new char[random.nextInt(20)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "ab1.@ ms".charAt(random.nextInt(8));
+        }
+        return new String(chars);
+    }
+}
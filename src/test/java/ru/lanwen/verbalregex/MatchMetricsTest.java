@@ -0,0 +1,161 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class MatchMetricsTest {
+
+    @After
+    public void removeListener() {
+        VerbalExpression.setListener(null);
+    }
+
+    @Test
+    public void shouldReportEachOperation() {
+        final List<String> calls = new ArrayList<>();
+        VerbalExpression.setListener(new MatchListener() {
+            @Override
+            public void onMatch(VerbalExpression expression, Operation operation, int length, boolean matched,
+                                long nanos) {
+                calls.add(expression + " " + operation + " " + length + " " + matched);
+            }
+        });
+        VerbalExpression expression = regex().capture("id").digit().oneOrMore().endCapture().build();
+
+        expression.test("id=42");
+        expression.testExact("id=42");
+        expression.getText("id=42", 0);
+        expression.getText("id=42", "id");
+        expression.getTextGroups("id=42,7", 1);
+        expression.test("id=42", 0, 3);
+
+        assertThat(calls, equalTo(Arrays.asList(
+                "(?<id>(?:\\d)+) TEST 5 true",
+                "(?<id>(?:\\d)+) TEST_EXACT 5 false",
+                "(?<id>(?:\\d)+) GET_TEXT 5 true",
+                "(?<id>(?:\\d)+) GET_TEXT 5 true",
+                "(?<id>(?:\\d)+) GET_TEXT_GROUPS 7 true",
+                "(?<id>(?:\\d)+) TEST 3 false")));
+    }
+
+    @Test
+    public void shouldNotReportWithoutListener() {
+        MatchMetrics metrics = new MatchMetrics();
+        VerbalExpression expression = regex().then("a").build();
+        VerbalExpression.setListener(metrics);
+        VerbalExpression.setListener(null);
+
+        expression.test("a");
+
+        assertThat(VerbalExpression.getListener(), nullValue());
+        assertThat(metrics.getStats(expression), nullValue());
+    }
+
+    @Test
+    public void shouldCountCallsAndMatches() {
+        MatchMetrics metrics = new MatchMetrics();
+        VerbalExpression.setListener(metrics);
+        VerbalExpression first = regex().then("a").build();
+        VerbalExpression second = regex().then("b").build();
+
+        first.test("a");
+        first.test("b");
+        first.test("ba");
+        first.getTextGroups("c", 0);
+        second.test("b");
+
+        MatchMetrics.Stats stats = metrics.getStats(first);
+        assertThat(stats.getSource(), equalTo("(?:a)"));
+        assertThat(stats.getCalls(), equalTo(4L));
+        assertThat(stats.getMatches(), equalTo(2L));
+        assertThat(stats.getMatchRate(), equalTo(0.5));
+        assertThat(stats.percentile(1) <= stats.getMaxNanos(), equalTo(true));
+        assertThat(metrics.getAll().size(), equalTo(2));
+        assertThat(metrics.top(1).size(), equalTo(1));
+
+        metrics.clear();
+        assertThat(metrics.getAll().isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void shouldKeepPercentilesWithinBucket() {
+        MatchMetrics.Stats stats = new MatchMetrics.Stats("");
+        for (long nanos = 1; nanos <= 100000; nanos++) {
+            stats.record(true, nanos);
+        }
+
+        assertThat(stats.percentile(0), equalTo(1L));
+        assertThat(stats.percentile(0.5) >= 50000 && stats.percentile(0.5) <= 50000 * 17 / 16, equalTo(true));
+        assertThat(stats.percentile(0.99) >= 99000 && stats.percentile(0.99) <= 100000, equalTo(true));
+        assertThat(stats.percentile(1), equalTo(100000L));
+        assertThat(new MatchMetrics.Stats("").percentile(0.5), equalTo(0L));
+    }
+
+    @Test
+    public void shouldPutEachValueToItsBucket() {
+        Random random = new Random(46);
+        for (int i = 0; i < 100000; i++) {
+            long value = random.nextInt(5) == 0
+                    ? random.nextInt(100)
+                    : random.nextLong() >>> 1 + random.nextInt(63);
+            int bucket = MatchMetrics.Stats.bucket(value);
+            long highest = MatchMetrics.Stats.highest(bucket);
+
+            if (value < 1L << 40) {
+                assertThat(value + " in " + bucket, value <= highest, equalTo(true));
+                assertThat(value + " in " + bucket, bucket == 0 || MatchMetrics.Stats.highest(bucket - 1) < value,
+                        equalTo(true));
+                assertThat(value + " in " + bucket, highest - value <= value / 16, equalTo(true));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectWrongQuantile() {
+        new MatchMetrics.Stats("").percentile(1.5);
+    }
+
+    @Test
+    public void shouldCountConcurrentCalls() throws InterruptedException {
+        final MatchMetrics metrics = new MatchMetrics();
+        VerbalExpression.setListener(metrics);
+        final VerbalExpression expression = regex().digit().oneOrMore().build();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < 10000; j++) {
+                        expression.test(j % 2 == 0 ? "id" : "42");
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        MatchMetrics.Stats stats = metrics.getStats(expression);
+        assertThat(stats.getCalls(), equalTo(40000L));
+        assertThat(stats.getMatches(), equalTo(20000L));
+    }
+}
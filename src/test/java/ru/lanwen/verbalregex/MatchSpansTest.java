@@ -0,0 +1,114 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class MatchSpansTest {
+
+    @Test
+    public void shouldWriteOffsetsOfGroups() {
+        MatchSpans spans = new MatchSpans();
+        int count = regex().capture().word().endCapture().then("=").digit().oneOrMore().build()
+                .spans("a=1 bb=22", spans, 0, 1);
+
+        assertThat(count, equalTo(2));
+        assertThat(spans.groups(), equalTo(2));
+        assertThat(spans.toString(), equalTo("MatchSpans{[0, 3), [0, 1); [4, 9), [4, 6)}"));
+        assertThat(spans.start(1, 0), equalTo(4));
+        assertThat(spans.end(1, 1), equalTo(6));
+    }
+
+    @Test
+    public void shouldKeepGroupZeroByDefault() {
+        MatchSpans spans = new MatchSpans();
+        regex().then("ab").build().spans("xabab", spans);
+
+        assertThat(spans.toString(), equalTo("MatchSpans{[1, 3); [3, 5)}"));
+    }
+
+    @Test
+    public void shouldMarkGroupNotInMatch() {
+        MatchSpans spans = new MatchSpans();
+        regex().then("a").capture().then("b").endCapture().or("c").build().spans("c", spans, 1);
+
+        assertThat(spans.start(0, 0), equalTo(-1));
+        assertThat(spans.end(0, 0), equalTo(-1));
+    }
+
+    @Test
+    public void shouldWriteOffsetsOfLiteralSet() {
+        MatchSpans spans = new MatchSpans(0);
+        int count = regex().oneOf("cat", "dog").build().spans("hotdog cats", spans);
+
+        assertThat(count, equalTo(2));
+        assertThat(spans.toString(), equalTo("MatchSpans{[3, 6); [7, 10)}"));
+    }
+
+    @Test
+    public void shouldWriteOffsetsOfWholeTextForRegion() {
+        MatchSpans spans = new MatchSpans();
+        regex().then("ab").build().spans("abxab", 1, 5, spans);
+
+        assertThat(spans.toString(), equalTo("MatchSpans{[3, 5)}"));
+    }
+
+    @Test
+    public void shouldOverwritePreviousSpans() {
+        MatchSpans spans = new MatchSpans(2);
+        VerbalExpression expression = regex().digit().build();
+
+        assertThat(expression.spans("1 2 3 4 5", spans), equalTo(5));
+        assertThat(expression.spans("6", spans), equalTo(1));
+        assertThat(spans.start(0, 0), equalTo(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shouldNotAcceptUnknownGroup() {
+        regex().then("a").build().spans("a", new MatchSpans(), 1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shouldNotReadAfterLastMatch() {
+        MatchSpans spans = new MatchSpans();
+        regex().then("a").build().spans("a", spans);
+
+        spans.start(1, 0);
+    }
+
+    @Test
+    public void shouldFindSameAsTextGroups() {
+        Random random = new Random(3);
+        MatchSpans spans = new MatchSpans(0);
+        for (int round = 0; round < 2000; round++) {
+            VerbalExpression expression = regex().capture().oneOf(word(random), word(random)).endCapture()
+                    .maybe(word(random)).then(word(random)).build();
+
+            for (int i = 0; i < 5; i++) {
+                String text = word(random) + word(random) + " " + word(random) + word(random) + word(random);
+                for (int group = 0; group < 2; group++) {
+                    expression.spans(text, spans, group);
+                    List<String> found = new ArrayList<>();
+                    for (int match = 0; match < spans.count(); match++) {
+                        found.add(text.substring(spans.start(match, 0), spans.end(match, 0)));
+                    }
+                    assertThat(expression + " on " + text, found, equalTo(expression.getTextGroups(text, group)));
+                }
+            }
+        }
+    }
+
+    private static String word(Random random) {
+        char[] chars = new char[1 + random.nextInt(2)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "abc".charAt(random.nextInt(3));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,193 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.regex.MatchResult;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class MatchesTest {
+
+    @Test
+    public void shouldIterateOverMatchesWithGroups() {
+        Iterator<MatchResult> matches = regex().capture().word().endCapture().then("=").digit().oneOrMore().build()
+                .matches("a=1 bb=22").iterator();
+
+        MatchResult first = matches.next();
+        assertThat(first.group(), equalTo("a=1"));
+        assertThat(first.group(1), equalTo("a"));
+        assertThat(first.groupCount(), equalTo(1));
+        MatchResult second = matches.next();
+        assertThat(second.start(), equalTo(4));
+        assertThat(second.end(1), equalTo(6));
+        assertThat(matches.hasNext(), equalTo(false));
+    }
+
+    @Test
+    public void shouldReturnNullForGroupNotInMatch() {
+        MatchResult match = regex().then("a").capture().then("b").endCapture().or("c").build()
+                .matches("c").iterator().next();
+
+        assertThat(match.group(1), nullValue());
+        assertThat(match.start(1), equalTo(-1));
+    }
+
+    @Test
+    public void shouldIterateOverLiteralSet() {
+        assertThat(groups(regex().oneOf("cat", "dog").build().matches("hotdog cats")),
+                equalTo(Arrays.asList("dog", "cat")));
+    }
+
+    @Test
+    public void shouldIterateOverRegion() {
+        Matches matches = regex().digit().build().matches("1 2 3 4", 2, 5);
+
+        assertThat(groups(matches), equalTo(Arrays.asList("2", "3")));
+        assertThat(matches.iterator().next().start(), equalTo(2));
+    }
+
+    @Test
+    public void shouldIterateAgainFromStart() {
+        Matches matches = regex().digit().build().matches("1 2");
+
+        assertThat(groups(matches), equalTo(Arrays.asList("1", "2")));
+        assertThat(groups(matches), equalTo(Arrays.asList("1", "2")));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void shouldThrowAfterLastMatch() {
+        Iterator<MatchResult> matches = regex().digit().build().matches("1").iterator();
+        matches.next();
+        matches.next();
+    }
+
+    @Test
+    public void shouldNotScanTextAfterFirstMatch() {
+        WatchedText text = new WatchedText("error 1\n" + repeat("ok\n", 100000));
+
+        MatchResult first = regex().find("error ").digit().build().matches(text).iterator().next();
+
+        assertThat(first.group(), equalTo("error 1"));
+        assertThat(text.furthest < 100, equalTo(true));
+    }
+
+    @Test
+    public void shouldSplitOnLineBreaks() {
+        String text = "a1\nb2\nc3\nd4\n";
+        List<Matches> parts = regex().word().build().matches(text).split(3);
+
+        assertThat(parts.size(), equalTo(3));
+        assertThat(parts.get(0).start(), equalTo(0));
+        for (int i = 1; i < parts.size(); i++) {
+            assertThat(parts.get(i).start(), equalTo(parts.get(i - 1).end()));
+            assertThat(text.charAt(parts.get(i).start() - 1), equalTo('\n'));
+        }
+        assertThat(parts.get(2).end(), equalTo(text.length()));
+    }
+
+    @Test
+    public void shouldNotSplitSingleLine() {
+        assertThat(regex().word().build().matches("abc def").split(4).size(), equalTo(1));
+    }
+
+    @Test
+    public void shouldFindSameInSplitParts() {
+        Random random = new Random(17);
+        VerbalExpression expression = regex().startOfLine().capture().word().endCapture().then("=")
+                .digit().oneOrMore().endOfLine().build();
+        for (int round = 0; round < 200; round++) {
+            StringBuilder text = new StringBuilder();
+            for (int line = random.nextInt(50); line > 0; line--) {
+                text.append(random.nextBoolean() ? "key" : "a b").append('=').append(random.nextInt(1000))
+                        .append(random.nextBoolean() ? "\n" : "\r\n");
+            }
+
+            List<String> found = new ArrayList<>();
+            for (Matches part : expression.matches(text).split(1 + random.nextInt(8))) {
+                found.addAll(groups(part));
+            }
+            assertThat(text.toString(), found, equalTo(expression.getTextGroups(text, 0)));
+        }
+    }
+
+    @Test
+    public void shouldFindSameAsTextGroups() {
+        Random random = new Random(23);
+        for (int round = 0; round < 2000; round++) {
+            VerbalExpression expression = regex().oneOf(word(random), word(random)).maybe(word(random))
+                    .then(word(random)).build();
+            for (int i = 0; i < 5; i++) {
+                String text = word(random) + word(random) + " " + word(random) + word(random) + word(random);
+                assertThat(expression + " on " + text, groups(expression.matches(text)),
+                        equalTo(expression.getTextGroups(text, 0)));
+            }
+        }
+    }
+
+    private static List<String> groups(Matches matches) {
+        List<String> groups = new ArrayList<>();
+        for (MatchResult match : matches) {
+            groups.add(match.group());
+        }
+        return groups;
+    }
+
+    private static String word(Random random) {
+        char[] chars = new char[1 + random.nextInt(2)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "abc".charAt(random.nextInt(3));
+        }
+        return new String(chars);
+    }
+
+    private static String repeat(String value, int times) {
+        StringBuilder repeated = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            repeated.append(value);
+        }
+        return repeated.toString();
+    }
+
+    /**
+     * Remembers the furthest char read
+     */
+    private static final class WatchedText implements CharSequence {
+        private final String text;
+        private int furthest;
+
+        private WatchedText(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            furthest = Math.max(furthest, index);
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            furthest = Math.max(furthest, end - 1);
+            return text.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class ParallelSearchTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @AfterClass
+    public static void shutdown() {
+        POOL.shutdown();
+    }
+
+    @Test
+    public void shouldFindGroupsInOrder() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append(i).append(",name").append(i).append('\n');
+        }
+
+        VerbalExpression id = regex().startOfLine().capture().digit().oneOrMore().endCapture().then(",").build();
+        assertThat(id.parallel(POOL).partSize(100).getTextGroups(text, 1), equalTo(id.getTextGroups(text, 1)));
+    }
+
+    @Test
+    public void shouldTestParts() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append("ok\n");
+        }
+        ParallelSearch search = regex().find("error").build().parallel(POOL).partSize(16);
+
+        assertThat(search.test(text), equalTo(false));
+        assertThat(search.test(text.append("error\n")), equalTo(true));
+    }
+
+    @Test
+    public void shouldNotFindEmptyMatchTwiceAtBoundsOfParts() {
+        String text = "a\nb\nc\nd\n";
+        VerbalExpression digits = regex().digit().zeroOrMore().build();
+
+        assertThat(digits.parallel(POOL).partSize(2).getTextGroups(text, 0).size(), equalTo(text.length() + 1));
+    }
+
+    @Test
+    public void shouldSearchWholeTextIfMatchesCrossLines() {
+        String text = "a=1\nb=2\n";
+
+        assertThat(regex().lineBreak().then("b").build().isSearchableByLines(), equalTo(false));
+        assertThat(regex().lineBreak().then("b").build().parallel(POOL).partSize(1).getTextGroups(text, 0),
+                equalTo(Collections.singletonList("\nb")));
+        assertThat(regex().anythingBut("#").then("=2").build().parallel(POOL).partSize(1).getTextGroups(text, 0),
+                equalTo(Collections.singletonList("a=1\nb=2")));
+    }
+
+    @Test
+    public void shouldSearchByLinesOnlyIfStartOfLineIsMultiline() {
+        assertThat(regex().startOfLine().then("a").build().isSearchableByLines(), equalTo(true));
+        assertThat(regex().startOfLine().then("a").searchOneLine(true).build().isSearchableByLines(), equalTo(false));
+        assertThat(regex().then("a").anything().build().isSearchableByLines(), equalTo(true));
+        assertThat(regex().then("a").anything().searchOneLine(true).build().isSearchableByLines(), equalTo(true));
+        assertThat(regex().add("a\\s").build().isSearchableByLines(), equalTo(false));
+    }
+
+    @Test
+    public void shouldFindSameAsSequential() {
+        Random random = new Random(31);
+        VerbalExpression[] expressions = {
+                regex().startOfLine().capture().word().endCapture().then("=").digit().oneOrMore().endOfLine().build(),
+                regex().then("b").maybe("a").wordBoundary().build(),
+                regex().digit().zeroOrMore().build(),
+                regex().oneOf("ba", "b=").build(),
+        };
+        for (int round = 0; round < 200; round++) {
+            VerbalExpression expression = expressions[round % expressions.length];
+            StringBuilder text = new StringBuilder();
+            for (int line = random.nextInt(100); line > 0; line--) {
+                text.append(random.nextBoolean() ? "ba" : "a b").append('=').append(random.nextInt(1000))
+                        .append(random.nextBoolean() ? "\n" : "\r\n");
+            }
+
+            ParallelSearch search = expression.parallel(POOL).partSize(1 + random.nextInt(64));
+            for (int group : Arrays.asList(0, expression.pattern().matcher("").groupCount())) {
+                assertThat(expression + " on " + text, search.getTextGroups(text, group),
+                        equalTo(expression.getTextGroups(text, group)));
+            }
+            assertThat(search.test(text), equalTo(expression.test(text)));
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Test;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class RegionMatchingTest {
+
+    @Test
+    public void shouldMatchStringBuilder() {
+        VerbalExpression expression = regex().find("error ").capture().digit().oneOrMore().endCapture().build();
+        StringBuilder text = new StringBuilder("job failed with error 42");
+
+        assertThat(expression.test(text), equalTo(true));
+        assertThat(expression.getText(text, 1), equalTo("42"));
+        assertThat(expression.testExact(new StringBuilder("error 7")), equalTo(true));
+    }
+
+    @Test
+    public void shouldMatchCharBuffer() {
+        VerbalExpression expression = regex().oneOf("cat", "dog").build();
+
+        assertThat(expression.getTextGroups(CharBuffer.wrap("hotdog cats"), 0), equalTo(Arrays.asList("dog", "cat")));
+    }
+
+    @Test
+    public void shouldMatchOnlyInsideOfRegion() {
+        VerbalExpression expression = regex().find("error ").digit().oneOrMore().build();
+        String text = "error 1; ok; error 22";
+
+        assertThat(expression.test(text, 7, 12), equalTo(false));
+        assertThat(expression.getText(text, 0, 8, 0), equalTo("error 1"));
+        assertThat(expression.getTextGroups(text, 10, text.length(), 0), equalTo(Arrays.asList("error 22")));
+        assertThat(expression.getText(text, 13, 20, 0), equalTo("error 2"));
+    }
+
+    @Test
+    public void shouldAnchorToRegionBounds() {
+        VerbalExpression expression = regex().startOfLine().then("ab").endOfLine().build();
+
+        assertThat(expression.test("xaby", 1, 3), equalTo(true));
+        assertThat(expression.testExact("xaby", 1, 3), equalTo(true));
+        assertThat(expression.testExact("xaby", 1, 4), equalTo(false));
+    }
+
+    @Test
+    public void shouldMatchEmptyRegion() {
+        assertThat(regex().maybe("a").build().testExact("abc", 2, 2), equalTo(true));
+        assertThat(regex().then("a").build().test("abc", 3, 3), equalTo(false));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shouldNotAcceptRegionOutsideOfText() {
+        regex().then("a").build().test("abc", 1, 4);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shouldNotAcceptRegionOutsideOfTextForLiteralSet() {
+        regex().oneOf("a", "b").build().test("abc", 2, 1);
+    }
+
+    @Test
+    public void shouldFindLiteralInRegionOfSequence() {
+        LiteralSearch search = new LiteralSearch("abcab");
+        StringBuilder text = new StringBuilder("xxabcabcabxabcab");
+
+        assertThat(search.indexOf(text, 0, text.length()), equalTo(2));
+        assertThat(search.indexOf(text, 3, text.length()), equalTo(5));
+        assertThat(search.indexOf(text, 6, text.length()), equalTo(11));
+        assertThat(search.indexOf(text, 6, text.length() - 1), equalTo(-1));
+        assertThat(search.indexOf(text.toString(), 3, 10), equalTo(5));
+        assertThat(search.indexOf(text, 0, 0), equalTo(-1));
+        assertThat(new LiteralSearch("x").indexOf(text, 2, text.length()), equalTo(10));
+    }
+
+    @Test
+    public void shouldCompareLastCharOfLiteral() {
+        // 'b' and 'B' share the shift, as their low bits are the same
+        assertThat(new LiteralSearch("ab").indexOf(new StringBuilder("xaB"), 0, 3), equalTo(-1));
+        assertThat(new LiteralSearch("abc").indexOf(new StringBuilder("abCabc"), 0, 6), equalTo(3));
+        assertThat(new LiteralSearch("ab").indexOf("xaBab", 0, 3), equalTo(-1));
+        assertThat(new LiteralSearch("ab").indexOf(CharBuffer.wrap("xaBab"), 1, 5), equalTo(3));
+    }
+
+    @Test
+    public void shouldFindLiteralSameAsIndexOf() {
+        Random random = new Random(5);
+        for (int round = 0; round < 3000; round++) {
+            String literal = randomCase(random, 1 + random.nextInt(4));
+            String text = randomCase(random, random.nextInt(20));
+            int from = random.nextInt(text.length() + 1);
+            int to = from + random.nextInt(text.length() - from + 1);
+            int expected = text.substring(0, to).indexOf(literal, from);
+
+            assertThat(literal + " in " + text + " [" + from + ", " + to + ")",
+                    new LiteralSearch(literal).indexOf(new StringBuilder(text), from, to), equalTo(expected));
+        }
+    }
+
+    @Test
+    public void shouldMatchRegionSameAsSubstring() {
+        Random random = new Random(11);
+        for (int round = 0; round < 3000; round++) {
+            VerbalExpression expression = regex(randomExpression(random)).build();
+
+            for (int i = 0; i < 5; i++) {
+                String text = randomText(random);
+                int start = random.nextInt(text.length() + 1);
+                int end = start + random.nextInt(text.length() - start + 1);
+                String part = text.substring(start, end);
+                StringBuilder sequence = new StringBuilder(text);
+                String message = expression + " on " + text + " [" + start + ", " + end + ")";
+
+                assertThat(message, expression.test(sequence, start, end), equalTo(expression.test(part)));
+                assertThat(message, expression.test(text, start, end), equalTo(expression.test(part)));
+                assertThat(message, expression.testExact(sequence, start, end), equalTo(expression.testExact(part)));
+                assertThat(message, expression.getTextGroups(sequence, start, end, 0),
+                        equalTo(expression.getTextGroups(part, 0)));
+                assertThat(message, expression.getTextGroups(text, start, end, 0),
+                        equalTo(expression.getTextGroups(part, 0)));
+            }
+        }
+    }
+
+    private static VerbalExpression.Builder randomExpression(Random random) {
+        VerbalExpression.Builder builder = regex();
+        int parts = 1 + random.nextInt(5);
+        for (int part = 0; part < parts; part++) {
+            switch (random.nextInt(9)) {
+                case 0:
+                    builder.maybe(randomString(random, 1, 2));
+                    break;
+                case 1:
+                    builder.digit().count(random.nextInt(2), 1 + random.nextInt(2));
+                    break;
+                case 2:
+                    builder.oneOf(randomString(random, 1, 3), randomString(random, 1, 3));
+                    break;
+                case 3:
+                    builder.wordBoundary();
+                    break;
+                case 4:
+                    builder.startOfLine(random.nextBoolean());
+                    break;
+                case 5:
+                    builder.endOfLine(random.nextBoolean());
+                    break;
+                case 6:
+                    builder.or(randomString(random, 1, 2));
+                    break;
+                case 7:
+                    builder.anything();
+                    break;
+                default:
+                    builder.then(randomString(random, 1, 3));
+            }
+        }
+        return builder;
+    }
+
+    private static String randomString(Random random, int minLength, int maxLength) {
+        char[] chars = new char[minLength + random.nextInt(maxLength - minLength + 1)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "ab".charAt(random.nextInt(2));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Chars, that differ only in the case, share the shift of {@link LiteralSearch}
+     */
+    private static String randomCase(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "aAbB".charAt(random.nextInt(4));
+        }
+        return new String(chars);
+    }
+
+    private static String randomText(Random random) {
+        char[] chars = new char[random.nextInt(16)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "ab1 \n".charAt(random.nextInt(5));
+        }
+        return new String(chars);
+    }
+}
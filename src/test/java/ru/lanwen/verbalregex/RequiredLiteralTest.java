@@ -0,0 +1,191 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class RequiredLiteralTest {
+
+    @Test
+    public void shouldFindPrefixOfUrl() {
+        RequiredLiteral literal = literal(regex().startOfLine().find("http").maybe("s").then("://")
+                .maybe("www.").anythingBut(" ").endOfLine());
+
+        assertThat(literal.required(), equalTo("http"));
+        assertThat(literal.prefix(), equalTo("http"));
+    }
+
+    @Test
+    public void shouldFindLiteralInTheMiddle() {
+        RequiredLiteral literal = literal(regex().anything().then("error: ").digit().oneOrMore());
+
+        assertThat(literal.required(), equalTo("error: "));
+        assertThat(literal.prefix(), equalTo(""));
+    }
+
+    @Test
+    public void shouldJoinLiteralsAroundZeroWidthAndCaptures() {
+        RequiredLiteral literal = literal(regex().then("key").wordBoundary().capture().then("=").endCapture()
+                .word().then("ab").count(2));
+
+        assertThat(literal.required(), equalTo("key="));
+        assertThat(literal.prefix(), equalTo("key="));
+    }
+
+    @Test
+    public void shouldRepeatExactCount() {
+        assertThat(literal(regex().space().then("ab").count(3)).required(), equalTo("ababab"));
+    }
+
+    @Test
+    public void shouldFindCommonPrefixOfAlternatives() {
+        RequiredLiteral literal = literal(regex().oneOf("order-12", "order-34").digit());
+
+        assertThat(literal.required(), equalTo("order-"));
+        assertThat(literal.prefix(), equalTo("order-"));
+    }
+
+    @Test
+    public void shouldUseLiteralAfterOptionalPart() {
+        RequiredLiteral literal = literal(regex().maybe("a").then("bcd"));
+
+        assertThat(literal.required(), equalTo("bcd"));
+        assertThat(literal.prefix(), equalTo(""));
+    }
+
+    @Test
+    public void shouldNotBeFoundForDifferentAlternatives() {
+        assertThat(literal(regex().then("abc").or("def")), nullValue());
+    }
+
+    @Test
+    public void shouldNotBeFoundWithRawSource() {
+        assertThat(literal(regex().then("abc").add("|x")), nullValue());
+    }
+
+    @Test
+    public void shouldNotBeFoundWithRegexValues() {
+        assertThat(literal(regex().then("abc").oneOf("Mr.", "Mrs")), nullValue());
+    }
+
+    @Test
+    public void shouldNotBeFoundWithAnyCase() {
+        assertThat(RequiredLiteral.of(regex().then("abc").toNode(), Pattern.CASE_INSENSITIVE), nullValue());
+    }
+
+    @Test
+    public void shouldNotUseLiteralOfAddedBuilderWithAnyCase() {
+        RequiredLiteral literal = literal(regex().then("abc").add(regex().then("defgh").withAnyCase()));
+
+        assertThat(literal.required(), equalTo("abc"));
+    }
+
+    @Test
+    public void shouldNotBeFoundWithComments() {
+        // whitespace of the value is ignored in this mode, so it matches "ab"
+        VerbalExpression comments = regex().then("x").oneOf("a b").addModifier('x').build();
+        VerbalExpression added = regex().then("x").add(regex().oneOf("a b", "c d").addModifier('x')).build();
+
+        assertThat(RequiredLiteral.of(regex().then("x").oneOf("a b").toNode(), Pattern.COMMENTS), nullValue());
+        assertThat(literal(regex().then("x").add(regex().oneOf("a b").addModifier('x'))).required(), equalTo("x"));
+        assertThat(comments.test("xab"), equalTo(true));
+        assertThat(added.test("xab"), equalTo(true));
+        assertThat(added.test("xcd"), equalTo(true));
+        assertThat(VerbalExpressionSet.of(comments, added).test("xab").cardinality(), equalTo(2));
+    }
+
+    @Test
+    public void shouldMatchSameAsRegex() {
+        Random random = new Random(5);
+        for (int round = 0; round < 3000; round++) {
+            VerbalExpression.Builder builder = randomExpression(random);
+            VerbalExpression expression = regex(builder).build();
+            Pattern pattern = Pattern.compile(expression.toString(), Pattern.MULTILINE);
+
+            for (int i = 0; i < 5; i++) {
+                String text = randomText(random);
+                String message = expression + " on " + text;
+                assertThat(message, expression.test(text), equalTo(pattern.matcher(text).find()));
+                assertThat(message, expression.testExact(text), equalTo(pattern.matcher(text).matches()));
+                assertThat(message, expression.getTextGroups(text, 0), equalTo(findAll(pattern, text)));
+            }
+        }
+    }
+
+    private static RequiredLiteral literal(VerbalExpression.Builder builder) {
+        return RequiredLiteral.of(builder.toNode(), Pattern.MULTILINE);
+    }
+
+    private static VerbalExpression.Builder randomExpression(Random random) {
+        VerbalExpression.Builder builder = regex();
+        int parts = 1 + random.nextInt(5);
+        for (int part = 0; part < parts; part++) {
+            switch (random.nextInt(10)) {
+                case 0:
+                    builder.maybe(randomString(random, 1, 2));
+                    break;
+                case 1:
+                    builder.digit().count(random.nextInt(2), 1 + random.nextInt(2));
+                    break;
+                case 2:
+                    builder.anything();
+                    break;
+                case 3:
+                    builder.capture().then(randomString(random, 1, 2)).endCapture();
+                    break;
+                case 4:
+                    builder.oneOf(randomString(random, 1, 3), randomString(random, 1, 3));
+                    break;
+                case 5:
+                    builder.wordBoundary();
+                    break;
+                case 6:
+                    builder.then(randomString(random, 1, 2)).oneOrMore();
+                    break;
+                case 7:
+                    builder.startOfLine(random.nextBoolean());
+                    break;
+                case 8:
+                    builder.or(randomString(random, 1, 2));
+                    break;
+                default:
+                    builder.then(randomString(random, 1, 3));
+            }
+        }
+        return builder.simplify(random.nextBoolean());
+    }
+
+    private static String randomString(Random random, int minLength, int maxLength) {
+        char[] chars = new char[minLength + random.nextInt(maxLength - minLength + 1)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "ab".charAt(random.nextInt(2));
+        }
+        return new String(chars);
+    }
+
+    private static String randomText(Random random) {
+        char[] chars = new char[random.nextInt(16)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "ab1 \n".charAt(random.nextInt(5));
+        }
+        return new String(chars);
+    }
+
+    private static List<String> findAll(Pattern pattern, String text) {
+        List<String> found = new ArrayList<>();
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find()) {
+            found.add(matcher.group());
+        }
+        return found;
+    }
+}
@@ -0,0 +1,159 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class SimplifierTest {
+
+    private static final String[] INPUTS = {
+            "",
+            "http://www.google.com",
+            "https://google.com/ ftp://x",
+            "abc def abcabc abcd",
+            "a\nb\r\nc\r\rd",
+            "aaa bbb ab ba",
+            "Mr. Smith, Mrs. Jones",
+            "1 22 333 4444 55555",
+            "a-b_c d.e",
+            "x(y)z [a] {b}",
+    };
+
+    @Test
+    public void shouldBeOffByDefault() {
+        assertThat(regex().then("a").maybe("b").build().toString(), equalTo("(?:a)(?:b)?"));
+    }
+
+    @Test
+    public void shouldSimplifyUrl() {
+        assertThat(regex().startOfLine().then("http").maybe("s").then("://").maybe("www.").anythingBut(" ")
+                        .endOfLine().simplify().build().toString(),
+                equalTo("^https?\\:\\/\\/(?:www\\.)?[^\\ ]*$"));
+    }
+
+    @Test
+    public void shouldMergeAdjacentLiterals() {
+        assertThat(regex().then("a").then("b").tab().then("c").simplify().build().toString(),
+                equalTo("ab\\tc"));
+    }
+
+    @Test
+    public void shouldKeepGroupAroundQuantifiedLiteral() {
+        assertThat(regex().then("abc").oneOrMore().then("d").zeroOrMore().simplify().build().toString(),
+                equalTo("(?:abc)+d*"));
+    }
+
+    @Test
+    public void shouldFoldTrivialQuantifiers() {
+        assertThat(regex().then("ab").count(1).digit().atLeast(0).wordChar().atLeast(1).space().count(0, 1)
+                        .simplify().build().toString(),
+                equalTo("ab\\d*\\w+\\s?"));
+    }
+
+    @Test
+    public void shouldFlattenAlternatives() {
+        assertThat(regex().then("a").or("b").or("c").or("d").simplify().build().toString(),
+                equalTo("a|b|c|d"));
+    }
+
+    @Test
+    public void shouldKeepGroupAroundAlternativesWithAnchors() {
+        assertThat(regex().startOfLine().then("a").or("b").or("c").endOfLine().simplify().build().toString(),
+                equalTo("^(?:a|b|c)$"));
+    }
+
+    @Test
+    public void shouldKeepCaptures() {
+        assertThat(regex().capture("name").then("a").endCapture().capture().word().endCapture()
+                        .simplify().build().toString(),
+                equalTo("(?<name>a)(\\w+)"));
+    }
+
+    @Test
+    public void shouldRemoveGroupAroundQuantifiedCapture() {
+        assertThat(regex().group().capture().then("a").endCapture().endGr().oneOrMore()
+                        .simplify().build().toString(),
+                equalTo("(a)+"));
+    }
+
+    @Test
+    public void shouldSimplifyLineBreak() {
+        assertThat(regex().then("a").lineBreak().simplify().build().toString(),
+                equalTo("a(?:\\n|\\r\\n|\\r\\r)"));
+    }
+
+    @Test
+    public void shouldKeepRawAsIs() {
+        assertThat(regex().then("a").add("+").oneOf("b|c", "d").then("e").simplify().build().toString(),
+                equalTo("(?:a)+(?:(?:b|c)|(?:d))e"));
+    }
+
+    @Test
+    public void shouldKeepItemBeforeRepeatedRaw() {
+        VerbalExpression.Builder builder = regex().wordChar().count(1, 1).count(1, 3).atLeastPossessive(1);
+
+        assertThat(VerbalExpression.regex(builder).build().toString(), equalTo("(?:\\w){1,1}{1,3}{1,}+"));
+        assertThat(builder.simplify().build().toString(), equalTo("(?:\\w){1,1}{1,3}{1,}+"));
+    }
+
+    @Test
+    public void shouldKeepModifiersOfAddedBuilder() {
+        assertThat(regex().then("a").add(regex().then("b").withAnyCase()).then("c").simplify().build().toString(),
+                equalTo("a(?i:b)c"));
+    }
+
+    @Test
+    public void shouldBeCopiedWithBuilder() {
+        assertThat(regex(regex().then("a").simplify()).then("b").build().toString(), equalTo("ab"));
+    }
+
+    @Test
+    public void simplifiedShouldMatchSameAsOriginal() {
+        VerbalExpression.Builder[] builders = {
+                regex().startOfLine().then("http").maybe("s").then("://").maybe("www.").anythingBut(" ").endOfLine(),
+                regex().then("abc").oneOrMore().then(" ").then("def").zeroOrMore(),
+                regex().then("a").or("b").or("c").or("d"),
+                regex().startOfLine().then("a").or("b").endOfLine(),
+                regex().startOfLine().then("a").capture().then("b").or("c").or(null),
+                regex().capture().wordChar().count(1, 1).endCapture().capture("rest").word().endCapture(),
+                regex().lineBreak().then("b").or("c").lineBreak(),
+                regex().oneOf("Mr.", "Mrs").space().capture().word().endCapture(),
+                regex().digit().count(2).digit().atLeast(1).nonSpace().atLeast(0),
+                regex().group().then("a").or("b").endGr().oneOrMore().then(" "),
+                regex().group().capture().anyOf("ab").endCapture().endGr().count(2, 3),
+                regex().wordBoundary().then("ab").wordBoundary().maybe(" "),
+                regex().then("x").add("\\(").something().add("\\)").then("z"),
+                regex().then("a").add(regex().then("b").or("c")).then("d"),
+                regex().anything().then(".").range("a", "e").oneOrMore().endOfLine(),
+                regex().then("a").add(regex().then("A").withAnyCase()).maybe("b"),
+                regex().then("a").add(regex().then("B").withAnyCase().then("c")).then("d"),
+        };
+
+        for (VerbalExpression.Builder builder : builders) {
+            VerbalExpression original = regex(builder).build();
+            VerbalExpression simplified = regex(builder).simplify().build();
+            for (String input : INPUTS) {
+                assertThat(simplified + " vs " + original + " on " + input,
+                        matches(simplified, input), equalTo(matches(original, input)));
+            }
+        }
+    }
+
+    private static List<String> matches(VerbalExpression expression, String input) {
+        List<String> found = new ArrayList<>();
+        Matcher matcher = Pattern.compile(expression.toString(), Pattern.MULTILINE).matcher(input);
+        while (matcher.find()) {
+            for (int group = 0; group <= matcher.groupCount(); group++) {
+                found.add(matcher.start(group) + ":" + matcher.group(group));
+            }
+        }
+        return found;
+    }
+}
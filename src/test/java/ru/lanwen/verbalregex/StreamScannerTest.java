@@ -0,0 +1,193 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.MatchResult;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class StreamScannerTest {
+
+    @Test
+    public void shouldFindMatchesWithOffsets() throws IOException {
+        Collector found = new Collector();
+
+        long count = regex().find("error ").digit().oneOrMore().build().streamScanner()
+                .scan(new StringReader("ok\nerror 1\nok\nerror 22\n"), found);
+
+        assertThat(count, equalTo(2L));
+        assertThat(found.values, equalTo(Arrays.asList("3:error 1", "14:error 22")));
+    }
+
+    @Test
+    public void shouldReadMoreForMatchAtEndOfWindow() throws IOException {
+        Collector found = new Collector();
+
+        regex().digit().oneOrMore().build().streamScanner().window(8)
+                .scan(new PieceReader("ab 123456 cd 7", new Random(1)), found);
+
+        assertThat(found.values, equalTo(Arrays.asList("3:123456", "13:7")));
+    }
+
+    @Test
+    public void shouldSeeCharBeforeWindowAtStartOfLine() throws IOException {
+        Collector found = new Collector();
+
+        regex().startOfLine().word().oneOrMore().build().streamScanner().window(4)
+                .scan(new PieceReader("ab cd\nef", new Random(2)), found);
+
+        assertThat(found.values, equalTo(Arrays.asList("0:ab", "6:ef")));
+    }
+
+    @Test
+    public void shouldCutMatchLongerThanWindow() throws IOException {
+        Collector found = new Collector();
+
+        regex().digit().oneOrMore().build().streamScanner().window(4).scan(new StringReader("x1234567 8"), found);
+
+        assertThat(found.values, equalTo(Arrays.asList("1:123", "4:456", "7:7", "9:8")));
+    }
+
+    @Test
+    public void shouldKeepMemoryBoundedOnLongStream() throws IOException {
+        Collector found = new Collector();
+
+        long count = regex().then("key=").digit().build().streamScanner().window(64)
+                .scan(new RepeatedReader("some text key=1\n", 200000), found);
+
+        assertThat(count, equalTo(200000L));
+        assertThat(found.values.get(199999), equalTo("3199994:key=1"));
+    }
+
+    @Test
+    public void shouldDecodeChannel() throws IOException {
+        Collector found = new Collector();
+        Charset utf8 = Charset.forName("UTF-8");
+
+        regex().then("ключ=").digit().build().streamScanner().charset(utf8)
+                .scan(Channels.newChannel(new ByteArrayInputStream("😀 ключ=1".getBytes(utf8))), found);
+
+        assertThat(found.values, equalTo(Arrays.asList("3:ключ=1")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAcceptTooSmallWindow() {
+        regex().then("a").build().streamScanner().window(1);
+    }
+
+    @Test
+    public void shouldFindSameAsWholeText() throws IOException {
+        Random random = new Random(29);
+        VerbalExpression[] expressions = {
+                regex().startOfLine().capture().word().endCapture().then("=").digit().oneOrMore().endOfLine().build(),
+                regex().then("b").maybe("a").wordBoundary().build(),
+                regex().digit().zeroOrMore().build(),
+                regex().anythingBut("=").then("=").build(),
+        };
+        for (int round = 0; round < 400; round++) {
+            VerbalExpression expression = expressions[round % expressions.length];
+            StringBuilder text = new StringBuilder();
+            for (int line = random.nextInt(20); line > 0; line--) {
+                text.append(random.nextBoolean() ? "ba" : "a b").append('=').append(random.nextInt(1000))
+                        .append(random.nextBoolean() ? "\n" : "\r\n");
+            }
+
+            Collector found = new Collector();
+            expression.streamScanner().window(32 + random.nextInt(32))
+                    .scan(new PieceReader(text.toString(), random), found);
+
+            List<String> expected = new ArrayList<>();
+            for (MatchResult match : expression.matches(text)) {
+                expected.add(match.start() + ":" + match.group());
+            }
+            assertThat(expression + " on " + text, found.values, equalTo(expected));
+        }
+    }
+
+    private static final class Collector implements StreamScanner.Handler {
+        private final List<String> values = new ArrayList<>();
+
+        @Override
+        public void onMatch(MatchResult match, long offset) {
+            values.add(offset + ":" + match.group());
+        }
+    }
+
+    /**
+     * Gives the text in pieces of random length, as a socket does
+     */
+    private static final class PieceReader extends Reader {
+        private final String text;
+        private final Random random;
+        private int position;
+
+        private PieceReader(String text, Random random) {
+            this.text = text;
+            this.random = random;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position == text.length()) {
+                return -1;
+            }
+            int count = Math.min(1 + random.nextInt(length), text.length() - position);
+            text.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Gives the line many times without keeping the whole text
+     */
+    private static final class RepeatedReader extends Reader {
+        private final String line;
+        private int times;
+        private int position;
+
+        private RepeatedReader(String line, int times) {
+            this.line = line;
+            this.times = times;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (times == 0) {
+                return -1;
+            }
+            int count = 0;
+            while (count < length && times > 0) {
+                int piece = Math.min(length - count, line.length() - position);
+                line.getChars(position, position + piece, buffer, offset + count);
+                count += piece;
+                position += piece;
+                if (position == line.length()) {
+                    position = 0;
+                    times--;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class VerbalExpressionSetTest {
+
+    @Test
+    public void shouldReportAllMatchedRules() {
+        VerbalExpressionSet rules = VerbalExpressionSet.of(
+                regex().find("ERROR").build(),
+                regex().find("timeout after ").digit().oneOrMore().then("ms").build(),
+                regex().oneOf("disk", "memory").build(),
+                regex().find("error").withAnyCase().build());
+
+        assertThat(rules.test("ERROR: timeout after 30ms").toString(), equalTo("{0, 1, 3}"));
+        assertThat(rules.test("memory is low").toString(), equalTo("{2}"));
+        assertThat(rules.test("timeout after ms").isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void shouldFindOverlappingLiterals() {
+        VerbalExpressionSet rules = VerbalExpressionSet.of(
+                regex().then("she").build(), regex().then("he").build(), regex().then("hers").build());
+
+        assertThat(rules.test("ushers").toString(), equalTo("{0, 1, 2}"));
+    }
+
+    @Test
+    public void shouldReuseGivenSet() {
+        VerbalExpressionSet rules = VerbalExpressionSet.of(regex().digit().build(), regex().then("a").build());
+        BitSet matched = new BitSet();
+
+        rules.test("1", matched);
+        assertThat(matched.toString(), equalTo("{0}"));
+        rules.test("a", matched);
+        assertThat(matched.toString(), equalTo("{1}"));
+        rules.test(null, matched);
+        assertThat(matched.isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void shouldKeepRulesInOrder() {
+        VerbalExpression first = regex().then("a").build();
+        VerbalExpressionSet rules = VerbalExpressionSet.of(first, regex().then("b").build());
+
+        assertThat(rules.size(), equalTo(2));
+        assertThat(rules.get(0), equalTo(first));
+    }
+
+    @Test
+    public void shouldFindSameAsEachRule() {
+        Random random = new Random(41);
+        for (int round = 0; round < 200; round++) {
+            List<VerbalExpression> list = new ArrayList<>();
+            for (int i = random.nextInt(30); i >= 0; i--) {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        list.add(regex().then(word(random)).digit().build());
+                        break;
+                    case 1:
+                        list.add(regex().oneOf(word(random), word(random)).build());
+                        break;
+                    case 2:
+                        list.add(regex().startOfLine().then(word(random)).build());
+                        break;
+                    default:
+                        list.add(regex().then(word(random)).withAnyCase().build());
+                }
+            }
+            VerbalExpressionSet rules = VerbalExpressionSet.of(list);
+
+            for (int i = 0; i < 10; i++) {
+                String text = word(random) + random.nextInt(10) + word(random).toUpperCase() + "\n" + word(random);
+                BitSet expected = new BitSet();
+                for (int rule = 0; rule < list.size(); rule++) {
+                    expected.set(rule, list.get(rule).test(text));
+                }
+                assertThat(text, rules.test(text), equalTo(expected));
+            }
+        }
+    }
+
+    private static String word(Random random) {
+        char[] chars = new char[1 + random.nextInt(3)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "abc".charAt(random.nextInt(3));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,100 @@
+package ru.lanwen.verbalregex;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static ru.lanwen.verbalregex.VerbalExpression.regex;
+
+public class VerbalMatcherTest {
+
+    @Test
+    public void shouldMatchSameAsExpressionForEachText() {
+        VerbalExpression expression = regex().capture().word().endCapture().then("=")
+                .capture("value").digit().oneOrMore().endCapture().build();
+        VerbalMatcher matcher = expression.matcher();
+
+        for (String text : Arrays.asList("a=1", "no match", "a=1 bb=22", "", "x=")) {
+            assertThat(text, matcher.test(text), equalTo(expression.test(text)));
+            assertThat(text, matcher.testExact(text), equalTo(expression.testExact(text)));
+            assertThat(text, matcher.getText(text), equalTo(expression.getText(text)));
+            assertThat(text, matcher.getText(text, 1), equalTo(expression.getText(text, 1)));
+            assertThat(text, matcher.getText(text, "value"), equalTo(expression.getText(text, "value")));
+            assertThat(text, matcher.getTextGroups(text, 2), equalTo(expression.getTextGroups(text, 2)));
+        }
+    }
+
+    @Test
+    public void shouldNotKeepGroupsOfPreviousText() {
+        VerbalMatcher matcher = regex().capture().digit().endCapture().maybe("x").build().matcher();
+
+        assertThat(matcher.getTextGroups("1x2", 1), equalTo(Arrays.asList("1", "2")));
+        assertThat(matcher.getTextGroups("3", 1), equalTo(Arrays.asList("3")));
+        assertThat(matcher.getTextGroups("", 1).isEmpty(), equalTo(true));
+    }
+
+    @Test
+    public void shouldMatchLiteralSet() {
+        VerbalMatcher matcher = regex().oneOf("cat", "dog").build().matcher();
+
+        assertThat(matcher.getTextGroups("hotdog cats", 0), equalTo(Arrays.asList("dog", "cat")));
+        assertThat(matcher.testExact("cat"), equalTo(true));
+        assertThat(matcher.test(null), equalTo(false));
+    }
+
+    @Test
+    public void shouldCompileLazyExpression() {
+        VerbalExpression expression = regex().then("a").lazy().build();
+
+        assertThat(expression.matcher().test("ba"), equalTo(true));
+        assertThat(expression.isCompiled(), equalTo(true));
+    }
+
+    @Test
+    public void shouldReuseMatcherOfEachThread() throws Exception {
+        final VerbalExpression expression = regex().find("error ").capture().digit().oneOrMore().endCapture()
+                .reuseMatchers().build();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> checks = new ArrayList<>();
+            for (int task = 0; task < 16; task++) {
+                final int code = task;
+                checks.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        for (int i = 0; i < 1000; i++) {
+                            String text = "job " + i + " failed with error " + code;
+                            if (!expression.getText(text, 1).equals(String.valueOf(code))
+                                    || expression.test("job " + i + " done")) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+
+            for (Future<Boolean> check : checks) {
+                assertThat(check.get(), equalTo(true));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldCopyReuseMode() {
+        VerbalExpression expression = regex(regex().then("a").reuseMatchers()).build();
+
+        assertThat(expression.getTextGroups("aba", 0), equalTo(Arrays.asList("a", "a")));
+        assertThat(expression.test("b"), equalTo(false));
+    }
+}